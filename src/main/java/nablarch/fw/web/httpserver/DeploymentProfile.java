@@ -0,0 +1,144 @@
+package nablarch.fw.web.httpserver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.ee10.annotations.AnnotationConfiguration;
+import org.eclipse.jetty.ee10.apache.jsp.JettyJasperInitializer;
+import org.eclipse.jetty.ee10.webapp.Configuration;
+import org.eclipse.jetty.ee10.webapp.JspConfiguration;
+import org.eclipse.jetty.ee10.webapp.WebAppConfiguration;
+import org.eclipse.jetty.ee10.webapp.WebAppContext;
+import org.eclipse.jetty.ee10.webapp.WebInfConfiguration;
+import org.eclipse.jetty.ee10.webapp.WebXmlConfiguration;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * {@link HttpServerJetty12}がWARをデプロイする際に使用する機能の組み合わせ（デプロイプロファイル）。
+ * <p/>
+ * 使用しない機能を無効にすることで、内蔵サーバの起動時間を短縮できる。
+ *
+ * @see HttpServerJetty12#setDeploymentProfile(String)
+ */
+@Published(tag = "architect")
+public enum DeploymentProfile {
+
+    /**
+     * 全ての機能を使用する（デフォルト）。
+     */
+    FULL("full") {
+        @Override
+        void configure(WebAppContext webApp) {
+            webApp.setConfigurations(new Configuration[] {
+                    new WebAppConfiguration(),
+                    new JspConfiguration(),
+                    new WebInfConfiguration(),
+                    new WebXmlConfiguration(),
+                    new AnnotationConfiguration()
+            });
+        }
+    },
+
+    /**
+     * JSPを使用しない。
+     * <p/>
+     * JSPサーブレットの初期化とタグライブラリのスキャンを行わない。
+     * （JSPのクラスがWebアプリケーションから参照できなくなるため、
+     * JSPの初期化処理は{@link jakarta.servlet.ServletContainerInitializer}の検索時に除外される）
+     * JSPへのリクエストはエラーとなる。
+     */
+    NO_JSP("no-jsp") {
+        @Override
+        void configure(WebAppContext webApp) {
+            webApp.setConfigurations(new Configuration[] {
+                    new WebAppConfiguration(),
+                    new WebInfConfiguration(),
+                    new WebXmlConfiguration(),
+                    new AnnotationConfiguration()
+            });
+            webApp.addOverrideDescriptor(
+                    DeploymentProfile.class.getResource("override-no-jsp.xml").toExternalForm());
+        }
+
+        @Override
+        boolean isJspEnabled() {
+            return false;
+        }
+    },
+
+    /**
+     * サーブレットのアノテーションを使用しない。
+     * <p/>
+     * アノテーションのスキャンと、{@link jakarta.servlet.ServletContainerInitializer}の検索を行わない。
+     * JSPを使用するために必要な初期化処理のみ個別に登録する。
+     */
+    NO_ANNOTATIONS("no-annotations") {
+        @Override
+        void configure(WebAppContext webApp) {
+            webApp.setConfigurations(new Configuration[] {
+                    new WebAppConfiguration(),
+                    new JspConfiguration(),
+                    new WebInfConfiguration(),
+                    new WebXmlConfiguration()
+            });
+            webApp.addServletContainerInitializer(new JettyJasperInitializer());
+        }
+    };
+
+    /** プロファイル名 */
+    private final String profileName;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param profileName プロファイル名
+     */
+    DeploymentProfile(String profileName) {
+        this.profileName = profileName;
+    }
+
+    /**
+     * プロファイル名を返す。
+     *
+     * @return プロファイル名
+     */
+    public String getProfileName() {
+        return profileName;
+    }
+
+    /**
+     * プロファイル名に対応するデプロイプロファイルを取得する。
+     *
+     * @param profileName プロファイル名（"full"、"no-jsp"、"no-annotations"のいずれか）
+     * @return デプロイプロファイル
+     * @throws IllegalArgumentException 対応するデプロイプロファイルが存在しない場合
+     */
+    public static DeploymentProfile of(String profileName) {
+        List<String> profileNames = new ArrayList<>();
+        for (DeploymentProfile profile : values()) {
+            if (profile.profileName.equals(profileName)) {
+                return profile;
+            }
+            profileNames.add(profile.profileName);
+        }
+        throw new IllegalArgumentException(
+                "unknown deployment profile. profileName = [" + profileName + "] expected = " + profileNames);
+    }
+
+    /**
+     * このプロファイルでJSPを使用するか否かを返す。
+     *
+     * @return JSPを使用する場合{@code true}
+     */
+    boolean isJspEnabled() {
+        return true;
+    }
+
+    /**
+     * このプロファイルで使用する機能をWebアプリケーションに設定する。
+     *
+     * @param webApp 設定対象のWebアプリケーション
+     */
+    abstract void configure(WebAppContext webApp);
+}
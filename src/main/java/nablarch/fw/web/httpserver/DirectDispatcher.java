@@ -0,0 +1,369 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.HttpURI;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.Content;
+import org.eclipse.jetty.server.ConnectionMetaData;
+import org.eclipse.jetty.server.HttpStream;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.internal.HttpChannelState;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+
+import nablarch.fw.web.HttpRequest;
+import nablarch.fw.web.HttpResponse;
+
+/**
+ * HTTPリクエストを、HTTPメッセージへのシリアライズを行わずにWebアプリケーションへディスパッチするクラス。
+ * <pre>
+ * HTTPリクエストオブジェクトからJettyのリクエストメタデータを直接組み立て、
+ * Jettyのチャネルに渡してWebアプリケーションのハンドラ（フィルタチェーン）を実行する。
+ * レスポンスはHTTPメッセージにエンコードされず、ステータス、ヘッダ、ボディのまま受け取る。
+ * チャネルはローカルコネクタの接続情報の上に生成するため、
+ * セッション、JSPへのフォワード、{@link LazySessionInvalidationFilter}等は
+ * ローカルコネクタを経由した場合と同様に動作する。
+ * リクエストパラメータは、GETとHEADの場合はクエリ文字列に、それ以外の場合は
+ * URLエンコードしたリクエストボディに設定する。
+ * {@link nablarch.fw.web.MockHttpRequest}にマルチパートが設定されている場合は、
+ * {@link RequestMessageEncoder}でエンコードしたマルチパート形式のボディを設定する。
+ *
+ * チャネルには、Jettyの内部APIである{@link HttpChannelState}を使用する。
+ * Jettyの公開APIには、HTTPメッセージを経由せずにチャネルを生成する手段がないためである。
+ * 内部APIはJettyのバージョンアップで互換性なく変更される可能性があるため、
+ * Jettyのバージョンを変更する場合は、このクラスの動作を確認すること。
+ * </pre>
+ */
+class DirectDispatcher {
+
+    /** ストリームの識別子の採番に使用するカウンタ */
+    private static final AtomicLong STREAM_IDS = new AtomicLong();
+
+    /** 接続情報の取得元となるローカルコネクタ */
+    private final LocalConnector connector;
+
+    /** リクエストの処理を実行するスレッドプール */
+    private final Executor executor;
+
+    /** リクエストパラメータのエンコードに使用する文字セット */
+    private final Charset charset;
+
+    /** レスポンスボディを一時ファイルに書き出す閾値（バイト） */
+    private final long spillThreshold;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param connector 接続情報の取得元となるローカルコネクタ
+     * @param executor リクエストの処理を実行するスレッドプール
+     * @param charset リクエストパラメータのエンコードに使用する文字セット
+     * @param spillThreshold レスポンスボディを一時ファイルに書き出す閾値（バイト）
+     */
+    DirectDispatcher(LocalConnector connector, Executor executor, Charset charset, long spillThreshold) {
+        this.connector = connector;
+        this.executor = executor;
+        this.charset = charset;
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * HTTPリクエストをディスパッチし、レスポンスを受け取る。
+     *
+     * @param req HTTPリクエスト
+     * @param endPoint リクエストを受信したものとして扱う接続
+     * @param timeout レスポンスを待機する時間の上限
+     * @param unit {@code timeout}の単位
+     * @param timings 所要時間の記録先
+     * @return HTTPレスポンス
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    HttpResponse dispatch(HttpRequest req, LocalConnector.LocalEndPoint endPoint, long timeout, TimeUnit unit,
+                          RequestTimings timings) throws InterruptedException {
+        try {
+            return dispatchAsync(req, endPoint, timeout, unit, timings).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                throw new IllegalStateException(
+                        "response was not received within the timeout. timeout = [" + unit.toMillis(timeout) + "ms]",
+                        cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * HTTPリクエストをディスパッチし、レスポンスの完了を待機せずに処理を戻す。
+     * <pre>
+     * レスポンスは、Jettyのチャネルがレスポンスの完了を通知した時点で組み立てられる。
+     * 待機時間の上限を超えた場合は、{@link TimeoutException}で例外的に完了する。
+     * チャネルは指定された接続の上に生成する。接続は閉じないため、完了後に呼び出し元で閉じること。
+     * </pre>
+     * @param req HTTPリクエスト
+     * @param endPoint リクエストを受信したものとして扱う接続
+     * @param timeout レスポンスを待機する時間の上限
+     * @param unit {@code timeout}の単位
+     * @param timings 所要時間の記録先
+     * @return HTTPレスポンスで完了する{@link CompletableFuture}
+     */
+    CompletableFuture<HttpResponse> dispatchAsync(HttpRequest req, LocalConnector.LocalEndPoint endPoint,
+                                                  long timeout, TimeUnit unit, RequestTimings timings) {
+        long begin = System.nanoTime();
+        RequestMessageEncoder.Body body;
+        try {
+            body = new RequestMessageEncoder(connector.getByteBufferPool(), charset).encodeBody(req);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Connection connection = connector.getDefaultConnectionFactory().newConnection(connector, endPoint);
+        HttpChannelState channel = new HttpChannelState((ConnectionMetaData) connection);
+
+        String query = RequestMessageEncoder.isSentAsQuery(req)
+                ? RequestParameters.toQueryString(req.getParamMap(), charset) : "";
+        ResponseMessageBuilder builder = new ResponseMessageBuilder(spillThreshold);
+        DirectStream stream = new DirectStream(channel, executor, body.getByteBuffer(), builder);
+        channel.setHttpStream(stream);
+        MetaData.Request metaData = toMetaData(req, query, body);
+
+        long dispatched = System.nanoTime();
+        timings.recordRequest(dispatched - begin, body.size());
+        Runnable task = channel.onRequest(metaData);
+        if (task != null) {
+            executor.execute(task);
+        }
+        return stream.completion.orTimeout(timeout, unit).whenComplete((res, failure) -> {
+            if (failure != null) {
+                abort(channel, builder, failure);
+            }
+            connection.close();
+            body.release();
+        }).thenApply(res -> {
+            timings.recordResponse(System.nanoTime() - dispatched, 0L, builder.getBodySize(), builder.isSpilled());
+            return res;
+        });
+    }
+
+    /**
+     * レスポンスを受け取れなかったリクエストの処理を中断する。
+     * <pre>
+     * 処理中のチャネルに失敗を通知し、一時ファイルに書き出したレスポンスボディを破棄する。
+     * </pre>
+     * @param channel 中断するチャネル
+     * @param builder レスポンスの組み立て先
+     * @param failure 失敗の原因
+     */
+    private void abort(HttpChannelState channel, ResponseMessageBuilder builder, Throwable failure) {
+        try {
+            Runnable task = channel.onFailure(failure);
+            if (task != null) {
+                executor.execute(task);
+            }
+        } finally {
+            builder.discard();
+        }
+    }
+
+    /**
+     * HTTPリクエストオブジェクトから、Jettyのリクエストメタデータを組み立てる。
+     *
+     * @param req HTTPリクエスト
+     * @param query リクエストURIに付加するクエリ文字列
+     * @param body エンコード済みのリクエストボディ
+     * @return リクエストメタデータ
+     */
+    private MetaData.Request toMetaData(HttpRequest req, String query, RequestMessageEncoder.Body body) {
+        HttpFields.Mutable fields = HttpFields.build();
+        for (Map.Entry<String, String> header : req.getHeaderMap().entrySet()) {
+            fields.add(header.getKey(), header.getValue());
+        }
+        String host = req.getHost() == null || req.getHost().isEmpty()
+                ? HttpServerJetty12.DEFAULT_HOST : req.getHost();
+        if (!fields.contains(HttpHeader.HOST)) {
+            fields.put(HttpHeader.HOST, host);
+        }
+        String cookie = RequestParameters.toCookieHeader(req.getCookie());
+        if (!cookie.isEmpty()) {
+            fields.put(HttpHeader.COOKIE, cookie);
+        }
+        if (body.size() > 0) {
+            // マルチパートの境界文字列は、エンコード時に生成したものを使用する。
+            if (body.isMultipart() || !fields.contains(HttpHeader.CONTENT_TYPE)) {
+                fields.put(HttpHeader.CONTENT_TYPE, body.getContentType());
+            }
+            fields.put(HttpHeader.CONTENT_LENGTH, String.valueOf(body.size()));
+        }
+
+        String uri = RequestParameters.appendQuery(req.getRequestUri(), query);
+        HttpVersion version = req.getHttpVersion() == null ? null : HttpVersion.fromString(req.getHttpVersion());
+        return new MetaData.Request(req.getMethod(), HttpURI.build("http://" + host + uri),
+                version == null ? HttpVersion.HTTP_1_1 : version, fields);
+    }
+
+    /**
+     * リクエストボディを提供し、レスポンスを{@link ResponseMessageBuilder}に受け取るストリーム。
+     */
+    private static final class DirectStream implements HttpStream {
+
+        /** ストリームの識別子 */
+        private final String id = "direct-" + STREAM_IDS.incrementAndGet();
+
+        /** このストリームを使用するチャネル */
+        private final HttpChannelState channel;
+
+        /** コンテンツの到着を通知するスレッドプール */
+        private final Executor executor;
+
+        /** レスポンスの組み立て先 */
+        private final ResponseMessageBuilder builder;
+
+        /** レスポンスの完了時に、組み立てたレスポンスで完了する{@link CompletableFuture} */
+        private final CompletableFuture<HttpResponse> completion = new CompletableFuture<>();
+
+        /** 未読のリクエストボディ */
+        private Content.Chunk content;
+
+        /** レスポンスがコミットされたか否か */
+        private volatile boolean committed;
+
+        /** アイドルタイムアウト（ミリ秒） */
+        private long idleTimeout;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param channel このストリームを使用するチャネル
+         * @param executor コンテンツの到着を通知するスレッドプール
+         * @param body リクエストボディ（ボディがない場合は{@code null}）
+         * @param builder レスポンスの組み立て先
+         */
+        DirectStream(HttpChannelState channel, Executor executor, ByteBuffer body, ResponseMessageBuilder builder) {
+            this.channel = channel;
+            this.executor = executor;
+            this.builder = builder;
+            this.content = BufferUtil.hasContent(body) ? Content.Chunk.from(body, true) : Content.Chunk.EOF;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public synchronized Content.Chunk read() {
+            // リクエストボディは全て読み込み済みのため、1回目で全て返し、以降は終端を返す。
+            Content.Chunk chunk = content;
+            content = Content.Chunk.EOF;
+            return chunk;
+        }
+
+        @Override
+        public void demand() {
+            // リクエストボディは常に読み出せるため、すぐにコンテンツの到着を通知する。
+            executor.execute(() -> {
+                Runnable task = channel.onContentAvailable();
+                if (task != null) {
+                    task.run();
+                }
+            });
+        }
+
+        @Override
+        public void prepareResponse(HttpFields.Mutable headers) {
+            // HTTPメッセージにエンコードしないため、レスポンスヘッダに追加するものはない。
+        }
+
+        @Override
+        public void send(MetaData.Request request, MetaData.Response response, boolean last,
+                         ByteBuffer content, Callback callback) {
+            try {
+                if (response != null) {
+                    committed = true;
+                    HttpVersion version = response.getHttpVersion() == null
+                            ? HttpVersion.HTTP_1_1 : response.getHttpVersion();
+                    String reason = response.getReason() == null
+                            ? HttpStatus.getMessage(response.getStatus()) : response.getReason();
+                    builder.status(version.asString(), response.getStatus(), reason);
+                    for (HttpField field : response.getHttpFields()) {
+                        builder.header(field);
+                    }
+                }
+                if (BufferUtil.hasContent(content)) {
+                    builder.body(content);
+                }
+                callback.succeeded();
+            } catch (IOException | RuntimeException e) {
+                callback.failed(e);
+            }
+        }
+
+        @Override
+        public long getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        @Override
+        public void setIdleTimeout(long idleTimeoutMs) {
+            this.idleTimeout = idleTimeoutMs;
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return committed;
+        }
+
+        @Override
+        public Throwable consumeAvailable() {
+            // 未読のリクエストボディは破棄するだけでよい。
+            synchronized (this) {
+                content = Content.Chunk.EOF;
+            }
+            return null;
+        }
+
+        @Override
+        public void succeeded() {
+            HttpResponse res;
+            try {
+                res = builder.build();
+            } catch (RuntimeException e) {
+                completion.completeExceptionally(e);
+                return;
+            }
+            if (!completion.complete(res)) {
+                // タイムアウト等で既に完了している場合は、一時ファイルを読み出すストリームを閉じて削除する。
+                try {
+                    if (res.getBodyStream() != null) {
+                        res.getBodyStream().close();
+                    }
+                } catch (IOException ignored) {
+                    // 一時ファイルの削除に失敗しても、レスポンスの処理には影響しない。
+                }
+            }
+        }
+
+        @Override
+        public void failed(Throwable x) {
+            builder.discard();
+            completion.completeExceptionally(x);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * HTTPダンプとともに出力する静的リソース（CSS、JavaScript、画像等）を、内容のハッシュ値をキーとして1回だけ保存するストア。
+ * <p/>
+ * リソースの実体はストアのディレクトリに{@code <ハッシュ値の先頭2文字>/<ハッシュ値>.<拡張子>}として1回だけ書き出し、
+ * ダンプディレクトリにはその実体へのハードリンクを配置する。
+ * ダンプしたHTMLからの相対パスでの参照はそのまま有効となるため、HTMLを書き換える必要はない。
+ * 同じリソースを多数のダンプディレクトリに配置しても、ディスク上の実体は1つとなる。
+ * <p/>
+ * 配置先に既にファイルが存在する場合は、そのファイルに書き込まずに、別名で作成したリンクへの名前の変更で置き換える。
+ * このため、配置先がリンクであっても、ストアの実体が書き換えられることはない。
+ * ただし、配置したリンクに他の処理が直接書き込んだ場合は、実体が書き換えられてしまう。
+ * このような実体はハッシュ値と内容が一致しなくなるため、プロセス内で最初に参照する際に検出し、新しい実体に置き換える。
+ * <p/>
+ * ハードリンクは同じファイルシステム内でのみ作成できる。
+ * ストアとダンプディレクトリが異なるファイルシステムにある場合や、ハードリンクをサポートしないファイルシステムの場合は、
+ * リンクの代わりにコピーを配置する。
+ * <p/>
+ * 複数のスレッドから同時に使用できる。
+ */
+@Published(tag = "architect")
+public class DumpResourceStore {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(DumpResourceStore.class);
+
+    /** デフォルトで対象とするリソースの拡張子 */
+    public static final List<String> DEFAULT_EXTENSIONS = List.of(
+            "css", "js", "png", "gif", "jpg", "jpeg", "bmp", "ico", "svg", "woff", "woff2", "ttf", "eot");
+
+    /** ハッシュ値の算出時の読み込みバッファのサイズ */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** プロセス内で内容を検証済みの実体（全てのストアで共有する） */
+    private static final Set<Path> VERIFIED = ConcurrentHashMap.newKeySet();
+
+    /** リソースの実体を保存するディレクトリ */
+    private final Path storeDirectory;
+
+    /** 対象とするリソースの拡張子（小文字） */
+    private final Set<String> extensions;
+
+    /**
+     * コンストラクタ。
+     * <p/>
+     * {@link #DEFAULT_EXTENSIONS}の拡張子を持つファイルを対象とする。
+     *
+     * @param storeDirectory リソースの実体を保存するディレクトリ
+     */
+    public DumpResourceStore(Path storeDirectory) {
+        this(storeDirectory, DEFAULT_EXTENSIONS);
+    }
+
+    /**
+     * コンストラクタ。
+     *
+     * @param storeDirectory リソースの実体を保存するディレクトリ
+     * @param extensions 対象とするリソースの拡張子（ドットを含まない）
+     */
+    public DumpResourceStore(Path storeDirectory, Collection<String> extensions) {
+        this.storeDirectory = storeDirectory.toAbsolutePath().normalize();
+        this.extensions = extensions.stream()
+                .map(extension -> extension.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /**
+     * ディレクトリ配下のリソースを、別のディレクトリの同じ相対パスに配置する。
+     * <p/>
+     * 対象の拡張子を持たないファイルは配置しない。
+     *
+     * @param sourceDirectory 配置するリソースのディレクトリ
+     * @param targetDirectory 配置先のディレクトリ
+     * @return 配置したリソースの数
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    public int placeAll(Path sourceDirectory, Path targetDirectory) throws IOException {
+        int placed = 0;
+        for (Path source : findResources(sourceDirectory)) {
+            place(source, targetDirectory.resolve(sourceDirectory.relativize(source).toString()));
+            placed++;
+        }
+        return placed;
+    }
+
+    /**
+     * ディレクトリ配下に既に出力されているリソースを、ストアの実体へのリンクに置き換える。
+     * <p/>
+     * ストアのディレクトリ配下と、既にストアの実体へのリンクとなっているファイルは対象外とする。
+     *
+     * @param directory 対象のディレクトリ
+     * @return リンクに置き換えたリソースの数
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    public int deduplicate(Path directory) throws IOException {
+        int replaced = 0;
+        for (Path resource : findResources(directory)) {
+            if (place(resource, resource)) {
+                replaced++;
+            }
+        }
+        return replaced;
+    }
+
+    /**
+     * リソースをストアに保存し、その実体を配置先に配置する。
+     * <p/>
+     * 配置先に既に同じ実体が配置されている場合は何もしない。
+     * 配置先に別のファイルが存在する場合は置き換える。
+     *
+     * @param source 配置するリソース
+     * @param target 配置先
+     * @return 配置先を更新した場合{@code true}
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    public boolean place(Path source, Path target) throws IOException {
+        Path stored = store(source);
+        if (Files.exists(target) && Files.isSameFile(stored, target)) {
+            return false;
+        }
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".link.tmp");
+        Files.deleteIfExists(temp);
+        try {
+            Files.createLink(temp, stored);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // 同じファイルシステムにない場合などは、リンクの代わりにコピーを配置する。
+            if (source.equals(target)) {
+                return false;
+            }
+            Files.copy(stored, temp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    /**
+     * リソースを、内容のハッシュ値をキーとしてストアに保存する。
+     * <p/>
+     * 同じ内容のリソースが既に保存されている場合は書き出さない。
+     * ただし、保存済みの実体をプロセス内で最初に参照する際に内容を検証し、ハッシュ値と一致しない場合は新しい実体に置き換える。
+     *
+     * @param source 保存するリソース
+     * @return ストアに保存されたリソースの実体のパス
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    public Path store(Path source) throws IOException {
+        String hash = hash(source);
+        String fileName = source.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot).toLowerCase(Locale.ROOT);
+        Path stored = storeDirectory.resolve(hash.substring(0, 2)).resolve(hash + extension);
+        if (Files.exists(stored)) {
+            if (!VERIFIED.add(stored) || hash.equals(hash(stored))) {
+                return stored;
+            }
+            LOGGER.logWarn("stored dump resource was modified through a link. replacing it. stored = [" + stored + "]");
+            write(source, stored, hash, StandardCopyOption.REPLACE_EXISTING);
+            return stored;
+        }
+        Files.createDirectories(stored.getParent());
+        try {
+            write(source, stored, hash, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileSystemException e) {
+            // 別のスレッドが同じ内容を同時に保存した場合は、先に保存されたものを使用する。
+            if (!Files.exists(stored)) {
+                throw e;
+            }
+        }
+        VERIFIED.add(stored);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.logDebug("stored dump resource. source = [" + source + "] stored = [" + stored + "]");
+        }
+        return stored;
+    }
+
+    /**
+     * リソースを一時ファイルに書き出した後、名前の変更でストアの実体とする。
+     * <p/>
+     * 既存の実体に書き込むことはないため、既存の実体へのリンクには影響しない。
+     *
+     * @param source 保存するリソース
+     * @param stored ストアの実体のパス
+     * @param hash リソースのハッシュ値
+     * @param option 名前の変更時のオプション
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private static void write(Path source, Path stored, String hash, StandardCopyOption option) throws IOException {
+        Path temp = Files.createTempFile(stored.getParent(), hash, ".tmp");
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, stored, option);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * ディレクトリ配下から、対象の拡張子を持つリソースを検索する。
+     *
+     * @param directory 検索するディレクトリ
+     * @return リソースのパス（ディレクトリが存在しない場合は空のリスト）
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    List<Path> findResources(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                        .filter(path -> !path.toAbsolutePath().normalize().startsWith(storeDirectory))
+                        .filter(this::isResource)
+                        .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 対象の拡張子を持つファイルか否かを判定する。
+     *
+     * @param path ファイルのパス
+     * @return 対象の拡張子を持つ場合{@code true}
+     */
+    private boolean isResource(Path path) {
+        String fileName = path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && extensions.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * ファイルの内容のハッシュ値を算出する。
+     *
+     * @param file ファイル
+     * @return 16進数表記のハッシュ値
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private static String hash(Path file) throws IOException {
+        Fingerprint fingerprint = new Fingerprint();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                fingerprint.add(buffer, read);
+            }
+        }
+        return fingerprint.toHex();
+    }
+
+    @Override
+    public String toString() {
+        return "DumpResourceStore" + Arrays.asList(storeDirectory, extensions);
+    }
+}
@@ -0,0 +1,137 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 複数の値から、それらを一意に識別するハッシュ値（フィンガープリント）を算出するクラス。
+ */
+final class Fingerprint {
+
+    /** 値の区切りとして使用するバイト */
+    private static final byte SEPARATOR = 0;
+
+    /** ダイジェスト */
+    private final MessageDigest digest;
+
+    /**
+     * コンストラクタ。
+     */
+    Fingerprint() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 値を追加する。
+     *
+     * @param value 追加する値（{@code null}可）
+     * @return このオブジェクト自体
+     */
+    Fingerprint add(Object value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update(SEPARATOR);
+        return this;
+    }
+
+    /**
+     * バイト列を追加する。
+     *
+     * @param bytes 追加するバイト列
+     * @param length 追加する長さ
+     * @return このオブジェクト自体
+     */
+    Fingerprint add(byte[] bytes, int length) {
+        digest.update(bytes, 0, length);
+        return this;
+    }
+
+    /**
+     * クラスパスの内容を追加する。
+     * <p/>
+     * クラスパスの各エントリのパスを追加する。
+     * JARファイルの場合は、サイズと最終更新日時もあわせて追加する。
+     * （ディレクトリに含まれるファイルの変更は反映されない）
+     *
+     * @param classLoader クラスローダ
+     * @return このオブジェクト自体
+     */
+    Fingerprint addClassPath(ClassLoader classLoader) {
+        for (String entry : getClassPathEntries(classLoader)) {
+            File file = new File(entry);
+            add(entry);
+            if (file.isFile()) {
+                add(file.length()).add(file.lastModified());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * クラスパスのエントリ（JARファイルおよびディレクトリ）を取得する。
+     * <p/>
+     * 起動方法によっては{@code java.class.path}システムプロパティに実際のクラスパスが
+     * 現れない（マニフェストのみのJARで起動された場合など）ため、
+     * クラスローダから参照可能なリソースを基にエントリを特定する。
+     *
+     * @param classLoader クラスローダ
+     * @return クラスパスのエントリ
+     */
+    private static Set<String> getClassPathEntries(ClassLoader classLoader) {
+        Set<String> entries = new TreeSet<>();
+        try {
+            addEntries(entries, classLoader.getResources("META-INF/MANIFEST.MF"), "META-INF/MANIFEST.MF");
+            addEntries(entries, classLoader.getResources(""), "");
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to read the class path.", e);
+        }
+        return entries;
+    }
+
+    /**
+     * リソースのURLからクラスパスのエントリを取り出して追加する。
+     *
+     * @param entries 追加先
+     * @param resources リソースのURL
+     * @param resourceName リソース名
+     */
+    private static void addEntries(Set<String> entries, Enumeration<URL> resources, String resourceName) {
+        while (resources.hasMoreElements()) {
+            String url = resources.nextElement().toString();
+            String entry = url.substring(0, url.length() - resourceName.length());
+            if (entry.startsWith("jar:") && entry.endsWith("!/")) {
+                entry = entry.substring("jar:".length(), entry.length() - "!/".length());
+            }
+            if (entry.startsWith("file:")) {
+                entry = new File(URI.create(entry)).getPath();
+            }
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * これまでに追加された値からフィンガープリントを算出する。
+     *
+     * @return 16進数表記のフィンガープリント
+     */
+    String toHex() {
+        byte[] hash = digest.digest();
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+               .append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,256 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+
+/**
+ * HTTPダンプを、1つのZIPファイルに順次書き込むアーカイブ。
+ * <p/>
+ * ダンプファイルを個別のファイルとして出力する代わりに、ZIPファイルのエントリとして1つのストリームに追記する。
+ * 書き込んだZIPファイルのサイズがロールサイズを超えると、そのZIPファイルを閉じ、次のエントリから新しいZIPファイルに書き込む。
+ * ZIPファイルの名前は{@code http-dump-<作成日時>-<プロセスID>-<連番>.zip}とする。
+ * 連番はプロセス内で共有し、既存のファイルは上書きしない（同名のファイルが存在する場合は次の連番を使用する）。
+ * <p/>
+ * 書き込み中のZIPファイルは、{@link #close()}で閉じるまで読み込めない。
+ * JVMの終了時には、{@link HttpDumpWriter}の未出力の処理を全て実行した後に、書き込み中の全てのZIPファイルを閉じる。
+ * <p/>
+ * このクラスはスレッドセーフである。
+ */
+class HttpDumpArchive {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(HttpDumpArchive.class);
+
+    /** ZIPファイル名に含める作成日時のフォーマット */
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    /** ZIPファイル名に含める連番（プロセス内で共有する） */
+    private static final AtomicLong VOLUME_SEQUENCE = new AtomicLong();
+
+    /** 書き込み中のZIPファイルがあるアーカイブ */
+    private static final Set<HttpDumpArchive> OPEN_ARCHIVES = ConcurrentHashMap.newKeySet();
+
+    static {
+        HttpDumpWriter.addShutdownTask(HttpDumpArchive::closeAll);
+    }
+
+    /** ZIPファイルを出力するディレクトリ */
+    private final Path directory;
+
+    /** ZIPファイルを切り替えるサイズ（バイト） */
+    private final long rollSize;
+
+    /** 書き込み中のZIPファイルへの出力ストリーム（書き込み中のZIPファイルがない場合は{@code null}） */
+    private ZipOutputStream out;
+
+    /** 書き込み中のZIPファイルに書き込んだバイト数 */
+    private CountingOutputStream counter;
+
+    /** 書き込み中のZIPファイルのエントリ名 */
+    private final Set<String> entryNames = new HashSet<>();
+
+    /** 書き込み中のZIPファイルにリソースを追加したディレクトリ */
+    private final Set<Path> resourceDirectories = new HashSet<>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param directory ZIPファイルを出力するディレクトリ
+     * @param rollSize ZIPファイルを切り替えるサイズ（バイト）
+     */
+    HttpDumpArchive(Path directory, long rollSize) {
+        this.directory = directory;
+        this.rollSize = rollSize;
+    }
+
+    /**
+     * ファイルを、エントリとして書き込み中のZIPファイルに追加する。
+     * <p/>
+     * 書き込み中のZIPファイルに同じ名前のエントリが存在する場合は、名前の末尾（拡張子の前）に連番を付与する。
+     * 追加後にZIPファイルのサイズがロールサイズを超えた場合は、ZIPファイルを閉じる。
+     *
+     * @param entryName エントリ名（区切り文字は"/"）
+     * @param file 追加するファイル
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    synchronized void add(String entryName, Path file) throws IOException {
+        write(uniqueName(entryName), file);
+        if (counter.count >= rollSize) {
+            close();
+        }
+    }
+
+    /**
+     * ディレクトリの静的リソースを、書き込み中のZIPファイルにまだ追加していない場合に追加する。
+     * <p/>
+     * ZIPファイルごとに、ダンプを参照するのに必要なリソースを含めるために使用する。
+     * リソースの追加ではZIPファイルを切り替えないため、続けて追加したダンプは同じZIPファイルに含まれる。
+     *
+     * @param resourceDirectory リソースのディレクトリ
+     * @param prefix エントリ名の接頭辞（ディレクトリの場合は"/"で終わる。ルートの場合は空文字列）
+     * @param resources 追加するリソース
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    synchronized void addResourcesIfAbsent(Path resourceDirectory, String prefix, List<Path> resources)
+            throws IOException {
+        if (resourceDirectories.contains(resourceDirectory)) {
+            return;
+        }
+        for (Path resource : resources) {
+            String relative = resourceDirectory.relativize(resource).toString().replace('\\', '/');
+            if (entryNames.add(prefix + relative)) {
+                write(prefix + relative, resource);
+            }
+        }
+        if (out == null) {
+            open();
+        }
+        resourceDirectories.add(resourceDirectory);
+    }
+
+    /**
+     * 書き込み中のZIPファイルを閉じる。
+     * <p/>
+     * 書き込み中のZIPファイルがない場合は何もしない。
+     * 次に{@link #add(String, Path)}を呼び出した際に、新しいZIPファイルを作成する。
+     */
+    synchronized void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            LOGGER.logWarn("failed to close http dump archive. directory = [" + directory + "]", e);
+        } finally {
+            out = null;
+            counter = null;
+            entryNames.clear();
+            resourceDirectories.clear();
+            OPEN_ARCHIVES.remove(this);
+        }
+    }
+
+    /**
+     * 書き込み中のZIPファイルがある全てのアーカイブについて、ZIPファイルを閉じる。
+     */
+    static void closeAll() {
+        for (HttpDumpArchive archive : new ArrayList<>(OPEN_ARCHIVES)) {
+            archive.close();
+        }
+    }
+
+    /**
+     * ファイルを、エントリとして書き込み中のZIPファイルに書き込む。
+     * <p/>
+     * 書き込み中のZIPファイルがない場合は、新しいZIPファイルを作成する。
+     *
+     * @param entryName エントリ名
+     * @param file 書き込むファイル
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private void write(String entryName, Path file) throws IOException {
+        if (out == null) {
+            open();
+        }
+        out.putNextEntry(new ZipEntry(entryName));
+        Files.copy(file, out);
+        out.closeEntry();
+    }
+
+    /**
+     * 新しいZIPファイルを作成する。
+     *
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
+        long pid = ProcessHandle.current().pid();
+        Path file;
+        OutputStream stream;
+        while (true) {
+            file = directory.resolve(String.format("http-dump-%s-%d-%04d.zip",
+                    timestamp, pid, VOLUME_SEQUENCE.incrementAndGet()));
+            try {
+                stream = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // 他のアーカイブやプロセスが作成済みのため、次の連番を使用する。
+            }
+        }
+        counter = new CountingOutputStream(stream);
+        out = new ZipOutputStream(new BufferedOutputStream(counter));
+        OPEN_ARCHIVES.add(this);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.logDebug("http dump archive opened. file = [" + file + "]");
+        }
+    }
+
+    /**
+     * 書き込み中のZIPファイル内で重複しないエントリ名を決定する。
+     *
+     * @param entryName エントリ名
+     * @return 重複しないエントリ名
+     */
+    private String uniqueName(String entryName) {
+        String name = entryName;
+        int dot = entryName.lastIndexOf('.');
+        if (dot <= entryName.lastIndexOf('/')) {
+            dot = entryName.length();
+        }
+        for (int i = 2; !entryNames.add(name); i++) {
+            name = entryName.substring(0, dot) + '_' + i + entryName.substring(dot);
+        }
+        return name;
+    }
+
+    /**
+     * 書き込んだバイト数を数える出力ストリーム。
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        /** 書き込んだバイト数 */
+        private long count;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param out 出力先のストリーム
+         */
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package nablarch.fw.web.httpserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+
+/**
+ * HTTPダンプの出力を、呼び出し元とは別のスレッドで行うライタ。
+ * <p/>
+ * 出力処理は上限付きのキューに格納され、1つのバックグラウンドスレッドが格納された順に実行する。
+ * キューが満杯の場合の動作（バックプレッシャ）は{@link BackPressure}で指定する。
+ * バックグラウンドスレッドは、キューが空の状態が続くと終了し、次の出力処理の格納時に再び生成される。
+ * <p/>
+ * JVMの終了時には、未出力の処理を全て実行してから終了する。
+ */
+class HttpDumpWriter {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(HttpDumpWriter.class);
+
+    /** キューが空の場合に、バックグラウンドスレッドを終了するまでの時間（秒） */
+    private static final long IDLE_TIMEOUT_SECONDS = 1L;
+
+    /** 終了時に未出力の処理の完了を待機する間隔（秒） */
+    private static final long DRAIN_LOG_INTERVAL_SECONDS = 10L;
+
+    /** JVMの終了時に未出力の処理を実行するライタ */
+    private static final Set<HttpDumpWriter> WRITERS = Collections.newSetFromMap(new WeakHashMap<>());
+
+    /** JVMの終了時に、未出力の処理を全て実行した後に実行する処理 */
+    private static final List<Runnable> SHUTDOWN_TASKS = new CopyOnWriteArrayList<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            drainAll();
+            SHUTDOWN_TASKS.forEach(Runnable::run);
+        }, "nablarch-http-dump-drain"));
+    }
+
+    /**
+     * キューが満杯の場合の動作。
+     */
+    enum BackPressure {
+
+        /** キューに空きができるまで、呼び出し元を待機させる（デフォルト）。 */
+        BLOCK("block"),
+
+        /** 呼び出し元のスレッドで出力する。 */
+        CALLER_RUNS("caller-runs"),
+
+        /** 出力せずに破棄する。 */
+        DISCARD("discard");
+
+        /** 設定値 */
+        private final String name;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param name 設定値
+         */
+        BackPressure(String name) {
+            this.name = name;
+        }
+
+        /**
+         * 設定値に対応する動作を取得する。
+         *
+         * @param name 設定値（"block"、"caller-runs"、"discard"のいずれか）
+         * @return キューが満杯の場合の動作
+         * @throws IllegalArgumentException 対応する動作が存在しない場合
+         */
+        static BackPressure of(String name) {
+            List<String> names = new ArrayList<>();
+            for (BackPressure backPressure : values()) {
+                if (backPressure.name.equals(name)) {
+                    return backPressure;
+                }
+                names.add(backPressure.name);
+            }
+            throw new IllegalArgumentException(
+                    "unknown http dump back pressure. backPressure = [" + name + "] expected = " + names);
+        }
+    }
+
+    /** 出力処理を実行するエグゼキュータ */
+    private final ThreadPoolExecutor executor;
+
+    /** 未完了の出力処理の数 */
+    private long pending;
+
+    /** {@link #pending}の更新と待機に使用するモニタ */
+    private final Object monitor = new Object();
+
+    /** キューに格納されていた出力処理の最大数 */
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+
+    /** 出力した件数 */
+    private final AtomicLong writeCount = new AtomicLong();
+
+    /** 出力に要した時間の合計（ナノ秒） */
+    private final AtomicLong writeNanos = new AtomicLong();
+
+    /** 破棄した件数 */
+    private final AtomicLong discardCount = new AtomicLong();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param capacity キューの容量
+     * @param backPressure キューが満杯の場合の動作
+     */
+    HttpDumpWriter(int capacity, BackPressure backPressure) {
+        executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacity), task -> {
+                    Thread thread = new Thread(task, "nablarch-http-dump-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }, newRejectedHandler(backPressure));
+        executor.allowCoreThreadTimeOut(true);
+        synchronized (WRITERS) {
+            WRITERS.add(this);
+        }
+    }
+
+    /**
+     * キューが満杯の場合の動作を行うハンドラを生成する。
+     *
+     * @param backPressure キューが満杯の場合の動作
+     * @return ハンドラ
+     */
+    private RejectedExecutionHandler newRejectedHandler(BackPressure backPressure) {
+        return (task, executor) -> {
+            // JVMの終了処理中に格納された出力処理は、呼び出し元のスレッドで出力する。
+            if (backPressure == BackPressure.CALLER_RUNS || executor.isShutdown()) {
+                task.run();
+            } else if (backPressure == BackPressure.DISCARD) {
+                discardCount.incrementAndGet();
+                ((DumpTask) task).complete();
+                LOGGER.logWarn("http dump was discarded because the dump queue is full. discarded = ["
+                        + discardCount.get() + "]");
+            } else {
+                try {
+                    executor.getQueue().put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    ((DumpTask) task).complete();
+                    throw new RejectedExecutionException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 出力処理をキューに格納する。
+     *
+     * @param dump 出力処理
+     */
+    void submit(Runnable dump) {
+        synchronized (monitor) {
+            pending++;
+        }
+        executor.execute(new DumpTask(dump));
+        maxQueueDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+    }
+
+    /**
+     * キューに格納された出力処理が、全て完了するまで待機する。
+     *
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    void flush() throws InterruptedException {
+        synchronized (monitor) {
+            while (pending > 0) {
+                monitor.wait();
+            }
+        }
+    }
+
+    /**
+     * キューに格納されている出力処理の数を取得する。
+     *
+     * @return キューに格納されている出力処理の数（実行中の処理を含まない）
+     */
+    int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * キューに格納されていた出力処理の最大数を取得する。
+     *
+     * @return キューに格納されていた出力処理の最大数
+     */
+    long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * 出力した件数を取得する。
+     *
+     * @return 出力した件数
+     */
+    long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * 出力に要した時間の合計を取得する。
+     *
+     * @return 出力に要した時間の合計（ナノ秒）
+     */
+    long getWriteNanos() {
+        return writeNanos.get();
+    }
+
+    /**
+     * 破棄した件数を取得する。
+     *
+     * @return 破棄した件数
+     */
+    long getDiscardCount() {
+        return discardCount.get();
+    }
+
+    /**
+     * JVMの終了時に、全てのライタの未出力の処理を実行した後に実行する処理を登録する。
+     * <p/>
+     * 出力先のストリームを閉じる処理など、出力処理の完了後に行う必要がある処理を登録する。
+     *
+     * @param task 実行する処理
+     */
+    static void addShutdownTask(Runnable task) {
+        SHUTDOWN_TASKS.add(task);
+    }
+
+    /**
+     * 全てのライタの未出力の処理を実行し、ライタを終了する。
+     */
+    private static void drainAll() {
+        List<HttpDumpWriter> writers;
+        synchronized (WRITERS) {
+            writers = new ArrayList<>(WRITERS);
+        }
+        for (HttpDumpWriter writer : writers) {
+            writer.drain();
+        }
+    }
+
+    /**
+     * 未出力の処理を全て実行し、ライタを終了する。
+     * <p/>
+     * 時間がかかる場合も処理を打ち切らず、待機中であることを定期的にログに出力する。
+     */
+    private void drain() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(DRAIN_LOG_INTERVAL_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.logWarn("waiting for http dumps to be written. queued = [" + getQueueDepth() + "]");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writeCount.get() > 0 || discardCount.get() > 0) {
+            LOGGER.logInfo("http dump writer stopped. written = [" + writeCount.get()
+                    + "] totalWriteMillis = [" + TimeUnit.NANOSECONDS.toMillis(writeNanos.get())
+                    + "] maxQueueDepth = [" + maxQueueDepth.get() + "] discarded = [" + discardCount.get() + "]");
+        }
+    }
+
+    /**
+     * 出力処理の実行時間を記録し、完了を通知するタスク。
+     */
+    private final class DumpTask implements Runnable {
+
+        /** 出力処理 */
+        private final Runnable dump;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param dump 出力処理
+         */
+        DumpTask(Runnable dump) {
+            this.dump = dump;
+        }
+
+        @Override
+        public void run() {
+            long begin = System.nanoTime();
+            try {
+                dump.run();
+                writeCount.incrementAndGet();
+            } catch (RuntimeException e) {
+                LOGGER.logWarn("failed to write http dump.", e);
+            } finally {
+                writeNanos.addAndGet(System.nanoTime() - begin);
+                complete();
+            }
+        }
+
+        /**
+         * 出力処理の完了を通知する。
+         */
+        void complete() {
+            synchronized (monitor) {
+                pending--;
+                if (pending == 0) {
+                    monitor.notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package nablarch.fw.web.httpserver;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import nablarch.fw.web.HttpServer;
 import nablarch.fw.web.HttpServerFactory;
 
@@ -11,8 +14,450 @@ import nablarch.fw.web.HttpServerFactory;
  */
 public class HttpServerFactoryJetty12 implements HttpServerFactory {
 
+    /** 起動したサーバを{@link WarmServerPool}で再利用するか否か */
+    private boolean serverPoolEnabled = false;
+
+    /** quickstartディスクリプタの保存先ディレクトリ */
+    private String quickStartDirectory;
+
+    /** JSPコンパイル結果のキャッシュディレクトリ */
+    private String jspCacheDirectory;
+
+    /** サーバプールに該当するサーバが存在しない場合、起動中のサーバへの再デプロイで代替するか否か */
+    private boolean redeployEnabled = false;
+
+    /** {@link HttpServerJetty12#startLocal()}でバックグラウンド起動を行うか否か */
+    private boolean backgroundStartEnabled = false;
+
+    /** WARベースパス上のリソースを索引を使用して解決するか否か */
+    private boolean warResourceIndexEnabled = false;
+
+    /** WARベースパス上のファイルの変更を監視する間隔（秒） */
+    private int warResourceScanInterval = 0;
+
+    /** リクエストの処理完了を待機する時間の上限（ミリ秒） */
+    private long completionTimeout = 10000L;
+
+    /** リクエストメッセージのエンコードに使用する文字セット（{@code null}の場合は実行環境のデフォルト） */
+    private String requestCharset;
+
+    /** レスポンスボディを一時ファイルに書き出す閾値（バイト） */
+    private long responseSpillThreshold = 10L * 1024 * 1024;
+
+    /** HTTPメッセージへのシリアライズを行わずにリクエストをディスパッチするか否か */
+    private boolean directDispatchEnabled = false;
+
+    /** HTTPダンプを別スレッドで出力するか否か */
+    private boolean httpDumpAsyncEnabled = false;
+
+    /** HTTPダンプの出力待ちのキューの容量 */
+    private int httpDumpQueueCapacity = 256;
+
+    /** HTTPダンプの出力待ちのキューが満杯の場合の動作 */
+    private String httpDumpBackPressure = "block";
+
+    /** HTTPダンプとともに出力された静的リソースを重複排除するか否か */
+    private boolean httpDumpResourceDedupEnabled = false;
+
+    /** 静的リソースの実体を保存するディレクトリのパス */
+    private String httpDumpResourceStorePath;
+
+    /** HTTPダンプをZIPファイルに出力するか否か */
+    private boolean httpDumpArchiveEnabled = false;
+
+    /** HTTPダンプを出力するZIPファイルのディレクトリのパス */
+    private String httpDumpArchivePath;
+
+    /** HTTPダンプを出力するZIPファイルを切り替えるサイズ（バイト） */
+    private long httpDumpArchiveRollSize = 64L * 1024 * 1024;
+
+    /** 静的リソースに対するレスポンスをキャッシュするサイズの上限（バイト） */
+    private long staticResponseCacheSize = 0L;
+
+    /** スレッドプールの最大スレッド数 */
+    private int maxThreads = 200;
+
+    /** スレッドプールの最小スレッド数 */
+    private int minThreads = 8;
+
+    /** スレッドプールのアイドルタイムアウト（ミリ秒） */
+    private int threadIdleTimeout = 60000;
+
+    /** スレッドプールの予約スレッド数 */
+    private int reservedThreads = -1;
+
+    /** リクエストを仮想スレッドで処理するか否か */
+    private boolean virtualThreadsEnabled = false;
+
+    /** デプロイプロファイル */
+    private String deploymentProfile = DeploymentProfile.FULL.getProfileName();
+
+    /** 起動処理の所要時間を受け取るリスナ */
+    private List<StartupTimingListener> startupTimingListeners = new ArrayList<>();
+
+    /** 起動処理の所要時間をログに出力するか否か */
+    private boolean startupTimingLogEnabled = false;
+
+    /** リクエストの処理の所要時間を受け取るリスナ */
+    private List<RequestTimingListener> requestTimingListeners = new ArrayList<>();
+
+    /** 起動時にJSPをコンパイルするか否か */
+    private boolean jspPrecompileEnabled = false;
+
+    /** 起動時のJSPのコンパイルに使用するスレッド数 */
+    private int jspPrecompileParallelism = Runtime.getRuntime().availableProcessors();
+
     @Override
     public HttpServer create() {
-        return new HttpServerJetty12();
+        HttpServerJetty12 server = new HttpServerJetty12();
+        for (StartupTimingListener listener : startupTimingListeners) {
+            server.addStartupTimingListener(listener);
+        }
+        for (RequestTimingListener listener : requestTimingListeners) {
+            server.addRequestTimingListener(listener);
+        }
+        if (requestCharset != null) {
+            server.setRequestCharset(requestCharset);
+        }
+        return server
+                .setServerPoolEnabled(serverPoolEnabled)
+                .setQuickStartDirectory(quickStartDirectory)
+                .setJspCacheDirectory(jspCacheDirectory)
+                .setRedeployEnabled(redeployEnabled)
+                .setBackgroundStartEnabled(backgroundStartEnabled)
+                .setWarResourceIndexEnabled(warResourceIndexEnabled)
+                .setWarResourceScanInterval(warResourceScanInterval)
+                .setCompletionTimeout(completionTimeout)
+                .setResponseSpillThreshold(responseSpillThreshold)
+                .setDirectDispatchEnabled(directDispatchEnabled)
+                .setHttpDumpAsyncEnabled(httpDumpAsyncEnabled)
+                .setHttpDumpQueueCapacity(httpDumpQueueCapacity)
+                .setHttpDumpBackPressure(httpDumpBackPressure)
+                .setHttpDumpResourceDedupEnabled(httpDumpResourceDedupEnabled)
+                .setHttpDumpResourceStorePath(httpDumpResourceStorePath)
+                .setHttpDumpArchiveEnabled(httpDumpArchiveEnabled)
+                .setHttpDumpArchivePath(httpDumpArchivePath)
+                .setHttpDumpArchiveRollSize(httpDumpArchiveRollSize)
+                .setStaticResponseCacheSize(staticResponseCacheSize)
+                .setMaxThreads(maxThreads)
+                .setMinThreads(minThreads)
+                .setThreadIdleTimeout(threadIdleTimeout)
+                .setReservedThreads(reservedThreads)
+                .setVirtualThreadsEnabled(virtualThreadsEnabled)
+                .setDeploymentProfile(deploymentProfile)
+                .setStartupTimingLogEnabled(startupTimingLogEnabled)
+                .setJspPrecompileEnabled(jspPrecompileEnabled)
+                .setJspPrecompileParallelism(jspPrecompileParallelism);
+    }
+
+    /**
+     * 起動したサーバを{@link WarmServerPool}で再利用するか否かを設定する。
+     *
+     * @param serverPoolEnabled 再利用する場合{@code true}
+     * @see HttpServerJetty12#setServerPoolEnabled(boolean)
+     */
+    public void setServerPoolEnabled(boolean serverPoolEnabled) {
+        this.serverPoolEnabled = serverPoolEnabled;
+    }
+
+    /**
+     * quickstartディスクリプタの保存先ディレクトリを設定する。
+     *
+     * @param quickStartDirectory 保存先ディレクトリのパス
+     * @see HttpServerJetty12#setQuickStartDirectory(String)
+     */
+    public void setQuickStartDirectory(String quickStartDirectory) {
+        this.quickStartDirectory = quickStartDirectory;
+    }
+
+    /**
+     * JSPコンパイル結果のキャッシュディレクトリを設定する。
+     *
+     * @param jspCacheDirectory キャッシュディレクトリのパス
+     * @see HttpServerJetty12#setJspCacheDirectory(String)
+     */
+    public void setJspCacheDirectory(String jspCacheDirectory) {
+        this.jspCacheDirectory = jspCacheDirectory;
+    }
+
+    /**
+     * サーバプールに同じデプロイ内容のサーバが存在しない場合に、
+     * 起動中の別のサーバへの再デプロイで代替するか否かを設定する。
+     *
+     * @param redeployEnabled 再デプロイで代替する場合{@code true}
+     * @see HttpServerJetty12#setRedeployEnabled(boolean)
+     */
+    public void setRedeployEnabled(boolean redeployEnabled) {
+        this.redeployEnabled = redeployEnabled;
+    }
+
+    /**
+     * {@link HttpServerJetty12#startLocal()}で、起動処理をバックグラウンドで行うか否かを設定する。
+     *
+     * @param backgroundStartEnabled バックグラウンドで起動する場合{@code true}
+     * @see HttpServerJetty12#setBackgroundStartEnabled(boolean)
+     */
+    public void setBackgroundStartEnabled(boolean backgroundStartEnabled) {
+        this.backgroundStartEnabled = backgroundStartEnabled;
+    }
+
+    /**
+     * WARベースパス上のリソースを、索引を使用して解決するか否かを設定する。
+     *
+     * @param warResourceIndexEnabled 索引を使用する場合{@code true}
+     * @see HttpServerJetty12#setWarResourceIndexEnabled(boolean)
+     */
+    public void setWarResourceIndexEnabled(boolean warResourceIndexEnabled) {
+        this.warResourceIndexEnabled = warResourceIndexEnabled;
+    }
+
+    /**
+     * WARベースパス上のファイルの変更を監視する間隔を設定する。
+     *
+     * @param warResourceScanInterval 監視間隔（秒）
+     * @see HttpServerJetty12#setWarResourceScanInterval(int)
+     */
+    public void setWarResourceScanInterval(int warResourceScanInterval) {
+        this.warResourceScanInterval = warResourceScanInterval;
+    }
+
+    /**
+     * リクエストの処理完了を待機する時間の上限を設定する。
+     *
+     * @param completionTimeout 待機時間の上限（ミリ秒）
+     * @see HttpServerJetty12#setCompletionTimeout(long)
+     */
+    public void setCompletionTimeout(long completionTimeout) {
+        this.completionTimeout = completionTimeout;
+    }
+
+    /**
+     * リクエストメッセージのエンコードに使用する文字セットを設定する。
+     *
+     * @param requestCharset 文字セット名
+     * @see HttpServerJetty12#setRequestCharset(String)
+     */
+    public void setRequestCharset(String requestCharset) {
+        this.requestCharset = requestCharset;
+    }
+
+    /**
+     * レスポンスボディを一時ファイルに書き出す閾値を設定する。
+     *
+     * @param responseSpillThreshold 閾値（バイト）
+     * @see HttpServerJetty12#setResponseSpillThreshold(long)
+     */
+    public void setResponseSpillThreshold(long responseSpillThreshold) {
+        this.responseSpillThreshold = responseSpillThreshold;
+    }
+
+    /**
+     * HTTPメッセージへのシリアライズを行わずにリクエストをディスパッチするか否かを設定する。
+     *
+     * @param directDispatchEnabled シリアライズを行わない場合{@code true}
+     * @see HttpServerJetty12#setDirectDispatchEnabled(boolean)
+     */
+    public void setDirectDispatchEnabled(boolean directDispatchEnabled) {
+        this.directDispatchEnabled = directDispatchEnabled;
+    }
+
+    /**
+     * HTTPダンプを、リクエストを処理したスレッドとは別のスレッドで出力するか否かを設定する。
+     *
+     * @param httpDumpAsyncEnabled 別スレッドで出力する場合{@code true}
+     * @see HttpServerJetty12#setHttpDumpAsyncEnabled(boolean)
+     */
+    public void setHttpDumpAsyncEnabled(boolean httpDumpAsyncEnabled) {
+        this.httpDumpAsyncEnabled = httpDumpAsyncEnabled;
+    }
+
+    /**
+     * HTTPダンプの出力待ちのキューの容量を設定する。
+     *
+     * @param httpDumpQueueCapacity キューの容量
+     * @see HttpServerJetty12#setHttpDumpQueueCapacity(int)
+     */
+    public void setHttpDumpQueueCapacity(int httpDumpQueueCapacity) {
+        this.httpDumpQueueCapacity = httpDumpQueueCapacity;
+    }
+
+    /**
+     * HTTPダンプの出力待ちのキューが満杯の場合の動作を設定する。
+     *
+     * @param httpDumpBackPressure キューが満杯の場合の動作
+     * @see HttpServerJetty12#setHttpDumpBackPressure(String)
+     */
+    public void setHttpDumpBackPressure(String httpDumpBackPressure) {
+        this.httpDumpBackPressure = httpDumpBackPressure;
+    }
+
+    /**
+     * HTTPダンプとともに出力された静的リソースを重複排除するか否かを設定する。
+     *
+     * @param httpDumpResourceDedupEnabled 重複排除する場合{@code true}
+     * @see HttpServerJetty12#setHttpDumpResourceDedupEnabled(boolean)
+     */
+    public void setHttpDumpResourceDedupEnabled(boolean httpDumpResourceDedupEnabled) {
+        this.httpDumpResourceDedupEnabled = httpDumpResourceDedupEnabled;
+    }
+
+    /**
+     * 静的リソースの実体を保存するディレクトリのパスを設定する。
+     *
+     * @param httpDumpResourceStorePath ディレクトリのパス
+     * @see HttpServerJetty12#setHttpDumpResourceStorePath(String)
+     */
+    public void setHttpDumpResourceStorePath(String httpDumpResourceStorePath) {
+        this.httpDumpResourceStorePath = httpDumpResourceStorePath;
+    }
+
+    /**
+     * HTTPダンプを、個別のファイルの代わりにZIPファイルに出力するか否かを設定する。
+     *
+     * @param httpDumpArchiveEnabled ZIPファイルに出力する場合{@code true}
+     * @see HttpServerJetty12#setHttpDumpArchiveEnabled(boolean)
+     */
+    public void setHttpDumpArchiveEnabled(boolean httpDumpArchiveEnabled) {
+        this.httpDumpArchiveEnabled = httpDumpArchiveEnabled;
+    }
+
+    /**
+     * HTTPダンプを出力するZIPファイルのディレクトリのパスを設定する。
+     *
+     * @param httpDumpArchivePath ディレクトリのパス
+     * @see HttpServerJetty12#setHttpDumpArchivePath(String)
+     */
+    public void setHttpDumpArchivePath(String httpDumpArchivePath) {
+        this.httpDumpArchivePath = httpDumpArchivePath;
+    }
+
+    /**
+     * HTTPダンプを出力するZIPファイルを切り替えるサイズを設定する。
+     *
+     * @param httpDumpArchiveRollSize ZIPファイルを切り替えるサイズ（バイト）
+     * @see HttpServerJetty12#setHttpDumpArchiveRollSize(long)
+     */
+    public void setHttpDumpArchiveRollSize(long httpDumpArchiveRollSize) {
+        this.httpDumpArchiveRollSize = httpDumpArchiveRollSize;
+    }
+
+    /**
+     * 静的リソースに対するレスポンスを、メモリ上にキャッシュする際のサイズの上限を設定する。
+     *
+     * @param staticResponseCacheSize キャッシュするボディの合計サイズの上限（バイト）
+     * @see HttpServerJetty12#setStaticResponseCacheSize(long)
+     */
+    public void setStaticResponseCacheSize(long staticResponseCacheSize) {
+        this.staticResponseCacheSize = staticResponseCacheSize;
+    }
+
+    /**
+     * サーバのスレッドプールの最大スレッド数を設定する。
+     *
+     * @param maxThreads 最大スレッド数
+     * @see HttpServerJetty12#setMaxThreads(int)
+     */
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * サーバのスレッドプールの最小スレッド数を設定する。
+     *
+     * @param minThreads 最小スレッド数
+     * @see HttpServerJetty12#setMinThreads(int)
+     */
+    public void setMinThreads(int minThreads) {
+        this.minThreads = minThreads;
+    }
+
+    /**
+     * サーバのスレッドプールのアイドルタイムアウトを設定する。
+     *
+     * @param threadIdleTimeout アイドルタイムアウト（ミリ秒）
+     * @see HttpServerJetty12#setThreadIdleTimeout(int)
+     */
+    public void setThreadIdleTimeout(int threadIdleTimeout) {
+        this.threadIdleTimeout = threadIdleTimeout;
+    }
+
+    /**
+     * サーバのスレッドプールの予約スレッド数を設定する。
+     *
+     * @param reservedThreads 予約スレッド数
+     * @see HttpServerJetty12#setReservedThreads(int)
+     */
+    public void setReservedThreads(int reservedThreads) {
+        this.reservedThreads = reservedThreads;
+    }
+
+    /**
+     * リクエストを仮想スレッドで処理するか否かを設定する。
+     *
+     * @param virtualThreadsEnabled 仮想スレッドで処理する場合{@code true}
+     * @see HttpServerJetty12#setVirtualThreadsEnabled(boolean)
+     */
+    public void setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+        this.virtualThreadsEnabled = virtualThreadsEnabled;
+    }
+
+    /**
+     * デプロイプロファイルを設定する。
+     *
+     * @param deploymentProfile プロファイル名
+     * @see HttpServerJetty12#setDeploymentProfile(String)
+     */
+    public void setDeploymentProfile(String deploymentProfile) {
+        this.deploymentProfile = deploymentProfile;
+    }
+
+    /**
+     * 起動処理の所要時間を受け取るリスナを設定する。
+     *
+     * @param startupTimingListeners リスナ
+     * @see HttpServerJetty12#addStartupTimingListener(StartupTimingListener)
+     */
+    public void setStartupTimingListeners(List<StartupTimingListener> startupTimingListeners) {
+        this.startupTimingListeners = startupTimingListeners;
+    }
+
+    /**
+     * リクエストの処理の所要時間を受け取るリスナを設定する。
+     *
+     * @param requestTimingListeners リスナ
+     * @see HttpServerJetty12#addRequestTimingListener(RequestTimingListener)
+     */
+    public void setRequestTimingListeners(List<RequestTimingListener> requestTimingListeners) {
+        this.requestTimingListeners = requestTimingListeners;
+    }
+
+    /**
+     * 起動処理のフェーズごとの所要時間をログに出力するか否かを設定する。
+     *
+     * @param startupTimingLogEnabled 出力する場合{@code true}
+     * @see HttpServerJetty12#setStartupTimingLogEnabled(boolean)
+     */
+    public void setStartupTimingLogEnabled(boolean startupTimingLogEnabled) {
+        this.startupTimingLogEnabled = startupTimingLogEnabled;
+    }
+
+    /**
+     * サーバの起動時にJSPをコンパイルするか否かを設定する。
+     *
+     * @param jspPrecompileEnabled 起動時にコンパイルする場合{@code true}
+     * @see HttpServerJetty12#setJspPrecompileEnabled(boolean)
+     */
+    public void setJspPrecompileEnabled(boolean jspPrecompileEnabled) {
+        this.jspPrecompileEnabled = jspPrecompileEnabled;
+    }
+
+    /**
+     * 起動時のJSPのコンパイルに使用するスレッド数を設定する。
+     *
+     * @param jspPrecompileParallelism スレッド数
+     * @see HttpServerJetty12#setJspPrecompileParallelism(int)
+     */
+    public void setJspPrecompileParallelism(int jspPrecompileParallelism) {
+        this.jspPrecompileParallelism = jspPrecompileParallelism;
     }
 }
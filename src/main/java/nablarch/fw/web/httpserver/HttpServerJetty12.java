@@ -2,46 +2,63 @@ package nablarch.fw.web.httpserver;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import jakarta.servlet.DispatcherType;
 import jakarta.servlet.Filter;
+import jakarta.servlet.ServletException;
 
 import jakarta.servlet.SessionTrackingMode;
 import nablarch.test.core.http.HttpRequestTestSupportHandler;
 import org.apache.tomcat.JarScanner;
 import org.apache.tomcat.util.scan.StandardJarScanner;
-import org.eclipse.jetty.ee10.annotations.AnnotationConfiguration;
-import org.eclipse.jetty.ee10.webapp.JspConfiguration;
-import org.eclipse.jetty.ee10.webapp.WebAppConfiguration;
 import org.eclipse.jetty.ee10.servlet.SessionHandler;
 import org.eclipse.jetty.ee10.servlet.FilterHolder;
 import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.LocalConnector;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.resource.Resource;
-import org.eclipse.jetty.ee10.webapp.Configuration;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.ee10.webapp.WebAppContext;
 
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
 import nablarch.core.util.annotation.Published;
 import nablarch.fw.ExecutionContext;
+import nablarch.fw.web.HttpCookie;
 import nablarch.fw.web.HttpRequest;
 import nablarch.fw.web.HttpResponse;
 import nablarch.fw.web.HttpServer;
 import nablarch.fw.web.MockHttpRequest;
 import nablarch.fw.web.ResourceLocator;
-import org.eclipse.jetty.ee10.webapp.WebInfConfiguration;
-import org.eclipse.jetty.ee10.webapp.WebXmlConfiguration;
 import org.eclipse.jetty.util.resource.ResourceFactory;
 
 /**
@@ -54,6 +71,37 @@ import org.eclipse.jetty.util.resource.ResourceFactory;
 @Published(tag = "architect")
 public class HttpServerJetty12 extends HttpServer {
 
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(HttpServerJetty12.class);
+
+    /** リクエストにホストが設定されていない場合に使用するホスト */
+    static final String DEFAULT_HOST = "127.0.0.1";
+
+    /** レスポンスの受信を待機する時間の上限（秒） */
+    private static final long RESPONSE_TIMEOUT_SECONDS = 10L;
+
+    /** HTTPダンプのルート配下で、静的リソースの実体を保存するディレクトリの名前 */
+    private static final String DEFAULT_DUMP_RESOURCE_STORE_DIR = ".dump-resources";
+
+    /** 静的リソースのキャッシュの対象外とする、条件付きリクエストと範囲リクエストのヘッダ名（小文字） */
+    private static final Set<String> CONDITIONAL_HEADERS = Set.of(
+            "if-modified-since", "if-none-match", "if-match", "if-unmodified-since", "if-range", "range");
+
+    /** 仮想スレッドを使用できない場合に、待機する処理に使用するスレッド数の上限 */
+    private static final int ASYNC_WAIT_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /** 待機する処理に使用するスレッドが、使用されないまま終了するまでの時間（秒） */
+    private static final long ASYNC_WAIT_KEEP_ALIVE_SECONDS = 60L;
+
+    /**
+     * {@link #handleAsync(HttpRequest, ExecutionContext)}で、レスポンスや処理完了を待機する処理を実行するエグゼキュータ。
+     * <pre>
+     * 待機する処理でサーバのスレッドプールを使い切らないよう、サーバのスレッドプールとは別のスレッドを使用する。
+     * 実行環境が仮想スレッドをサポートしている場合は、仮想スレッドを使用する。
+     * サポートしていない場合は、全てのサーバで共有する、スレッド数に上限のあるスレッドプールを使用する。
+     * </pre>
+     */
+    private static final Executor ASYNC_WAIT_EXECUTOR = newAsyncWaitExecutor();
 
     /** アプリケーションサーバの実体 */
     private Server jetty;
@@ -61,6 +109,150 @@ public class HttpServerJetty12 extends HttpServer {
     /** 自動テスト実行用コネクター */
     private LocalConnector localConnector;
 
+    /** {@link WarmServerPool}でサーバを再利用するか否か */
+    private boolean serverPoolEnabled = false;
+
+    /** quickstartディスクリプタの保存先ディレクトリ（使用しない場合は{@code null}） */
+    private File quickStartDirectory;
+
+    /** JSPコンパイル結果のキャッシュディレクトリ（使用しない場合は{@code null}） */
+    private File jspCacheDirectory;
+
+    /** WARベースパス上のリソースを索引を使用して解決するか否か */
+    private boolean warResourceIndexEnabled = false;
+
+    /** WARベースパス上のファイルの変更を監視する間隔（秒。0の場合は監視しない） */
+    private int warResourceScanInterval = 0;
+
+    /** スレッドプールの最大スレッド数 */
+    private int maxThreads = 200;
+
+    /** スレッドプールの最小スレッド数 */
+    private int minThreads = 8;
+
+    /** スレッドプールのアイドルタイムアウト（ミリ秒） */
+    private int threadIdleTimeout = 60000;
+
+    /** スレッドプールの予約スレッド数（-1の場合はJettyが自動的に決定する） */
+    private int reservedThreads = -1;
+
+    /** リクエストを仮想スレッドで処理するか否か */
+    private boolean virtualThreadsEnabled = false;
+
+    /** デプロイプロファイル */
+    private DeploymentProfile deploymentProfile = DeploymentProfile.FULL;
+
+    /** 起動処理の所要時間を受け取るリスナ */
+    private final List<StartupTimingListener> startupTimingListeners = new ArrayList<>();
+
+    /** 起動処理の所要時間をログに出力するか否か */
+    private boolean startupTimingLogEnabled = false;
+
+    /** リクエストの処理の所要時間を受け取るリスナ */
+    private final List<RequestTimingListener> requestTimingListeners = new CopyOnWriteArrayList<>();
+
+    /** 起動処理の所要時間（起動処理中のみ使用する） */
+    private StartupTimings startupTimings;
+
+    /** 起動時にJSPをコンパイルするか否か */
+    private boolean jspPrecompileEnabled = false;
+
+    /** 起動時のJSPのコンパイルに使用するスレッド数 */
+    private int jspPrecompileParallelism = Runtime.getRuntime().availableProcessors();
+
+    /** 起動時のコンパイルに失敗したJSPのURI */
+    private volatile List<String> jspPrecompileFailures = List.of();
+
+    /** サーバプールに該当するサーバが存在しない場合、起動中のサーバへの再デプロイで代替するか否か */
+    private boolean redeployEnabled = false;
+
+    /** {@link #startLocal()}でバックグラウンド起動を行うか否か */
+    private boolean backgroundStartEnabled = false;
+
+    /** バックグラウンドで実行中の起動処理（バックグラウンド起動していない場合は{@code null}） */
+    private volatile CompletableFuture<HttpServerJetty12> backgroundStart;
+
+    /** リクエストの処理完了を待機する時間の上限（ミリ秒） */
+    private long completionTimeout = 10000L;
+
+    /** リクエストメッセージのエンコードに使用する文字セット */
+    private Charset requestCharset = Charset.defaultCharset();
+
+    /** レスポンスボディを一時ファイルに書き出す閾値（バイト） */
+    private long responseSpillThreshold = 10L * 1024 * 1024;
+
+    /** HTTPメッセージへのシリアライズを行わずにリクエストをディスパッチするか否か */
+    private boolean directDispatchEnabled = false;
+
+    /** リクエストの処理完了の待機がタイムアウトした回数 */
+    private final AtomicLong completionTimeoutCount = new AtomicLong();
+
+    /** リクエストの処理完了を待機した時間の合計（ナノ秒） */
+    private final AtomicLong completionWaitNanos = new AtomicLong();
+
+    /** HTTPダンプの出力を排他するためのロック */
+    private final Object dumpLock = new Object();
+
+    /** HTTPダンプを別スレッドで出力するか否か */
+    private boolean httpDumpAsyncEnabled = false;
+
+    /** HTTPダンプの出力待ちのキューの容量 */
+    private int httpDumpQueueCapacity = 256;
+
+    /** HTTPダンプの出力待ちのキューが満杯の場合の動作 */
+    private HttpDumpWriter.BackPressure httpDumpBackPressure = HttpDumpWriter.BackPressure.BLOCK;
+
+    /** HTTPダンプを別スレッドで出力するライタ（使用するまでは{@code null}） */
+    private HttpDumpWriter httpDumpWriter;
+
+    /** 最後に設定されたHTTPダンプの出力先ファイルのパス */
+    private String httpDumpFilePath;
+
+    /** HTTPダンプとともに出力された静的リソースを重複排除するか否か */
+    private boolean httpDumpResourceDedupEnabled = false;
+
+    /** 静的リソースの実体を保存するディレクトリのパス（{@code null}の場合はHTTPダンプのルート配下） */
+    private String httpDumpResourceStorePath;
+
+    /** 静的リソースを保存するストア（使用するまでは{@code null}） */
+    private DumpResourceStore dumpResourceStore;
+
+    /** 静的リソースを配置したダンプディレクトリ（プロセス内の全てのサーバで共有する） */
+    private static final Set<Path> PREPARED_DUMP_DIRECTORIES = ConcurrentHashMap.newKeySet();
+
+    /** HTTPダンプをZIPファイルに出力するか否か */
+    private boolean httpDumpArchiveEnabled = false;
+
+    /** HTTPダンプを出力するZIPファイルのディレクトリのパス（{@code null}の場合はHTTPダンプのルート） */
+    private String httpDumpArchivePath;
+
+    /** HTTPダンプを出力するZIPファイルを切り替えるサイズ（バイト） */
+    private long httpDumpArchiveRollSize = 64L * 1024 * 1024;
+
+    /** HTTPダンプを出力するアーカイブ（使用するまでは{@code null}） */
+    private HttpDumpArchive httpDumpArchive;
+
+    /** ZIPファイルに追加するHTTPダンプを書き出す作業用ファイル（全てのダンプで再利用する。使用するまでは{@code null}） */
+    private Path httpDumpScratchFile;
+
+    /** ZIPファイルに出力したHTTPダンプの数 */
+    private final AtomicLong archivedDumpCount = new AtomicLong();
+
+    /** 静的リソースに対するレスポンスのキャッシュ（キャッシュしない場合は{@code null}） */
+    private StaticResponseCache staticResponseCache;
+
+    /** デプロイしたWebアプリケーション */
+    private WebAppContext webAppContext;
+
+    /** Webフロントコントローラの差し替えを行うフィルタ（サーバプール使用時のみ） */
+    private SwitchableFilter frontControllerFilter;
+
+    /** Webアプリケーションで生成されたセッションの記録（サーバプール使用時のみ） */
+    private SessionTracker sessionTracker;
+
+    /** 使用中のプールされたサーバ（サーバプールを使用しない場合や、使用を終了した場合は{@code null}） */
+    private WarmServerPool.PooledServer pooledServer;
+
     /**
      * サーバを起動する。
      * <pre>
@@ -71,7 +263,12 @@ public class HttpServerJetty12 extends HttpServer {
      * @return このオブジェクト自体
      */
     public HttpServerJetty12 start() {
-        jetty = new Server(getPort());
+        long begin = System.nanoTime();
+        startupTimings = new StartupTimings(deploymentProfile.getProfileName());
+        jetty = new Server(newThreadPool());
+        ServerConnector portConnector = new ServerConnector(jetty);
+        portConnector.setPort(getPort());
+        jetty.addConnector(portConnector);
 
         // 12.0.5 でembedded modeだけrelativeRedirectAllowed のデフォルト値が変更されている。
         // 以前の挙動を前提にテストコードを実装していると失敗してしまうため、設定を戻す。
@@ -81,7 +278,9 @@ public class HttpServerJetty12 extends HttpServer {
         HttpConnectionFactory httpConnectionFactory = new HttpConnectionFactory(httpConfig);
 
         Connector conn = new ServerConnector(jetty, httpConnectionFactory);
+        startupTimings.record("server", System.nanoTime() - begin);
         initialize(conn);
+        long jettyStart = System.nanoTime();
         try {
             jetty.start();
         } catch (RuntimeException e) {
@@ -89,16 +288,122 @@ public class HttpServerJetty12 extends HttpServer {
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        startupTimings.record("jettyStart", System.nanoTime() - jettyStart);
+        precompileJsp();
+        logStartup(begin);
         return this;
     }
 
 
     /**
      * このサーバをテストモードで起動する。
+     * <pre>
+     * {@link #setServerPoolEnabled(boolean)}でサーバプールが有効化されている場合、
+     * デプロイ内容が同じサーバが{@link WarmServerPool}に存在すれば、
+     * サーバの生成とWARのデプロイは行わずにそのサーバを再利用する。
+     * {@link #setBackgroundStartEnabled(boolean)}でバックグラウンド起動が有効化されている場合、
+     * {@link #startLocalAsync()}と同様に起動処理をバックグラウンドで開始し、完了を待たずに処理を戻す。
+     * </pre>
      * @return このオブジェクト自体
      */
     public HttpServerJetty12 startLocal() {
-        jetty = new Server();
+        if (backgroundStartEnabled) {
+            startLocalAsync();
+            return this;
+        }
+        return doStartLocalWithPool();
+    }
+
+    /**
+     * このサーバをテストモードでバックグラウンドで起動する。
+     * <pre>
+     * 起動処理（WARのデプロイを含む）を別スレッドで開始し、完了を待たずに処理を戻す。
+     * 起動処理のスレッドでは、このメソッドを呼び出したスレッドのコンテキストクラスローダを使用する。
+     * 起動処理の完了前に{@link #handle(HttpRequest, ExecutionContext)}が呼び出された場合は、
+     * 起動処理が完了するまで待機してからリクエストを処理する。
+     * 起動処理に失敗した場合、その例外は{@link #handle(HttpRequest, ExecutionContext)}から送出される。
+     * </pre>
+     * @return 起動処理の完了時に、このオブジェクト自体で完了する{@link CompletableFuture}
+     */
+    public CompletableFuture<HttpServerJetty12> startLocalAsync() {
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        CompletableFuture<HttpServerJetty12> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+            try {
+                future.complete(doStartLocalWithPool());
+            } catch (Throwable e) {  // SUPPRESS CHECKSTYLE
+                // 起動処理の失敗は、全てhandle()の呼び出し元に通知する。
+                future.completeExceptionally(e);
+            }
+        }, "nablarch-jetty-startup");
+        thread.setDaemon(true);
+        backgroundStart = future;
+        thread.start();
+        return future;
+    }
+
+    /**
+     * バックグラウンドで実行中の起動処理がある場合、その完了を待機する。
+     */
+    private void awaitBackgroundStart() {
+        CompletableFuture<HttpServerJetty12> future = backgroundStart;
+        if (future == null) {
+            return;
+        }
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("failed to start the server in background.", cause);
+        }
+    }
+
+    /**
+     * サーバプールの設定に従い、このサーバをテストモードで起動する。
+     *
+     * @return このオブジェクト自体
+     */
+    private HttpServerJetty12 doStartLocalWithPool() {
+        if (!serverPoolEnabled) {
+            doStartLocal();
+            return this;
+        }
+
+        WarmServerPool pool = WarmServerPool.getInstance();
+        String fingerprint = getDeploymentFingerprint();
+        WarmServerPool.PooledServer pooled = pool.acquire(fingerprint, this);
+        if (pooled != null) {
+            reuse(pooled);
+            return this;
+        }
+        if (redeployEnabled) {
+            WarmServerPool.PooledServer running = pool.findRunning();
+            if (running != null) {
+                jetty = running.getServer();
+                localConnector = running.getLocalConnector();
+                doRedeploy();
+                return this;
+            }
+        }
+        long begin = System.nanoTime();
+        doStartLocal();
+        pooledServer = new WarmServerPool.PooledServer(jetty, localConnector, webAppContext,
+                frontControllerFilter, sessionTracker, System.nanoTime() - begin);
+        pool.register(fingerprint, pooledServer, this);
+        return this;
+    }
+
+    /**
+     * サーバを生成し、テストモードで起動する。
+     */
+    private void doStartLocal() {
+        long begin = System.nanoTime();
+        startupTimings = new StartupTimings(deploymentProfile.getProfileName());
+        jetty = new Server(newThreadPool());
 
         // 12.0.5 でembedded modeだけrelativeRedirectAllowed のデフォルト値が変更されている。
         // 以前の挙動を前提にテストコードを実装していると失敗してしまうため、設定を戻す。
@@ -108,7 +413,18 @@ public class HttpServerJetty12 extends HttpServer {
         HttpConnectionFactory httpConnectionFactory = new HttpConnectionFactory(httpConfig);
 
         localConnector = new LocalConnector(jetty, httpConnectionFactory);
+        if (!serverPoolEnabled) {
+            // プールされたサーバは使用者が入れ替わるため、ZIPファイルはプールが使用の終了時に閉じる。
+            jetty.addEventListener(new LifeCycle.Listener() {
+                @Override
+                public void lifeCycleStopped(LifeCycle event) {
+                    closeHttpDumpArchive();
+                }
+            });
+        }
+        startupTimings.record("server", System.nanoTime() - begin);
         initialize(localConnector);
+        long jettyStart = System.nanoTime();
         try {
             jetty.start();
         } catch (RuntimeException e) {
@@ -116,130 +432,1877 @@ public class HttpServerJetty12 extends HttpServer {
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        return this;
+        startupTimings.record("jettyStart", System.nanoTime() - jettyStart);
+        precompileJsp();
+        logStartup(begin);
     }
 
     /**
-     * サーバスレッドが終了するまでカレントスレッドをwaitさせる。
+     * 起動時間をログに出力し、起動処理の所要時間をリスナに通知する。
+     * <pre>
+     * デプロイプロファイルごとの起動時間を比較できるよう、
+     * プロセス内で起動したサーバのデプロイプロファイルごとの平均起動時間もあわせて出力する。
+     * </pre>
+     * @param begin 起動開始時刻（{@link System#nanoTime()}の値）
+     */
+    private void logStartup(long begin) {
+        long startupNanos = System.nanoTime() - begin;
+        String averages = StartupStatistics.record(deploymentProfile, startupNanos);
+        LOGGER.logInfo("server started. profile = [" + deploymentProfile.getProfileName()
+                + "] startupMillis = [" + TimeUnit.NANOSECONDS.toMillis(startupNanos)
+                + "] average: " + averages);
+
+        notifyStartupTimings(startupNanos);
+    }
+
+    /**
+     * 起動処理の所要時間を確定し、ログへの出力とリスナへの通知を行う。
      *
-     * @return このオブジェクト自体
+     * @param startupNanos 起動処理全体の所要時間（ナノ秒）
      */
-    public HttpServer join() {
+    private void notifyStartupTimings(long startupNanos) {
+        StartupTimings timings = startupTimings;
+        startupTimings = null;
+        timings.complete(startupNanos);
+        if (startupTimingLogEnabled) {
+            LOGGER.logInfo("startup timings. " + timings);
+        }
+        for (StartupTimingListener listener : startupTimingListeners) {
+            listener.onStartup(timings);
+        }
+    }
+
+    /**
+     * 起動時のJSPのコンパイルが有効な場合、デプロイしたWebアプリケーションのJSPをコンパイルする。
+     * <pre>
+     * コンパイルに失敗したJSPがある場合は、そのURIをワーニングログに出力する。
+     * （起動は継続し、失敗したJSPはリクエスト時にコンパイルされる）
+     * </pre>
+     */
+    private void precompileJsp() {
+        if (jspPrecompileEnabled && deploymentProfile.isJspEnabled()) {
+            long begin = System.nanoTime();
+            List<JspPrecompiler.Result> results =
+                    new JspPrecompiler(jspPrecompileParallelism).precompile(webAppContext);
+            startupTimings.record("jspPrecompile", System.nanoTime() - begin);
+            List<String> failures = new ArrayList<>();
+            for (JspPrecompiler.Result result : results) {
+                if (!result.isSucceeded()) {
+                    failures.add(result.getJspUri());
+                }
+            }
+            if (!failures.isEmpty()) {
+                LOGGER.logWarn("some jsp files could not be precompiled. failed = [" + failures.size()
+                        + "/" + results.size() + "] jsp = " + failures);
+            }
+            jspPrecompileFailures = List.copyOf(failures);
+        }
+    }
+
+    /**
+     * 直近の起動時（再デプロイ時を含む）に、コンパイルに失敗したJSPのURIを返す。
+     *
+     * @return コンパイルに失敗したJSPのURI（起動時のコンパイルが無効な場合や、全て成功した場合は空のリスト）
+     */
+    List<String> getJspPrecompileFailures() {
+        return jspPrecompileFailures;
+    }
+
+    /**
+     * Jettyサーバインスタンスを返す。
+     *
+     * @return Jettyサーバインスタンス（起動していない場合は{@code null}）
+     */
+    Server getJetty() {
+        return jetty;
+    }
+
+    /**
+     * テストモードで使用するローカルコネクタを返す。
+     *
+     * @return ローカルコネクタ（{@link #startLocal()}で起動していない場合は{@code null}）
+     */
+    LocalConnector getLocalConnector() {
+        return localConnector;
+    }
+
+    /**
+     * デプロイしたWebアプリケーションを返す。
+     *
+     * @return デプロイしたWebアプリケーション（起動していない場合は{@code null}）
+     */
+    WebAppContext getWebAppContext() {
+        return webAppContext;
+    }
+
+    /**
+     * レスポンスや処理完了を待機する処理を実行するエグゼキュータを生成する。
+     * <pre>
+     * 仮想スレッドを使用できない場合は、{@link #ASYNC_WAIT_THREADS}を上限としてスレッドを再利用する。
+     * 上限を超えた処理はキューで待機させるため、多数のリクエストを非同期に処理してもスレッドは増え続けない。
+     * 待機する処理はサーバのスレッドプールで実行される処理の完了を待つだけであり、
+     * このエグゼキュータの処理の完了には依存しないため、キューで待機させてもデッドロックは発生しない。
+     * スレッドはデーモンスレッドとし、一定時間使用されなかった場合は終了する。
+     * </pre>
+     * @return エグゼキュータ
+     */
+    private static Executor newAsyncWaitExecutor() {
+        Executor virtualThreads = VirtualThreads.areSupported() ? VirtualThreads.getDefaultVirtualThreadsExecutor() : null;
+        if (virtualThreads != null) {
+            return virtualThreads;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                ASYNC_WAIT_THREADS, ASYNC_WAIT_THREADS, ASYNC_WAIT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "nablarch-jetty-async-handle-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * サーバのスレッドプールを生成する。
+     * <pre>
+     * 仮想スレッドの使用が有効で、実行環境が仮想スレッドをサポートしている場合は、
+     * リクエストの処理に仮想スレッドを使用するよう設定する。
+     * サポートしていない場合は、ワーニングログを出力してプラットフォームスレッドで処理する。
+     * </pre>
+     * @return スレッドプール
+     */
+    private QueuedThreadPool newThreadPool() {
+        QueuedThreadPool threadPool = new QueuedThreadPool(
+                maxThreads, minThreads, threadIdleTimeout, reservedThreads, null, null);
+        if (virtualThreadsEnabled) {
+            if (VirtualThreads.areSupported()) {
+                threadPool.setVirtualThreadsExecutor(VirtualThreads.getDefaultVirtualThreadsExecutor());
+            } else {
+                LOGGER.logWarn("virtual threads are not supported on this runtime. "
+                        + "requests are handled by platform threads. java.version = ["
+                        + System.getProperty("java.version") + "]");
+            }
+        }
+        return threadPool;
+    }
+
+    /**
+     * プールされたサーバを、このオブジェクトのサーバとして再利用する。
+     * <pre>
+     * デプロイ済みのWARはそのままとし、リクエストの処理先を
+     * このオブジェクトのWebフロントコントローラに差し替える。
+     * 前の使用者が生成したセッションは全て無効化する。
+     * </pre>
+     * @param pooled プールされたサーバ
+     */
+    private void reuse(WarmServerPool.PooledServer pooled) {
         try {
-            jetty.join();
+            pooled.getFrontControllerFilter().switchTo(getWebFrontController());
+        } catch (ServletException e) {
+            throw new RuntimeException(e);
+        }
+        int invalidated = pooled.getSessionTracker().invalidateAll();
+        if (invalidated > 0 && LOGGER.isDebugEnabled()) {
+            LOGGER.logDebug("invalidated sessions of the previous user of the pooled server. count = ["
+                    + invalidated + "]");
+        }
+        jetty = pooled.getServer();
+        localConnector = pooled.getLocalConnector();
+        webAppContext = pooled.getWebAppContext();
+        frontControllerFilter = pooled.getFrontControllerFilter();
+        sessionTracker = pooled.getSessionTracker();
+        pooledServer = pooled;
+        if (staticResponseCache != null) {
+            staticResponseCache.clear();
+        }
+    }
 
-        } catch (InterruptedException e) {
-            // カレントスレッドに割り込み要求を行ってから抜ける。
-            Thread.currentThread().interrupt();
+    /**
+     * プールされたサーバの使用を終了する。
+     * <pre>
+     * サーバは停止せずにプールに残り、次に同じデプロイ内容で起動する{@link HttpServerJetty12}に再利用される。
+     * 使用を終了した後は、このオブジェクトでリクエストを処理することはできない。
+     * HTTPダンプのZIPファイルは閉じられる。
+     * サーバプールを使用していない場合や、既に使用を終了している場合は何もしない。
+     * </pre>
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 release() {
+        awaitBackgroundStart();
+        WarmServerPool.PooledServer pooled = pooledServer;
+        if (pooled == null) {
+            return this;
         }
+        WarmServerPool.getInstance().release(pooled, this);
+        pooledServer = null;
+        localConnector = null;
+        closeHttpDumpArchive();
         return this;
     }
 
     /**
-     * {@inheritDoc}
+     * 起動中のサーバに、Webアプリケーションを再デプロイする。
      * <pre>
-     * このクラスの実装では、
-     * 引数のHTTPリクエストオブジェクトをHTTPメッセージにシリアライズし、
-     * ローカルコネクションに送信する。
-     * 内蔵アプリケーションサーバでの処理後、返信されたHTTPレスポンスメッセージを
-     * HTTPレスポンスオブジェクトにパースし、この関数の戻り値として返す。
-     * また、HTTPダンプ出力が有効である場合、
-     * そのレスポンスボディの内容を所定のディレクトリに出力する。
+     * 現在のWARベースパス、サーブレットコンテキストパス、Webフロントコントローラ等の設定で
+     * Webアプリケーションを新たに生成して起動し、起動済みのWebアプリケーションと差し替える。
+     * サーバ本体（コネクタ、スレッドプール、バッファプール）は停止せずにそのまま使用するため、
+     * サーバを起動し直すよりも短時間で、WARベースパスやWebフロントコントローラの変更を反映できる。
+     * Webフロントコントローラは新旧のWebアプリケーションで共有するため、
+     * 差し替え前のWebアプリケーションは、新しいWebアプリケーションの起動前に停止する。
+     * サーバプールが有効な場合、プールされたサーバは新しいデプロイ内容で登録し直される。
      * </pre>
+     * @return このオブジェクト自体
+     * @throws IllegalStateException サーバが起動していない場合
      */
-    public HttpResponse handle(HttpRequest req, ExecutionContext sourceContext) {
-        if (localConnector == null) {
-            throw new RuntimeException(
-                    "this server is not running on a local connector. "
-                            + "you must call startLocal() method beforehand."
-            );
+    public HttpServerJetty12 redeploy() {
+        awaitBackgroundStart();
+        if (jetty == null || !jetty.isStarted()) {
+            throw new IllegalStateException(
+                    "this server is not running. "
+                            + "you must call start() or startLocal() method beforehand.");
         }
+        doRedeploy();
+        return this;
+    }
 
-        String host = req.getHost();
-        if (host == null || host.isEmpty()) {
-            ((MockHttpRequest) req).setHost("127.0.0.1");
+    /**
+     * 起動中のサーバに、Webアプリケーションを再デプロイする。
+     */
+    private void doRedeploy() {
+        long begin = System.nanoTime();
+        startupTimings = new StartupTimings(deploymentProfile.getProfileName());
+        WebAppContext webApp = newDeployment();
+        webApp.setServer(jetty);
+
+        // Webフロントコントローラは新旧のWebアプリケーションで共有するため、
+        // 差し替え前のWebアプリケーションを停止（フィルタを破棄）してから新しいWebアプリケーションを起動する。
+        Handler.Wrapper deployment = (Handler.Wrapper) jetty.getHandler();
+        Handler previous = deployment.getHandler();
+        deployment.unmanage(previous);
+        try {
+            previous.stop();
+        } catch (Exception e) {
+            LOGGER.logWarn("failed to stop the previous web application.", e);
         }
 
-        final CountDownLatch latch = new CountDownLatch(1);
-        sourceContext.setRequestScopedVar(HttpRequestTestSupportHandler.NABLARCH_JETTY_CONNECTOR_LATCH, latch);
+        long webAppStart = System.nanoTime();
         try {
-            byte[] rawReq = req.toString().getBytes();
-            ByteBuffer response = localConnector.getResponse(ByteBuffer.wrap(rawReq));
-            latch.await(10L, TimeUnit.SECONDS);
-            byte[] rawRes = new byte[response.remaining()];
-            response.get(rawRes);
-            HttpResponse res = HttpResponse.parse(rawRes);
-            if (isHttpDumpEnabled()) {
-                dumpHttpMessage(req, res);
-            }
-            return res;
+            webApp.start();
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        startupTimings.record("webAppStart", System.nanoTime() - webAppStart);
+        deployment.setHandler(webApp);
+        deployment.manage(webApp);
+        webAppContext = webApp;
+        if (staticResponseCache != null) {
+            staticResponseCache.clear();
+        }
+
+        precompileJsp();
+        long redeployNanos = System.nanoTime() - begin;
+        if (serverPoolEnabled && localConnector != null) {
+            WarmServerPool pool = WarmServerPool.getInstance();
+            pool.unregister(jetty, this);
+            pooledServer = new WarmServerPool.PooledServer(jetty, localConnector, webAppContext,
+                    frontControllerFilter, sessionTracker, redeployNanos);
+            pool.register(getDeploymentFingerprint(), pooledServer, this);
+        }
+        LOGGER.logInfo("web application redeployed. profile = [" + deploymentProfile.getProfileName()
+                + "] redeployMillis = [" + TimeUnit.NANOSECONDS.toMillis(redeployNanos) + "]");
+        notifyStartupTimings(redeployNanos);
     }
 
     /**
-     * Jettyサーバインスタンスの初期化を行う。
-     *
-     * @param conn このサーバがacceptするコネクタ
+     * quickstartディスクリプタの保存先ディレクトリを設定する。
+     * <pre>
+     * 保存先が設定されている場合、初回の起動時にアノテーションやweb.xmlのスキャン結果を
+     * quickstartディスクリプタとして保存し、以降の起動ではスキャンを行わずにそのディスクリプタでデプロイする。
+     * ディスクリプタはWARベースパスとクラスパスの内容ごとに作成される。
+     * デフォルトは{@code null}（quickstartディスクリプタを使用しない）。
+     * </pre>
+     * @param path 保存先ディレクトリのパス
+     * @return このオブジェクト自体
      */
-    private void initialize(Connector conn) {
-        jetty.addConnector(conn);
-        deploy();
+    public HttpServerJetty12 setQuickStartDirectory(String path) {
+        this.quickStartDirectory = path == null ? null : new File(path);
+        return this;
     }
 
     /**
-     * 内部サーバにWARをデプロイする。
+     * JSPのコンパイル結果を保存するキャッシュディレクトリを設定する。
      * <pre>
-     * エントリポイントサーブレットと、
-     * {@link #setWarBasePath(String)}で指定されたパス上に存在するWARをデプロイする。
+     * キャッシュディレクトリが設定されている場合、JSPのコンパイル結果をこのディレクトリに保存し、
+     * プロセスや{@link HttpServerJetty12}のインスタンスをまたいで再利用する。
+     * JSPの内容が変わっていなければ、JSPの最終更新日時や一時ディレクトリが変わっても再コンパイルは行わない。
+     * デフォルトは{@code null}（一時ディレクトリにコンパイル結果を出力する）。
      * </pre>
+     * @param path キャッシュディレクトリのパス
+     * @return このオブジェクト自体
      */
-    private void deploy() {
-        WebAppContext webApp = new WebAppContext();
-        SessionHandler sessionHandler = new SessionHandler();
-        sessionHandler.setSessionIdPathParameterName("none");
-        // デフォルトは COOKIE と URL が設定されるが、 URL が設定されている場合 SessionIdPathParameterName が
-        // none または未設定だと NullPointerException が発生してしまうので、 COOKIE だけに固定している
-        sessionHandler.setSessionTrackingModes(Set.of(SessionTrackingMode.COOKIE));
-        webApp.setSessionHandler(sessionHandler);
-        webApp.setContextPath(getServletContextPath());
-        webApp.setBaseResource(toResourceCollection(getWarBasePaths()));
-        webApp.setClassLoader(Thread.currentThread().getContextClassLoader());
+    public HttpServerJetty12 setJspCacheDirectory(String path) {
+        this.jspCacheDirectory = path == null ? null : new File(path);
+        return this;
+    }
 
-        StandardJarScanner scanner = new StandardJarScanner();
-        scanner.setScanManifest(false);
-        webApp.setAttribute(JarScanner.class.getName(), scanner);
+    /**
+     * WARベースパス上のリソースを、索引を使用して解決するか否かを設定する。
+     * <pre>
+     * 有効な場合、デプロイ時に全てのWARベースパス上のファイルを走査して索引を作成し、
+     * 静的リソースやJSPの解決時にWARベースパスを順に探索せずに、索引から優先されるファイルを特定する。
+     * WARベースパスを多数指定する場合に、リソースの解決にかかる時間を短縮できる。
+     * 索引はデプロイ時のファイル構成に基づくため、デプロイ後にファイルを追加・削除する場合は
+     * {@link #setWarResourceScanInterval(int)}で変更の監視を有効にすること。
+     * （既存のファイルの内容の変更は、監視しなくても反映される）
+     * デフォルトは{@code false}（索引を使用しない）。
+     * </pre>
+     * @param warResourceIndexEnabled 索引を使用する場合{@code true}
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setWarResourceIndexEnabled(boolean warResourceIndexEnabled) {
+        this.warResourceIndexEnabled = warResourceIndexEnabled;
+        return this;
+    }
 
-        webApp.setTempDirectoryPersistent(true);
+    /**
+     * WARベースパス上のファイルの変更を監視する間隔を設定する。
+     * <pre>
+     * {@link #setWarResourceIndexEnabled(boolean)}で索引の使用が有効な場合のみ使用する。
+     * ファイルの追加・削除を検知した場合は、索引を再構築する。
+     * デフォルトは0（監視しない）。
+     * </pre>
+     * @param warResourceScanInterval 監視間隔（秒）
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setWarResourceScanInterval(int warResourceScanInterval) {
+        this.warResourceScanInterval = warResourceScanInterval;
+        return this;
+    }
 
-        webApp.addFilter(LazySessionInvalidationFilter.class, "/*",
-                EnumSet.of(DispatcherType.REQUEST));
+    /**
+     * デプロイプロファイルを設定する。
+     * <pre>
+     * 以下のいずれかを指定する。使用しない機能を無効にすることで、起動時間を短縮できる。
+     *   "full"           : 全ての機能を使用する。（デフォルト）
+     *   "no-jsp"         : JSPを使用しない。
+     *   "no-annotations" : サーブレットのアノテーションを使用しない。
+     * 起動時間は、プロセス内のデプロイプロファイルごとの平均起動時間とあわせてログに出力される。
+     * </pre>
+     * @param profileName プロファイル名
+     * @return このオブジェクト自体
+     * @see DeploymentProfile
+     */
+    public HttpServerJetty12 setDeploymentProfile(String profileName) {
+        this.deploymentProfile = DeploymentProfile.of(profileName);
+        return this;
+    }
 
-        Filter webFrontController = getWebFrontController();
-        webApp.addFilter(
-                new FilterHolder(webFrontController)
-                , "/*"
-                , EnumSet.of(DispatcherType.REQUEST)
+    /**
+     * サーバプールに同じデプロイ内容のサーバが存在しない場合に、
+     * 起動中の別のサーバへの再デプロイで代替するか否かを設定する。
+     * <pre>
+     * 有効な場合、{@link #setServerPoolEnabled(boolean)}でサーバプールが有効化されていれば、
+     * {@link #startLocal()}はサーバを新たに生成せず、プールされている起動中のサーバに
+     * {@link #redeploy()}と同様にWebアプリケーションを再デプロイして使用する。
+     * これにより、テストクラスごとにWARベースパスやWebフロントコントローラが異なる場合でも、
+     * サーバ本体の起動はプロセス内で1回のみとなる。
+     * 再デプロイ先のサーバのスレッドプール等の設定は、そのサーバを起動した時の設定のままとなる。
+     * デフォルトは{@code false}（サーバを新たに生成する）。
+     * </pre>
+     * @param redeployEnabled 再デプロイで代替する場合{@code true}
+     * @return このオブジェクト自体
+     * @see #redeploy()
+     */
+    public HttpServerJetty12 setRedeployEnabled(boolean redeployEnabled) {
+        this.redeployEnabled = redeployEnabled;
+        return this;
+    }
+
+    /**
+     * {@link #startLocal()}で、起動処理をバックグラウンドで行うか否かを設定する。
+     * <pre>
+     * 有効な場合、{@link #startLocal()}は起動処理の完了を待たずに処理を戻す。
+     * これにより、サーバの起動とテストデータの準備等を並行して行うことができる。
+     * デフォルトは{@code false}（起動処理の完了まで待機する）。
+     * </pre>
+     * @param backgroundStartEnabled バックグラウンドで起動する場合{@code true}
+     * @return このオブジェクト自体
+     * @see #startLocalAsync()
+     */
+    public HttpServerJetty12 setBackgroundStartEnabled(boolean backgroundStartEnabled) {
+        this.backgroundStartEnabled = backgroundStartEnabled;
+        return this;
+    }
+
+    /**
+     * サーバのスレッドプールの最大スレッド数を設定する。
+     * <pre>
+     * デフォルトは200。
+     * </pre>
+     * @param maxThreads 最大スレッド数
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+        return this;
+    }
+
+    /**
+     * サーバのスレッドプールの最小スレッド数を設定する。
+     * <pre>
+     * デフォルトは8。
+     * </pre>
+     * @param minThreads 最小スレッド数
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setMinThreads(int minThreads) {
+        this.minThreads = minThreads;
+        return this;
+    }
+
+    /**
+     * サーバのスレッドプールのアイドルタイムアウトを設定する。
+     * <pre>
+     * 最小スレッド数を超えて生成されたスレッドは、この時間アイドル状態が続くと破棄される。
+     * デフォルトは60000（60秒）。
+     * </pre>
+     * @param threadIdleTimeout アイドルタイムアウト（ミリ秒）
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setThreadIdleTimeout(int threadIdleTimeout) {
+        this.threadIdleTimeout = threadIdleTimeout;
+        return this;
+    }
+
+    /**
+     * サーバのスレッドプールの予約スレッド数を設定する。
+     * <pre>
+     * 予約スレッドは、ノンブロッキングな処理を即座に実行するために待機させておくスレッド。
+     * デフォルトは-1（Jettyが最大スレッド数から自動的に決定する）。
+     * </pre>
+     * @param reservedThreads 予約スレッド数
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setReservedThreads(int reservedThreads) {
+        this.reservedThreads = reservedThreads;
+        return this;
+    }
+
+    /**
+     * リクエストを仮想スレッドで処理するか否かを設定する。
+     * <pre>
+     * 有効な場合、リクエストの処理はスレッドプールのスレッドではなく仮想スレッドで行われる。
+     * （コネクタのセレクタ等の内部処理には、引き続きスレッドプールのスレッドが使用される）
+     * 仮想スレッドをサポートしない実行環境（Java 21未満）では、この設定は無視される。
+     * デフォルトは{@code false}。
+     * </pre>
+     * @param virtualThreadsEnabled 仮想スレッドで処理する場合{@code true}
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+        this.virtualThreadsEnabled = virtualThreadsEnabled;
+        return this;
+    }
+
+    /**
+     * 起動処理の所要時間を受け取るリスナを追加する。
+     * <pre>
+     * リスナは、{@link #start()}または{@link #startLocal()}でサーバを起動するたびに、
+     * 起動処理のフェーズごとの所要時間を受け取る。
+     * {@link #redeploy()}でWebアプリケーションを再デプロイした場合も、再デプロイの所要時間を受け取る。
+     * （{@link WarmServerPool}のサーバを再利用した場合は呼び出されない）
+     * </pre>
+     * @param listener リスナ
+     * @return このオブジェクト自体
+     * @see StartupTimings
+     */
+    public HttpServerJetty12 addStartupTimingListener(StartupTimingListener listener) {
+        startupTimingListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * リクエストの処理の所要時間を受け取るリスナを追加する。
+     * <pre>
+     * リスナは、{@link #handle(HttpRequest, ExecutionContext)}等で処理したリクエストごとに、
+     * シリアライズ、サーバでの処理、処理完了の待機、パース、HTTPダンプの出力の所要時間と、
+     * 送受信したバイト数を受け取る。
+     * テストスイート全体で集計する場合は、{@link RequestTimingAggregator}を使用できる。
+     * </pre>
+     * @param listener リスナ
+     * @return このオブジェクト自体
+     * @see RequestTimings
+     */
+    public HttpServerJetty12 addRequestTimingListener(RequestTimingListener listener) {
+        requestTimingListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * 起動処理のフェーズごとの所要時間をログに出力するか否かを設定する。
+     * <pre>
+     * 有効な場合、起動のたびにフェーズごとの所要時間を{@code key=value}形式の1行でINFOログに出力する。
+     * デフォルトは{@code false}（出力しない）。
+     * </pre>
+     * @param startupTimingLogEnabled 出力する場合{@code true}
+     * @return このオブジェクト自体
+     * @see StartupTimings#toString()
+     */
+    public HttpServerJetty12 setStartupTimingLogEnabled(boolean startupTimingLogEnabled) {
+        this.startupTimingLogEnabled = startupTimingLogEnabled;
+        return this;
+    }
+
+    /**
+     * サーバの起動時にJSPをコンパイルするか否かを設定する。
+     * <pre>
+     * 有効な場合、{@link #start()}および{@link #startLocal()}は、
+     * WARベースパス上の全てのJSPを並列にコンパイルしてから処理を戻す。
+     * 各JSPのコンパイル時間はデバッグログに、コンパイルに失敗したJSPはワーニングログに出力する。
+     * （コンパイルに失敗したJSPは、リクエストの処理時に改めてコンパイルされる）
+     * デフォルトは{@code false}（最初にアクセスされた時にコンパイルする）。
+     * </pre>
+     * @param jspPrecompileEnabled 起動時にコンパイルする場合{@code true}
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setJspPrecompileEnabled(boolean jspPrecompileEnabled) {
+        this.jspPrecompileEnabled = jspPrecompileEnabled;
+        return this;
+    }
+
+    /**
+     * 起動時のJSPのコンパイルに使用するスレッド数を設定する。
+     * <pre>
+     * デフォルトは利用可能なプロセッサ数。
+     * </pre>
+     * @param jspPrecompileParallelism スレッド数
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setJspPrecompileParallelism(int jspPrecompileParallelism) {
+        if (jspPrecompileParallelism < 1) {
+            throw new IllegalArgumentException(
+                    "jspPrecompileParallelism must be greater than 0. value = [" + jspPrecompileParallelism + "]");
+        }
+        this.jspPrecompileParallelism = jspPrecompileParallelism;
+        return this;
+    }
+
+    /**
+     * {@link #handle(HttpRequest, ExecutionContext)}で、リクエストの処理完了を待機する時間の上限を設定する。
+     * <pre>
+     * ハンドラキューに{@link HttpRequestTestSupportHandler}が含まれる場合、
+     * レスポンスの受信後、このハンドラの処理（テスト側へのリクエストスコープ等の反映）が
+     * 完了するまで待機する。含まれない場合は待機しない。
+     * 上限を超えた場合はワーニングログを出力し、待機せずにレスポンスを返す。
+     * デフォルトは10000（10秒）。
+     * </pre>
+     * @param completionTimeout 待機時間の上限（ミリ秒）
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setCompletionTimeout(long completionTimeout) {
+        if (completionTimeout < 0) {
+            throw new IllegalArgumentException(
+                    "completionTimeout must not be negative. value = [" + completionTimeout + "]");
+        }
+        this.completionTimeout = completionTimeout;
+        return this;
+    }
+
+    /**
+     * {@link #handle(HttpRequest, ExecutionContext)}で、リクエストメッセージのエンコードに使用する文字セットを設定する。
+     * <pre>
+     * リクエストメッセージは、サーバのバッファプールから取得したバッファにこの文字セットで直接エンコードされる。
+     * デフォルトは実行環境のデフォルト文字セット。
+     * </pre>
+     * @param charsetName 文字セット名
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setRequestCharset(String charsetName) {
+        this.requestCharset = Charset.forName(charsetName);
+        return this;
+    }
+
+    /**
+     * {@link #handle(HttpRequest, ExecutionContext)}で、レスポンスボディを一時ファイルに書き出す閾値を設定する。
+     * <pre>
+     * レスポンスボディがこのサイズを超えた場合、ヒープに保持せずに受信しながら一時ファイルに書き出し、
+     * レスポンスボディはその一時ファイルを読み出すストリームとして設定される。
+     * ファイルダウンロード等の大きなレスポンスでも、ヒープの使用量を抑えることができる。
+     * デフォルトは10485760（10MB）。
+     * </pre>
+     * @param responseSpillThreshold 閾値（バイト）
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setResponseSpillThreshold(long responseSpillThreshold) {
+        if (responseSpillThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "responseSpillThreshold must not be negative. value = [" + responseSpillThreshold + "]");
+        }
+        this.responseSpillThreshold = responseSpillThreshold;
+        return this;
+    }
+
+    /**
+     * {@link #handle(HttpRequest, ExecutionContext)}で、HTTPメッセージへのシリアライズを行わずに
+     * リクエストをディスパッチするか否かを設定する。
+     * <pre>
+     * 有効な場合、HTTPリクエストオブジェクトからJettyのリクエストを直接組み立ててWebアプリケーションに渡し、
+     * レスポンスもHTTPメッセージにエンコードせずに受け取る。
+     * リクエストごとのシリアライズとパースが不要となるため、リクエスト単体テストの実行時間を短縮できる。
+     * セッション、JSPへのフォワード等のサーブレットの機能は、無効な場合と同様に使用できる。
+     * リクエストパラメータはURLエンコードして送信するため、マルチパートのリクエストには使用できない。
+     * デフォルトは{@code false}（ローカルコネクタにHTTPメッセージを送信する）。
+     * </pre>
+     * @param directDispatchEnabled シリアライズを行わない場合{@code true}
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setDirectDispatchEnabled(boolean directDispatchEnabled) {
+        this.directDispatchEnabled = directDispatchEnabled;
+        return this;
+    }
+
+    /**
+     * HTTPダンプを、リクエストを処理したスレッドとは別のスレッドで出力するか否かを設定する。
+     * <pre>
+     * 有効な場合、{@link #handle(HttpRequest, ExecutionContext)}はHTTPダンプの出力処理を上限付きのキューに格納し、
+     * 出力の完了を待たずにレスポンスを返す。出力処理は、1つのバックグラウンドスレッドが格納された順に実行する。
+     * 出力先ファイルのパスは、キューに格納した時点で{@link #setHttpDumpFilePath(String)}に設定されていたものを使用する。
+     * ダンプの出力はレスポンスの返却後に行われるため、返却されたレスポンスの内容は変更しないこと。
+     * 出力したダンプファイルを参照する場合は、{@link #flushHttpDump()}で出力の完了を待機すること。
+     * JVMの終了時には、キューに残っている出力処理を全て実行してから終了する。
+     * レスポンスボディが一時ファイルに書き出された場合（{@link #setResponseSpillThreshold(long)}参照）は、
+     * ボディのストリームを一度しか読み出せないため、無効な場合と同様に呼び出し元のスレッドで出力する。
+     * デフォルトは{@code false}（呼び出し元のスレッドで出力する）。
+     * </pre>
+     * @param httpDumpAsyncEnabled 別スレッドで出力する場合{@code true}
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setHttpDumpAsyncEnabled(boolean httpDumpAsyncEnabled) {
+        this.httpDumpAsyncEnabled = httpDumpAsyncEnabled;
+        return this;
+    }
+
+    /**
+     * HTTPダンプの出力待ちのキューの容量を設定する。
+     * <pre>
+     * {@link #setHttpDumpAsyncEnabled(boolean)}が有効な場合に使用する。
+     * 最初にHTTPダンプを出力する前に設定すること。デフォルトは256。
+     * </pre>
+     * @param httpDumpQueueCapacity キューの容量
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setHttpDumpQueueCapacity(int httpDumpQueueCapacity) {
+        if (httpDumpQueueCapacity < 1) {
+            throw new IllegalArgumentException(
+                    "httpDumpQueueCapacity must be positive. httpDumpQueueCapacity = [" + httpDumpQueueCapacity + "]");
+        }
+        this.httpDumpQueueCapacity = httpDumpQueueCapacity;
+        return this;
+    }
+
+    /**
+     * HTTPダンプの出力待ちのキューが満杯の場合の動作を設定する。
+     * <pre>
+     * {@link #setHttpDumpAsyncEnabled(boolean)}が有効な場合に使用する。
+     * 最初にHTTPダンプを出力する前に設定すること。指定できる値は以下のとおり。
+     *   block       : キューに空きができるまで待機する（デフォルト）
+     *   caller-runs : 呼び出し元のスレッドで出力する
+     *   discard     : 出力せずに破棄し、ワーニングログを出力する
+     * </pre>
+     * @param httpDumpBackPressure キューが満杯の場合の動作
+     * @return このオブジェクト自体
+     * @throws IllegalArgumentException 上記以外の値が指定された場合
+     */
+    public HttpServerJetty12 setHttpDumpBackPressure(String httpDumpBackPressure) {
+        this.httpDumpBackPressure = HttpDumpWriter.BackPressure.of(httpDumpBackPressure);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <pre>
+     * このクラスの実装では、{@link #setHttpDumpAsyncEnabled(boolean)}が有効な場合に出力待ちのダンプの出力先を
+     * 変更しないよう、実行中のダンプの出力が完了してから設定する。
+     * </pre>
+     */
+    @Override
+    public HttpServer setHttpDumpFilePath(String path) {
+        synchronized (dumpLock) {
+            httpDumpFilePath = path;
+            return super.setHttpDumpFilePath(path);
+        }
+    }
+
+    /**
+     * 別スレッドでの出力を待っているHTTPダンプが、全て出力されるまで待機する。
+     * <pre>
+     * {@link #setHttpDumpAsyncEnabled(boolean)}が無効な場合は、何もしない。
+     * </pre>
+     */
+    public void flushHttpDump() {
+        HttpDumpWriter writer = getHttpDumpWriter(false);
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 別スレッドでの出力を待っているHTTPダンプの数を返す。
+     *
+     * @return 出力待ちのHTTPダンプの数（出力中のものを含まない）
+     * @see #setHttpDumpAsyncEnabled(boolean)
+     */
+    public int getHttpDumpQueueDepth() {
+        HttpDumpWriter writer = getHttpDumpWriter(false);
+        return writer == null ? 0 : writer.getQueueDepth();
+    }
+
+    /**
+     * 別スレッドで出力したHTTPダンプの数を返す。
+     *
+     * @return 出力したHTTPダンプの数
+     * @see #setHttpDumpAsyncEnabled(boolean)
+     */
+    public long getHttpDumpWriteCount() {
+        HttpDumpWriter writer = getHttpDumpWriter(false);
+        return writer == null ? 0L : writer.getWriteCount();
+    }
+
+    /**
+     * 別スレッドでのHTTPダンプの出力に要した時間の合計を返す。
+     *
+     * @return 出力に要した時間の合計（ミリ秒）
+     * @see #setHttpDumpAsyncEnabled(boolean)
+     */
+    public long getTotalHttpDumpWriteMillis() {
+        HttpDumpWriter writer = getHttpDumpWriter(false);
+        return writer == null ? 0L : TimeUnit.NANOSECONDS.toMillis(writer.getWriteNanos());
+    }
+
+    /**
+     * キューが満杯のため破棄したHTTPダンプの数を返す。
+     *
+     * @return 破棄したHTTPダンプの数
+     * @see #setHttpDumpBackPressure(String)
+     */
+    public long getHttpDumpDiscardCount() {
+        HttpDumpWriter writer = getHttpDumpWriter(false);
+        return writer == null ? 0L : writer.getDiscardCount();
+    }
+
+    /**
+     * HTTPダンプを別スレッドで出力するライタを取得する。
+     *
+     * @param create ライタが生成されていない場合に生成するか否か
+     * @return ライタ（生成しない場合で、生成されていない場合は{@code null}）
+     */
+    private synchronized HttpDumpWriter getHttpDumpWriter(boolean create) {
+        if (httpDumpWriter == null && create) {
+            httpDumpWriter = new HttpDumpWriter(httpDumpQueueCapacity, httpDumpBackPressure);
+        }
+        return httpDumpWriter;
+    }
+
+    /**
+     * HTTPダンプとともに出力された静的リソース（CSS、JavaScript、画像等）を重複排除するか否かを設定する。
+     * <pre>
+     * 有効な場合、HTTPダンプの出力先ディレクトリごとに最初のダンプを出力した際に、
+     * WARベースパス配下の静的リソースを{@link DumpResourceStore}経由でそのディレクトリに配置する。
+     * 静的リソースはストアに内容のハッシュ値をキーとして1回だけ保存し、ダンプディレクトリにはその実体へのハードリンクを配置する。
+     * ダンプディレクトリに既に出力されている静的リソース（テストフレームワークがコピーしたもの等）も、
+     * ファイルに書き込まずに名前の変更で実体へのリンクに置き換える。
+     * ダンプしたHTMLからの相対パスでの参照はそのまま有効となるため、ディスク上の実体は内容ごとに1つとなる。
+     * このサーバは、テストフレームワーク（{@link nablarch.test.core.http.HttpRequestTestSupport}）による
+     * 静的リソースのコピー自体は無効にしない。コピーされたリソースもリンクに置き換えるためディスク上の実体は増えないが、
+     * コピー時の書き込みは発生する。この書き込みも削減するには、{@link nablarch.test.core.http.HttpTestConfiguration}の
+     * コピー対象の拡張子（htmlResourcesExtensionList）を空にする等、テストフレームワーク側でコピーを行わないようにすること。
+     * ディレクトリごとの配置は、プロセス内の全てのサーバをとおして1回だけ行う。
+     * ストアとダンプディレクトリが異なるファイルシステムにある場合は、リンクの代わりにコピーを配置する。
+     * デフォルトは{@code false}（重複排除しない）。
+     * </pre>
+     * @param httpDumpResourceDedupEnabled 重複排除する場合{@code true}
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setHttpDumpResourceDedupEnabled(boolean httpDumpResourceDedupEnabled) {
+        this.httpDumpResourceDedupEnabled = httpDumpResourceDedupEnabled;
+        return this;
+    }
+
+    /**
+     * 静的リソースの実体を保存するディレクトリのパスを設定する。
+     * <pre>
+     * {@link #setHttpDumpResourceDedupEnabled(boolean)}が有効な場合に使用する。
+     * 最初にHTTPダンプを出力する前に設定すること。
+     * デフォルトはHTTPダンプのルート配下の".dump-resources"ディレクトリ。
+     * </pre>
+     * @param httpDumpResourceStorePath ディレクトリのパス
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setHttpDumpResourceStorePath(String httpDumpResourceStorePath) {
+        this.httpDumpResourceStorePath = httpDumpResourceStorePath;
+        return this;
+    }
+
+    /**
+     * HTTPダンプを、個別のファイルの代わりにZIPファイルに出力するか否かを設定する。
+     * <pre>
+     * 有効な場合、全てのHTTPダンプを1つのZIPファイルのエントリとして順次書き込む。
+     * エントリ名は、{@link #setHttpDumpFilePath(String)}が設定されている場合はHTTPダンプのルートからの相対パス
+     * （ルート配下でない場合は親ディレクトリ名とファイル名）、設定されていない場合は連番、HTTPメソッドとリクエストパスから生成する。
+     * ダンプの出力先ディレクトリにある静的リソース（CSS、JavaScript、画像等）は、ZIPファイルごとに1回だけ含める。
+     * ZIPファイルのサイズが{@link #setHttpDumpArchiveRollSize(long)}を超えると、次のダンプから新しいZIPファイルに書き込む。
+     * 書き込み中のZIPファイルを参照する場合は、{@link #closeHttpDumpArchive()}で閉じること。
+     * 書き込み中のZIPファイルは、サーバの停止時（サーバプールを使用する場合は、{@link #release()}で使用を終了した時や、
+     * 他のオブジェクトにサーバを引き継いだ時）と、JVMの終了時にも閉じる。
+     * ZIPファイルは既存のファイルを上書きしない名前で作成するため、複数のサーバやプロセスで同じディレクトリに出力できる。
+     * デフォルトは{@code false}（個別のファイルに出力する）。
+     * </pre>
+     * @param httpDumpArchiveEnabled ZIPファイルに出力する場合{@code true}
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setHttpDumpArchiveEnabled(boolean httpDumpArchiveEnabled) {
+        this.httpDumpArchiveEnabled = httpDumpArchiveEnabled;
+        return this;
+    }
+
+    /**
+     * HTTPダンプを出力するZIPファイルのディレクトリのパスを設定する。
+     * <pre>
+     * {@link #setHttpDumpArchiveEnabled(boolean)}が有効な場合に使用する。
+     * 最初にHTTPダンプを出力する前に設定すること。デフォルトはHTTPダンプのルート。
+     * </pre>
+     * @param httpDumpArchivePath ディレクトリのパス
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setHttpDumpArchivePath(String httpDumpArchivePath) {
+        this.httpDumpArchivePath = httpDumpArchivePath;
+        return this;
+    }
+
+    /**
+     * HTTPダンプを出力するZIPファイルを切り替えるサイズを設定する。
+     * <pre>
+     * {@link #setHttpDumpArchiveEnabled(boolean)}が有効な場合に使用する。
+     * 最初にHTTPダンプを出力する前に設定すること。デフォルトは64MB。
+     * </pre>
+     * @param httpDumpArchiveRollSize ZIPファイルを切り替えるサイズ（バイト）
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setHttpDumpArchiveRollSize(long httpDumpArchiveRollSize) {
+        if (httpDumpArchiveRollSize < 1) {
+            throw new IllegalArgumentException(
+                    "httpDumpArchiveRollSize must be positive. httpDumpArchiveRollSize = [" + httpDumpArchiveRollSize + "]");
+        }
+        this.httpDumpArchiveRollSize = httpDumpArchiveRollSize;
+        return this;
+    }
+
+    /**
+     * 書き込み中のHTTPダンプのZIPファイルを閉じる。
+     * <pre>
+     * 別スレッドでの出力を待っているHTTPダンプを全て出力してから閉じる。
+     * 次のHTTPダンプは、新しいZIPファイルに書き込む。
+     * {@link #setHttpDumpArchiveEnabled(boolean)}が無効な場合は、何もしない。
+     * </pre>
+     */
+    public void closeHttpDumpArchive() {
+        flushHttpDump();
+        synchronized (dumpLock) {
+            if (httpDumpArchive != null) {
+                httpDumpArchive.close();
+            }
+            deleteHttpDumpScratchFile();
+        }
+    }
+
+    /**
+     * ZIPファイルに出力したHTTPダンプの数を返す。
+     *
+     * @return 出力したHTTPダンプの数
+     * @see #setHttpDumpArchiveEnabled(boolean)
+     */
+    public long getArchivedHttpDumpCount() {
+        return archivedDumpCount.get();
+    }
+
+    /**
+     * 静的リソースに対するレスポンスを、メモリ上にキャッシュする際のサイズの上限を設定する。
+     * <pre>
+     * 0より大きい値を設定した場合、{@link #handle(HttpRequest, ExecutionContext)}で処理した静的リソース
+     * （WARベースパス配下のCSS、JavaScript、画像等）に対するGETリクエストのレスポンスをキャッシュし、
+     * 同じリクエストURIに対する以降のリクエストには、Webアプリケーションにディスパッチせずにキャッシュしたレスポンスを返す。
+     * キャッシュはリクエストURIとリソースの最終更新日時をキーとするため、リソースが更新された場合は再度ディスパッチする。
+     * 条件付きリクエスト（If-Modified-Since、If-None-Match等）と範囲リクエスト（Range）は、キャッシュを使用せずにディスパッチする。
+     * キャッシュしたレスポンスのボディの合計サイズが上限を超えた場合は、最も長く参照されていないものから破棄する。
+     * キャッシュしたレスポンスを返す場合は、ハンドラキューを経由しないため処理完了を待機しない。
+     * 静的リソースに対するリクエストでハンドラキューの処理を検証するテストでは、設定しないこと。
+     * {@link #redeploy()}で再デプロイした場合や、プールされたサーバを再利用した場合、キャッシュは破棄される。
+     * デフォルトは0（キャッシュしない）。
+     * </pre>
+     * @param staticResponseCacheSize キャッシュするボディの合計サイズの上限（バイト）
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setStaticResponseCacheSize(long staticResponseCacheSize) {
+        if (staticResponseCacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "staticResponseCacheSize must not be negative. value = [" + staticResponseCacheSize + "]");
+        }
+        staticResponseCache = staticResponseCacheSize == 0 ? null : new StaticResponseCache(staticResponseCacheSize);
+        return this;
+    }
+
+    /**
+     * 静的リソースに対するレスポンスを、キャッシュから返した回数を返す。
+     *
+     * @return キャッシュから返した回数
+     * @see #setStaticResponseCacheSize(long)
+     */
+    public long getStaticResponseCacheHitCount() {
+        StaticResponseCache cache = staticResponseCache;
+        return cache == null ? 0L : cache.getHitCount();
+    }
+
+    /**
+     * 静的リソースに対するレスポンスが、キャッシュになかった回数を返す。
+     *
+     * @return キャッシュになかった回数
+     * @see #setStaticResponseCacheSize(long)
+     */
+    public long getStaticResponseCacheMissCount() {
+        StaticResponseCache cache = staticResponseCache;
+        return cache == null ? 0L : cache.getMissCount();
+    }
+
+    /**
+     * リクエストの処理完了の待機がタイムアウトした回数を返す。
+     *
+     * @return タイムアウトした回数
+     * @see #setCompletionTimeout(long)
+     */
+    public long getCompletionTimeoutCount() {
+        return completionTimeoutCount.get();
+    }
+
+    /**
+     * リクエストの処理完了を待機した時間の合計を返す。
+     *
+     * @return 待機した時間の合計（ミリ秒）
+     * @see #setCompletionTimeout(long)
+     */
+    public long getTotalCompletionWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(completionWaitNanos.get());
+    }
+
+    /**
+     * デプロイ内容を識別するフィンガープリントを取得する。
+     * <pre>
+     * 起動時（{@link #deploy()}とサーバの生成）に構築されるものを変える設定は、全てフィンガープリントに含める。
+     * 設定の異なるサーバが、プールされたサーバを再利用しないようにするためである。
+     * </pre>
+     * @return フィンガープリント
+     */
+    private String getDeploymentFingerprint() {
+        Fingerprint fingerprint = new Fingerprint();
+        for (ResourceLocator warBasePath : getWarBasePaths()) {
+            fingerprint.add(warBasePath.getRealPath());
+        }
+        return fingerprint.add(getServletContextPath())
+                          .add(deploymentProfile)
+                          .add(toAbsolutePath(getTempDirectory()))
+                          .add(getWebFrontController().getClass().getName())
+                          .add(toAbsolutePath(quickStartDirectory))
+                          .add(warResourceIndexEnabled)
+                          .add(warResourceScanInterval)
+                          .add(toAbsolutePath(jspCacheDirectory))
+                          .add(jspPrecompileEnabled)
+                          .add(maxThreads)
+                          .add(minThreads)
+                          .add(threadIdleTimeout)
+                          .add(reservedThreads)
+                          .add(virtualThreadsEnabled)
+                          .toHex();
+    }
+
+    /**
+     * ディレクトリの絶対パスを取得する。
+     *
+     * @param dir ディレクトリ（{@code null}可）
+     * @return 絶対パス（ディレクトリが{@code null}の場合は{@code null}）
+     */
+    private static String toAbsolutePath(File dir) {
+        return dir == null ? null : dir.getAbsolutePath();
+    }
+
+    /**
+     * {@link #startLocal()}で起動したサーバを{@link WarmServerPool}で再利用するか否かを設定する。
+     * <pre>
+     * デフォルトは{@code false}（再利用しない）。
+     * 再利用する場合、WARベースパス、サーブレットコンテキストパス、一時ディレクトリ等の
+     * デプロイ内容に影響する設定（WARのリソースのインデックス、JSPのキャッシュと起動時のコンパイル、
+     * スレッドプールの設定を含む）が全て同じサーバは、テストクラスをまたいで共有される。
+     * </pre>
+     * @param serverPoolEnabled 再利用する場合{@code true}
+     * @return このオブジェクト自体
+     */
+    public HttpServerJetty12 setServerPoolEnabled(boolean serverPoolEnabled) {
+        this.serverPoolEnabled = serverPoolEnabled;
+        return this;
+    }
+
+    /**
+     * サーバスレッドが終了するまでカレントスレッドをwaitさせる。
+     *
+     * @return このオブジェクト自体
+     */
+    public HttpServer join() {
+        try {
+            jetty.join();
+
+        } catch (InterruptedException e) {
+            // カレントスレッドに割り込み要求を行ってから抜ける。
+            Thread.currentThread().interrupt();
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <pre>
+     * このクラスの実装では、
+     * 引数のHTTPリクエストオブジェクトをHTTPメッセージにシリアライズし、
+     * {@link #setRequestCharset(String)}で指定された文字セットでエンコードして
+     * ローカルコネクションに送信する。
+     * 内蔵アプリケーションサーバでの処理後、返信されたHTTPレスポンスメッセージを
+     * 受信しながらHTTPレスポンスオブジェクトにパースし、この関数の戻り値として返す。
+     * レスポンスボディが{@link #setResponseSpillThreshold(long)}で指定されたサイズを超える場合、
+     * レスポンスボディは一時ファイルを読み出すストリームとして設定される。
+     * {@link #setDirectDispatchEnabled(boolean)}が有効な場合は、シリアライズとパースを行わずに
+     * Webアプリケーションへ直接ディスパッチする。
+     * {@link #setStaticResponseCacheSize(long)}が設定されている場合、キャッシュ済みの静的リソースに対するリクエストは
+     * Webアプリケーションにディスパッチせずに、キャッシュしたレスポンスを返す。
+     * また、HTTPダンプ出力が有効である場合、
+     * そのレスポンスボディの内容を所定のディレクトリに出力する。
+     *
+     * このメソッドは、{@link #startLocal()}で起動した1つのサーバに対して複数のスレッドから並行に呼び出せる。
+     * リクエストごとに個別のローカル接続を使用し、処理完了の待機には引数の実行コンテキストに設定したラッチを使用するため、
+     * 並行に呼び出す場合は、呼び出しごとに別のHTTPリクエストオブジェクトと実行コンテキストを使用すること。
+     * サーバの設定（ハンドラキュー等）の変更は、並行に呼び出す前に完了させておくこと。
+     * 処理完了はリクエストを送信した接続ごとに通知されるため、ハンドラキューに
+     * {@link HttpRequestTestSupportHandler}が含まれる場合も、各リクエストはそれぞれの処理完了を待機する。
+     * 引数のHTTPリクエストは変更しない。
+     * </pre>
+     */
+    public HttpResponse handle(HttpRequest req, ExecutionContext sourceContext) {
+        awaitBackgroundStart();
+        assertLocalConnector();
+        RequestTimings timings = new RequestTimings(req);
+        long lastModified = getStaticResourceLastModified(req);
+        HttpResponse cached = lastModified < 0 ? null : staticResponseCache.get(req.getRequestUri(), lastModified);
+        try {
+            if (cached != null) {
+                // Webアプリケーションにディスパッチしないため、処理完了は待機しない。
+                return completeResponse(req, cached, null, timings);
+            }
+            LocalConnector.LocalEndPoint endPoint = newEndPoint();
+            CountDownLatch latch = prepareRequest(sourceContext, endPoint);
+            try {
+                HttpResponse res = directDispatchEnabled
+                        ? dispatchDirect(req, endPoint, timings) : exchange(req, endPoint, timings);
+                if (lastModified >= 0) {
+                    cacheStaticResponse(req, res, lastModified, timings);
+                }
+                return completeResponse(req, res, latch, timings);
+            } finally {
+                finishRequest(endPoint, latch);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #handle(HttpRequest, ExecutionContext)}を非同期に行う。
+     * <pre>
+     * 呼び出し元のスレッドはレスポンスを待機せずに処理を戻すため、
+     * 1つのスレッドから多数のリクエストを並行に処理させることができる。
+     * {@link #setDirectDispatchEnabled(boolean)}が有効な場合は、Jettyのチャネルの完了通知でレスポンスを受け取るため、
+     * レスポンスを待機するスレッドは使用しない。
+     * 無効な場合は、ローカルコネクタからのレスポンスの受信を、サーバのスレッドプールとは別のスレッド
+     * （実行環境がサポートしている場合は仮想スレッド、サポートしていない場合はスレッド数に上限のある共有のスレッド）で待機する。
+     * 処理完了の待機とHTTPダンプの出力も、同様に別のスレッドで行う。
+     * 起動処理がバックグラウンドで実行中の場合は、起動処理の完了後にリクエストを送信する。
+     * 並行に呼び出す場合の注意事項は、{@link #handle(HttpRequest, ExecutionContext)}と同じ。
+     * </pre>
+     * @param req HTTPリクエスト
+     * @param sourceContext 実行コンテキスト
+     * @return HTTPレスポンスで完了する{@link CompletableFuture}
+     */
+    public CompletableFuture<HttpResponse> handleAsync(HttpRequest req, ExecutionContext sourceContext) {
+        CompletableFuture<HttpServerJetty12> started = backgroundStart;
+        if (started == null) {
+            started = CompletableFuture.completedFuture(this);
+        }
+        return started.thenCompose(server -> {
+            RequestTimings timings = new RequestTimings(req);
+            LocalConnector.LocalEndPoint endPoint = newEndPoint();
+            CountDownLatch latch = prepareRequest(sourceContext, endPoint);
+            CompletableFuture<HttpResponse> exchanged;
+            if (directDispatchEnabled) {
+                exchanged = newDirectDispatcher()
+                        .dispatchAsync(req, endPoint, RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS, timings);
+            } else {
+                exchanged = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return exchange(req, endPoint, timings);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }, ASYNC_WAIT_EXECUTOR);
+            }
+            return exchanged.thenApplyAsync(res -> {
+                try {
+                    return completeResponse(req, res, latch, timings);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }, ASYNC_WAIT_EXECUTOR).whenComplete((res, failure) -> finishRequest(endPoint, latch));
+        });
+    }
+
+    /**
+     * 複数のHTTPリクエストを、1つのローカル接続上で順に処理する。
+     * <pre>
+     * 全てのリクエストをキープアライブした同じ接続で送信するため、リクエストごとの接続の確立が不要となる。
+     * レスポンスでセッションクッキーが発行された場合は、以降のリクエストのクッキーにそのセッションIDを設定する。
+     * （セッションクッキー以外のクッキーは引き継がない）
+     * セッションIDは、引数のリクエストを変更せずに、クッキーを設定したリクエストの複製で送信する。
+     * （{@link MockHttpRequest}以外のリクエストは複製できないため、セッションIDを設定せずにそのまま送信する）
+     * セッションIDをレスポンスから引き継ぐため、次のリクエストは前のレスポンスの受信後に送信する。
+     * 処理完了の待機とHTTPダンプの出力は、{@link #handle(HttpRequest, ExecutionContext)}と同様にリクエストごとに行う。
+     * {@link #setDirectDispatchEnabled(boolean)}が有効な場合は、接続は使用せずに順に直接ディスパッチする。
+     * </pre>
+     * @param requests HTTPリクエストのリスト
+     * @param sourceContext 実行コンテキスト
+     * @return HTTPレスポンスのリスト（リクエストと同じ順序）
+     */
+    public List<HttpResponse> handleAll(List<? extends HttpRequest> requests, ExecutionContext sourceContext) {
+        awaitBackgroundStart();
+        assertLocalConnector();
+        List<HttpResponse> responses = new ArrayList<>(requests.size());
+        LocalConnector.LocalEndPoint connection = directDispatchEnabled ? null : localConnector.connect();
+        String sessionCookieName = webAppContext.getSessionHandler().getSessionCookie();
+        String sessionId = null;
+        try {
+            for (HttpRequest request : requests) {
+                HttpRequest req = withSessionCookie(request, sessionCookieName, sessionId);
+                RequestTimings timings = new RequestTimings(req);
+                LocalConnector.LocalEndPoint endPoint = connection == null ? newEndPoint() : connection;
+                CountDownLatch latch = prepareRequest(sourceContext, endPoint);
+                try {
+                    HttpResponse res = connection == null
+                            ? dispatchDirect(req, endPoint, timings) : exchange(req, endPoint, timings);
+                    responses.add(completeResponse(req, res, latch, timings));
+                    sessionId = findCookie(res, sessionCookieName, sessionId);
+                } finally {
+                    // キープアライブしている接続は、全てのリクエストの送信後に閉じる。
+                    RequestCompletionFilter.unregister(endPoint, latch);
+                    if (endPoint != connection) {
+                        endPoint.close();
+                    }
+                }
+            }
+            return responses;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * セッションクッキーを設定したリクエストを取得する。
+     * <pre>
+     * 引数のリクエストは変更せず、複製したリクエストにセッションクッキーを設定する。
+     * 引数のリクエストにクッキーが設定されていない場合は、セッションクッキーのみを設定する。
+     * セッションIDが{@code null}の場合や、リクエストが{@link MockHttpRequest}でない場合は、引数のリクエストをそのまま返す。
+     * </pre>
+     * @param req HTTPリクエスト
+     * @param name セッションクッキーの名前
+     * @param sessionId セッションID
+     * @return セッションクッキーを設定したリクエスト
+     */
+    private static HttpRequest withSessionCookie(HttpRequest req, String name, String sessionId) {
+        if (sessionId == null) {
+            return req;
+        }
+        if (!(req instanceof MockHttpRequest)) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.logDebug("session id was not carried over because the request can not be copied. "
+                        + "request = [" + req.getClass().getName() + "]");
+            }
+            return req;
+        }
+        MockHttpRequest source = (MockHttpRequest) req;
+        MockHttpRequest copy = new MockHttpRequest();
+        copy.setMethod(source.getMethod());
+        copy.setRequestUri(source.getRequestUri());
+        copy.setRequestPath(source.getRequestPath());
+        copy.setHttpVersion(source.getHttpVersion());
+        copy.setParamMap(new LinkedHashMap<>(source.getParamMap()));
+        copy.setHeaderMap(new LinkedHashMap<>(source.getHeaderMap()));
+        copy.setHost(source.getHost());
+        copy.setMultipart(source.getMultipart());
+        HttpCookie cookie = new HttpCookie();
+        if (source.getCookie() != null) {
+            cookie.putAll(source.getCookie());
+        }
+        cookie.put(name, sessionId);
+        copy.setCookie(cookie);
+        return copy;
+    }
+
+    /**
+     * レスポンスで発行されたクッキーの値を取得する。
+     *
+     * @param res HTTPレスポンス
+     * @param name クッキー名
+     * @param defaultValue クッキーが発行されていない場合に返す値
+     * @return クッキーの値
+     */
+    private static String findCookie(HttpResponse res, String name, String defaultValue) {
+        for (HttpCookie cookie : res.getCookies()) {
+            if (cookie.containsKey(name)) {
+                return cookie.get(name);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * キャッシュの対象となる静的リソースの最終更新日時を取得する。
+     * <pre>
+     * 以下の条件を全て満たすリクエストを、キャッシュの対象とする。
+     *   ・キャッシュが有効で、{@link #startLocal()}で起動していること
+     *   ・GETリクエストで、リクエストパラメータがないこと
+     *   ・条件付きリクエスト（If-Modified-Since、If-None-Match等）や範囲リクエスト（Range）でないこと
+     *   ・リクエストパスの拡張子が{@link DumpResourceStore#DEFAULT_EXTENSIONS}のいずれかであること
+     *   ・リクエストパスがWEB-INF、META-INF配下でなく、WARベースパス配下のファイルに対応すること
+     * </pre>
+     * @param req HTTPリクエスト
+     * @return 最終更新日時（エポックミリ秒）。キャッシュの対象でない場合は-1。
+     */
+    private long getStaticResourceLastModified(HttpRequest req) {
+        if (staticResponseCache == null || localConnector == null
+                || !"GET".equals(req.getMethod()) || !req.getParamMap().isEmpty() || req.getRequestPath() == null
+                || hasConditionalHeader(req)) {
+            return -1L;
+        }
+        String path = req.getRequestPath();
+        int dot = path.lastIndexOf('.');
+        if (dot <= path.lastIndexOf('/')
+                || !DumpResourceStore.DEFAULT_EXTENSIONS.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+            return -1L;
+        }
+        String contextPath = webAppContext.getContextPath();
+        if (!contextPath.isEmpty() && !"/".equals(contextPath)) {
+            if (!path.startsWith(contextPath + '/')) {
+                return -1L;
+            }
+            path = path.substring(contextPath.length());
+        }
+        String upperPath = path.toUpperCase(Locale.ROOT);
+        if (upperPath.startsWith("/WEB-INF/") || upperPath.startsWith("/META-INF/")) {
+            return -1L;
+        }
+        Resource resource = webAppContext.getBaseResource().resolve(path);
+        if (resource == null || !resource.exists() || resource.isDirectory()) {
+            return -1L;
+        }
+        return resource.lastModified().toEpochMilli();
+    }
+
+    /**
+     * 条件付きリクエストまたは範囲リクエストのヘッダが設定されているか否かを判定する。
+     * <pre>
+     * これらのリクエストに対するレスポンス（304、206等）は、ヘッダの内容によって異なるため、キャッシュしない。
+     * ヘッダ名の大文字小文字は区別しない。
+     * </pre>
+     * @param req HTTPリクエスト
+     * @return 設定されている場合{@code true}
+     */
+    private static boolean hasConditionalHeader(HttpRequest req) {
+        for (String name : req.getHeaderMap().keySet()) {
+            if (CONDITIONAL_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 静的リソースに対するレスポンスをキャッシュに格納する。
+     * <pre>
+     * ステータスコードが200で、クッキーを発行しておらず、ボディが一時ファイルに書き出されていないレスポンスのみを格納する。
+     * </pre>
+     * @param req HTTPリクエスト
+     * @param res HTTPレスポンス
+     * @param lastModified リソースの最終更新日時（エポックミリ秒）
+     * @param timings 所要時間の記録先
+     * @throws IOException ボディの読み出しに失敗した場合
+     */
+    private void cacheStaticResponse(HttpRequest req, HttpResponse res, long lastModified, RequestTimings timings)
+            throws IOException {
+        if (res.getStatusCode() != 200 || !res.getCookies().isEmpty() || timings.isResponseSpilled()) {
+            return;
+        }
+        // ボディは一時ファイルに書き出されていないため、キャッシュ用に読み出した後もダンプ等で再度読み出せる。
+        try (InputStream body = res.getBodyStream()) {
+            byte[] bytes = body == null ? new byte[0] : body.readAllBytes();
+            staticResponseCache.put(req.getRequestUri(), lastModified, res, bytes);
+        }
+    }
+
+    /**
+     * リクエストを送信する前の準備を行う。
+     * <pre>
+     * 処理完了が通知される場合は、リクエストを送信する接続に対応付けて、処理完了を待機するためのラッチを登録する。
+     * ラッチは{@link RequestCompletionFilter}が、後続の全ての処理が終わった後にカウントダウンする。
+     * {@link HttpRequestTestSupportHandler}は保持する実行コンテキストのラッチをカウントダウンするため、
+     * 実行コンテキストにもラッチを設定するが、このラッチは待機しない。
+     * （並行に処理する場合、どのリクエストの完了が通知されたかを区別できないため）
+     * </pre>
+     * @param sourceContext 実行コンテキスト
+     * @param endPoint リクエストを送信する接続
+     * @return 処理完了時にカウントダウンされるラッチ（処理完了が通知されない場合は{@code null}）
+     */
+    private CountDownLatch prepareRequest(ExecutionContext sourceContext, LocalConnector.LocalEndPoint endPoint) {
+        if (!isCompletionSignalled()) {
+            return null;
+        }
+        sourceContext.setRequestScopedVar(
+                HttpRequestTestSupportHandler.NABLARCH_JETTY_CONNECTOR_LATCH, new CountDownLatch(1));
+        return RequestCompletionFilter.register(endPoint);
+    }
+
+    /**
+     * リクエストを送信する接続を生成する。
+     * <pre>
+     * {@link #setDirectDispatchEnabled(boolean)}が有効な場合は、チャネルを生成するための接続を、
+     * 無効な場合はローカルコネクタに接続したものを生成する。
+     * </pre>
+     * @return 接続
+     */
+    private LocalConnector.LocalEndPoint newEndPoint() {
+        assertLocalConnector();
+        return directDispatchEnabled ? localConnector.new LocalEndPoint() : localConnector.connect();
+    }
+
+    /**
+     * リクエストの処理を終了する。
+     * <pre>
+     * 処理完了を待機するラッチの登録を解除し、接続を閉じる。
+     * </pre>
+     * @param endPoint リクエストを送信した接続
+     * @param latch 処理完了時にカウントダウンされるラッチ（処理完了が通知されない場合は{@code null}）
+     */
+    private static void finishRequest(LocalConnector.LocalEndPoint endPoint, CountDownLatch latch) {
+        RequestCompletionFilter.unregister(endPoint, latch);
+        endPoint.close();
+    }
+
+    /**
+     * このサーバがテストモードで起動していることを確認する。
+     *
+     * @throws RuntimeException {@link #startLocal()}で起動していない場合
+     * @throws IllegalStateException プールされたサーバを、他の{@link HttpServerJetty12}が使用している場合
+     */
+    private void assertLocalConnector() {
+        if (localConnector == null) {
+            throw new RuntimeException(
+                    "this server is not running on a local connector. "
+                            + "you must call startLocal() method beforehand."
+            );
+        }
+        WarmServerPool.PooledServer pooled = pooledServer;
+        if (pooled != null && !WarmServerPool.getInstance().isOwnedBy(pooled, this)) {
+            throw new IllegalStateException(
+                    "the pooled server has been taken over by another server. "
+                            + "you must call startLocal() method again.");
+        }
+    }
+
+    /**
+     * レスポンスの受信後の処理を行う。
+     * <pre>
+     * 処理完了が通知される場合はその完了を待機し、HTTPダンプ出力が有効な場合はダンプを出力する。
+     * その後、処理の所要時間をリスナに通知する。
+     * </pre>
+     * @param req HTTPリクエスト
+     * @param res HTTPレスポンス
+     * @param latch 処理完了時にカウントダウンされるラッチ（処理完了が通知されない場合は{@code null}）
+     * @param timings 所要時間の記録先
+     * @return HTTPレスポンス
+     * @throws InterruptedException 処理完了の待機中に割り込まれた場合
+     */
+    private HttpResponse completeResponse(HttpRequest req, HttpResponse res, CountDownLatch latch,
+                                          RequestTimings timings) throws InterruptedException {
+        if (latch != null) {
+            timings.recordLatchWait(awaitCompletion(latch, req));
+        }
+        if (isHttpDumpEnabled()) {
+            long begin = System.nanoTime();
+            // ボディが一時ファイルに書き出されていなければ、何度でも読み出せるため別スレッドで出力できる。
+            if (httpDumpAsyncEnabled && !timings.isResponseSpilled()) {
+                String dumpFilePath;
+                synchronized (dumpLock) {
+                    dumpFilePath = httpDumpFilePath;
+                }
+                getHttpDumpWriter(true).submit(() -> writeHttpDump(req, res, dumpFilePath));
+            } else {
+                // ダンプファイルの出力は並行に行うことを想定していないため、排他する。
+                synchronized (dumpLock) {
+                    writeHttpDump(req, res, httpDumpFilePath);
+                }
+            }
+            timings.recordDump(System.nanoTime() - begin);
+        }
+        timings.complete(res.getStatusCode());
+        for (RequestTimingListener listener : requestTimingListeners) {
+            listener.onRequest(timings);
+        }
+        return res;
+    }
+
+    /**
+     * HTTPダンプを出力する。
+     * <pre>
+     * 出力先ファイルのパスを、指定されたもの（別スレッドで出力する場合は出力処理をキューに格納した時点のもの）に
+     * 一時的に戻して出力する。
+     * {@link #setHttpDumpArchiveEnabled(boolean)}が有効な場合は、ZIPファイルに出力する。
+     * </pre>
+     * @param req HTTPリクエスト
+     * @param res HTTPレスポンス
+     * @param dumpFilePath 出力先ファイルのパス
+     */
+    private void writeHttpDump(HttpRequest req, HttpResponse res, String dumpFilePath) {
+        synchronized (dumpLock) {
+            if (httpDumpArchiveEnabled) {
+                archiveHttpDump(req, res, dumpFilePath);
+                return;
+            }
+            boolean changed = !Objects.equals(dumpFilePath, httpDumpFilePath);
+            if (changed) {
+                super.setHttpDumpFilePath(dumpFilePath);
+            }
+            try {
+                dumpHttpMessage(req, res);
+                placeDumpResources(dumpFilePath);
+            } finally {
+                if (changed) {
+                    super.setHttpDumpFilePath(httpDumpFilePath);
+                }
+            }
+        }
+    }
+
+    /**
+     * HTTPダンプをZIPファイルに出力する。
+     * <pre>
+     * 作業用ファイルにダンプを出力した後、その内容をZIPファイルのエントリとして追加する。
+     * 作業用ファイルはダンプごとに作成せず、空にして再利用する。
+     * ZIPファイルごとに、ダンプの出力先ディレクトリにある静的リソースを最初のダンプの前に1回だけ追加する。
+     * 出力に失敗した場合はワーニングログを出力する。
+     * </pre>
+     * @param req HTTPリクエスト
+     * @param res HTTPレスポンス
+     * @param dumpFilePath 出力先ファイルのパス（{@code null}の場合はHTTPダンプのルートに出力する）
+     */
+    private void archiveHttpDump(HttpRequest req, HttpResponse res, String dumpFilePath) {
+        String entryName = null;
+        try {
+            Path root = getHttpDumpRoot().toPath().toAbsolutePath().normalize();
+            Path dumpDir;
+            if (dumpFilePath == null) {
+                String requestPath = req.getRequestPath() == null ? "" : req.getRequestPath();
+                entryName = String.format("%08d_%s%s.html", archivedDumpCount.get() + 1, req.getMethod(),
+                        requestPath.replaceAll("[^A-Za-z0-9.-]", "_"));
+                dumpDir = root;
+            } else {
+                Path file = Path.of(dumpFilePath).toAbsolutePath().normalize();
+                Path parent = file.getParent();
+                Path base = file.startsWith(root) ? root : (parent == null ? null : parent.getParent());
+                entryName = (base == null ? file.getFileName() : base.relativize(file))
+                        .toString().replace('\\', '/');
+                dumpDir = parent == null ? root : parent;
+            }
+            Path scratch = getHttpDumpScratchFile();
+            super.setHttpDumpFilePath(scratch.toString());
+            dumpHttpMessage(req, res);
+            HttpDumpArchive archive = getHttpDumpArchive();
+            int slash = entryName.lastIndexOf('/');
+            archive.addResourcesIfAbsent(dumpDir, entryName.substring(0, slash + 1),
+                    getDumpResourceStore().findResources(dumpDir));
+            archive.add(entryName, scratch);
+            archivedDumpCount.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.logWarn("failed to archive http dump. entry = [" + entryName
+                    + "] dumpFilePath = [" + dumpFilePath + "]", e);
+        } finally {
+            super.setHttpDumpFilePath(httpDumpFilePath);
+        }
+    }
+
+    /**
+     * ZIPファイルに追加するHTTPダンプを書き出す、空の作業用ファイルを取得する。
+     * <pre>
+     * 初回の呼び出しで作成し、以降は前回のダンプの内容を切り詰めて再利用する。
+     * 作業用ファイルは、ZIPファイルを閉じる際とJVMの終了時に削除する。
+     * </pre>
+     * @return 作業用ファイル
+     * @throws IOException 作業用ファイルの作成または切り詰めに失敗した場合
+     */
+    private Path getHttpDumpScratchFile() throws IOException {
+        if (httpDumpScratchFile == null || !Files.exists(httpDumpScratchFile)) {
+            httpDumpScratchFile = Files.createTempFile("nablarch-http-dump", ".html");
+            httpDumpScratchFile.toFile().deleteOnExit();
+        } else {
+            Files.newByteChannel(httpDumpScratchFile, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING).close();
+        }
+        return httpDumpScratchFile;
+    }
+
+    /**
+     * ZIPファイルに追加するHTTPダンプを書き出す作業用ファイルを削除する。
+     * <pre>
+     * 削除に失敗した場合はワーニングログを出力する。（JVMの終了時に再度削除を試みる）
+     * </pre>
+     */
+    private void deleteHttpDumpScratchFile() {
+        Path scratch = httpDumpScratchFile;
+        httpDumpScratchFile = null;
+        if (scratch == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(scratch);
+        } catch (IOException e) {
+            LOGGER.logWarn("failed to delete temporary http dump. file = [" + scratch + "]", e);
+        }
+    }
+
+    /**
+     * HTTPダンプを出力するアーカイブを取得する。
+     *
+     * @return アーカイブ
+     */
+    private HttpDumpArchive getHttpDumpArchive() {
+        if (httpDumpArchive == null) {
+            Path dir = httpDumpArchivePath == null ? getHttpDumpRoot().toPath() : Path.of(httpDumpArchivePath);
+            httpDumpArchive = new HttpDumpArchive(dir, httpDumpArchiveRollSize);
+        }
+        return httpDumpArchive;
+    }
+
+    /**
+     * HTTPダンプの出力先ディレクトリに、静的リソースをストアの実体へのリンクとして配置する。
+     * <pre>
+     * {@link #setHttpDumpResourceDedupEnabled(boolean)}が有効な場合に、ディレクトリごとにプロセス内で1回だけ行う。
+     * WARベースパス配下の静的リソースを配置した後、それ以外に既に出力されている静的リソースもリンクに置き換える。
+     * WARベースパスが複数ある場合は、先に指定されたものを優先する。
+     * 配置に失敗した場合はワーニングログを出力し、リソースはそのまま残す。
+     * </pre>
+     * @param dumpFilePath HTTPダンプの出力先ファイルのパス（{@code null}の場合はHTTPダンプのルートに出力されている）
+     */
+    private void placeDumpResources(String dumpFilePath) {
+        if (!httpDumpResourceDedupEnabled) {
+            return;
+        }
+        File dumpDir = dumpFilePath == null ? getHttpDumpRoot() : new File(dumpFilePath).getAbsoluteFile().getParentFile();
+        if (dumpDir == null || !PREPARED_DUMP_DIRECTORIES.add(dumpDir.toPath().toAbsolutePath().normalize())) {
+            return;
+        }
+        try {
+            DumpResourceStore store = getDumpResourceStore();
+            List<ResourceLocator> warBasePaths = getWarBasePaths();
+            int placed = 0;
+            for (int i = warBasePaths.size() - 1; i >= 0; i--) {
+                String realPath = warBasePaths.get(i).getRealPath();
+                if (realPath != null && new File(realPath).isDirectory()) {
+                    placed += store.placeAll(Path.of(realPath), dumpDir.toPath());
+                }
+            }
+            int replaced = store.deduplicate(dumpDir.toPath());
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.logDebug("placed dump resources. dir = [" + dumpDir + "] placed = [" + placed
+                        + "] replaced = [" + replaced + "]");
+            }
+        } catch (IOException e) {
+            LOGGER.logWarn("failed to place dump resources. dir = [" + dumpDir + "]", e);
+        }
+    }
+
+    /**
+     * 静的リソースを保存するストアを取得する。
+     *
+     * @return ストア
+     */
+    private DumpResourceStore getDumpResourceStore() {
+        if (dumpResourceStore == null) {
+            Path storeDir = httpDumpResourceStorePath == null
+                    ? getHttpDumpRoot().toPath().resolve(DEFAULT_DUMP_RESOURCE_STORE_DIR)
+                    : Path.of(httpDumpResourceStorePath);
+            dumpResourceStore = new DumpResourceStore(storeDir);
+        }
+        return dumpResourceStore;
+    }
+
+    /**
+     * HTTPリクエストをHTTPメッセージにシリアライズして指定された接続に送信し、
+     * 返信されたHTTPレスポンスメッセージをパースする。
+     * <pre>
+     * 接続は閉じない。接続を閉じるのは呼び出し元の責務とする。
+     * </pre>
+     * @param req HTTPリクエスト
+     * @param endPoint 送信先の接続
+     * @param timings 所要時間の記録先
+     * @return HTTPレスポンス
+     * @throws InterruptedException レスポンスの待機中に割り込まれた場合
+     * @throws IOException アップロードファイルの読み込みに失敗した場合
+     */
+    private HttpResponse exchange(HttpRequest req, LocalConnector.LocalEndPoint endPoint, RequestTimings timings)
+            throws InterruptedException, IOException {
+        long begin = System.nanoTime();
+        RequestMessageEncoder encoder = new RequestMessageEncoder(jetty.getByteBufferPool(), requestCharset);
+        RequestMessageEncoder.Message rawReq = encoder.encode(req, DEFAULT_HOST);
+        try {
+            long sent = System.nanoTime();
+            timings.recordRequest(sent - begin, rawReq.size());
+            endPoint.addInput(rawReq.getHead());
+            if (rawReq.getBody() != null) {
+                endPoint.addInput(rawReq.getBody());
+            }
+            StreamingResponseParser parser =
+                    new StreamingResponseParser(responseSpillThreshold, "HEAD".equals(req.getMethod()));
+            HttpResponse res = parser.parse(endPoint, RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            timings.recordResponse(System.nanoTime() - sent - parser.getParseNanos(), parser.getParseNanos(),
+                    parser.getReceivedBytes(), parser.isSpilled());
+            return res;
+        } finally {
+            // タイムアウト等で失敗した場合も、バッファをプールに返却する。
+            encoder.release(rawReq);
+        }
+    }
+
+    /**
+     * HTTPリクエストを、HTTPメッセージにシリアライズせずにWebアプリケーションへディスパッチする。
+     *
+     * @param req HTTPリクエスト
+     * @param endPoint リクエストを受信したものとして扱う接続
+     * @param timings 所要時間の記録先
+     * @return HTTPレスポンス
+     * @throws InterruptedException レスポンスの待機中に割り込まれた場合
+     */
+    private HttpResponse dispatchDirect(HttpRequest req, LocalConnector.LocalEndPoint endPoint,
+                                        RequestTimings timings) throws InterruptedException {
+        return newDirectDispatcher().dispatch(req, endPoint, RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS, timings);
+    }
+
+    /**
+     * このサーバの設定で、HTTPリクエストを直接ディスパッチするオブジェクトを生成する。
+     *
+     * @return 生成したオブジェクト
+     */
+    private DirectDispatcher newDirectDispatcher() {
+        return new DirectDispatcher(localConnector, jetty.getThreadPool(), requestCharset, responseSpillThreshold);
+    }
+
+    /**
+     * ハンドラキューに、リクエストの処理完了を通知するハンドラが含まれるか否かを判定する。
+     * <pre>
+     * {@link HttpRequestTestSupportHandler}は、リクエストの処理完了時に
+     * {@link HttpRequestTestSupportHandler#NABLARCH_JETTY_CONNECTOR_LATCH}のラッチをカウントダウンする。
+     * このハンドラが含まれない場合は完了が通知されないため、完了を待機しない。
+     * </pre>
+     * @return 処理完了が通知される場合{@code true}
+     */
+    private boolean isCompletionSignalled() {
+        for (Object handler : getHandlerQueue()) {
+            if (handler instanceof HttpRequestTestSupportHandler) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * リクエストの処理完了を待機する。
+     * <pre>
+     * 処理完了の待機時間を記録し、デバッグログに出力する。
+     * タイムアウトした場合は、タイムアウト回数を記録してワーニングログを出力する。
+     * </pre>
+     * @param latch 処理完了時にカウントダウンされるラッチ
+     * @param req HTTPリクエスト
+     * @return 待機した時間（ナノ秒）
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    private long awaitCompletion(CountDownLatch latch, HttpRequest req) throws InterruptedException {
+        long begin = System.nanoTime();
+        boolean completed = latch.await(completionTimeout, TimeUnit.MILLISECONDS);
+        long waitNanos = System.nanoTime() - begin;
+        completionWaitNanos.addAndGet(waitNanos);
+        if (!completed) {
+            completionTimeoutCount.incrementAndGet();
+            LOGGER.logWarn("request did not complete within the timeout. "
+                    + "the request scope of the test may not be updated. uri = [" + req.getRequestUri()
+                    + "] completionTimeout = [" + completionTimeout + "ms]");
+        } else if (LOGGER.isDebugEnabled()) {
+            LOGGER.logDebug("request completed. uri = [" + req.getRequestUri()
+                    + "] completionWaitMillis = [" + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "]");
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Jettyサーバインスタンスの初期化を行う。
+     *
+     * @param conn このサーバがacceptするコネクタ
+     */
+    private void initialize(Connector conn) {
+        jetty.addConnector(conn);
+        // 再デプロイ時に、サーバを停止せずにWebアプリケーションを差し替えられるようにする。
+        jetty.setHandler(new Handler.Wrapper(true));
+        deploy();
+    }
+
+    /**
+     * 内部サーバにWARをデプロイする。
+     * <pre>
+     * エントリポイントサーブレットと、
+     * {@link #setWarBasePath(String)}で指定されたパス上に存在するWARをデプロイする。
+     * {@link #setQuickStartDirectory(String)}でquickstartディスクリプタの保存先が指定されている場合、
+     * ディスクリプタを使用してデプロイする。（存在しない場合は生成してから使用する）
+     * </pre>
+     */
+    private void deploy() {
+        WebAppContext webApp = newDeployment();
+        webAppContext = webApp;
+        ((Handler.Wrapper) jetty.getHandler()).setHandler(webApp);
+    }
+
+    /**
+     * デプロイするWebアプリケーションを、フィルタ等を設定した状態で生成する。
+     *
+     * @return Webアプリケーション
+     */
+    private WebAppContext newDeployment() {
+        QuickStartDescriptor quickStart = null;
+        if (quickStartDirectory != null) {
+            quickStart = QuickStartDescriptor.of(
+                    quickStartDirectory, getWarBasePaths(), deploymentProfile,
+                    Thread.currentThread().getContextClassLoader());
+            if (!quickStart.exists()) {
+                long begin = System.nanoTime();
+                // ディスクリプタ生成時の各フェーズの所要時間は、起動処理の所要時間には含めない。
+                quickStart.generate(newWebAppContext(new StartupTimings(deploymentProfile.getProfileName())));
+                startupTimings.record("quickStartGenerate", System.nanoTime() - begin);
+            }
+        }
+
+        WebAppContext webApp = newWebAppContext(startupTimings);
+        // 後続の全てのフィルタの処理が終わった後に処理完了を通知するため、最初に追加する。
+        webApp.addFilter(new FilterHolder(new RequestCompletionFilter()), "/*",
+                EnumSet.of(DispatcherType.REQUEST));
+        webApp.addFilter(LazySessionInvalidationFilter.class, "/*",
+                EnumSet.of(DispatcherType.REQUEST));
+
+        Filter webFrontController = getWebFrontController();
+        if (serverPoolEnabled) {
+            frontControllerFilter = new SwitchableFilter(webFrontController);
+            webFrontController = frontControllerFilter;
+            sessionTracker = new SessionTracker();
+            webApp.getSessionHandler().addEventListener(sessionTracker);
+        }
+        webApp.addFilter(
+                new FilterHolder(webFrontController)
+                , "/*"
+                , EnumSet.of(DispatcherType.REQUEST)
         );
 
-        Configuration[] configurations = {
-                new WebAppConfiguration(),
-                new JspConfiguration(),
-                new WebInfConfiguration(),
-                new WebXmlConfiguration(),
-                new AnnotationConfiguration()
-        };
-        webApp.setConfigurations(configurations);
+        if (quickStart != null && quickStart.exists()) {
+            quickStart.apply(webApp);
+        }
+
+        if (jspCacheDirectory != null && deploymentProfile.isJspEnabled()) {
+            new JspClassCache(jspCacheDirectory).install(webApp);
+        }
+        return webApp;
+    }
+
+    /**
+     * デプロイするWebアプリケーションを生成する。
+     * <pre>
+     * {@link #setWarBasePath(String)}で指定されたパス上に存在するWARを、
+     * このサーバの設定でデプロイするWebアプリケーションを生成する。
+     * エントリポイントサーブレット等のフィルタは追加しない。
+     * </pre>
+     * @param timings 起動処理の所要時間の記録先
+     * @return Webアプリケーション
+     */
+    private WebAppContext newWebAppContext(StartupTimings timings) {
+        WebAppContext webApp = new TimedWebAppContext(timings);
+        SessionHandler sessionHandler = new SessionHandler();
+        sessionHandler.setSessionIdPathParameterName("none");
+        // デフォルトは COOKIE と URL が設定されるが、 URL が設定されている場合 SessionIdPathParameterName が
+        // none または未設定だと NullPointerException が発生してしまうので、 COOKIE だけに固定している
+        sessionHandler.setSessionTrackingModes(Set.of(SessionTrackingMode.COOKIE));
+        webApp.setSessionHandler(sessionHandler);
+        webApp.setContextPath(getServletContextPath());
+        long begin = System.nanoTime();
+        Resource baseResource = toResourceCollection(getWarBasePaths());
+        if (warResourceIndexEnabled) {
+            IndexedOverlayResource indexed = new IndexedOverlayResource(baseResource);
+            if (warResourceScanInterval > 0) {
+                webApp.addBean(indexed.newScanner(warResourceScanInterval), true);
+            }
+            baseResource = indexed;
+        }
+        webApp.setBaseResource(baseResource);
+        timings.record("resources", System.nanoTime() - begin);
+        webApp.setClassLoader(Thread.currentThread().getContextClassLoader());
+
+        StandardJarScanner scanner = new StandardJarScanner();
+        scanner.setScanManifest(false);
+        webApp.setAttribute(JarScanner.class.getName(), scanner);
+
+        webApp.setTempDirectoryPersistent(true);
+
+        deploymentProfile.configure(webApp);
 
         File tmpDir = getTempDirectory();
         if (tmpDir != null) {
             webApp.setTempDirectory(tmpDir);
         }
-
-        jetty.setHandler(webApp);
+        return webApp;
     }
 
     /**
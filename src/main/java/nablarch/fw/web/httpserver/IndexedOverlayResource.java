@@ -0,0 +1,289 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.util.Scanner;
+import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.resource.CombinedResource;
+import org.eclipse.jetty.util.resource.Resource;
+
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+
+/**
+ * 複数のWARベースパスを重ね合わせたリソースを、索引を使用して解決する{@link Resource}。
+ * <p/>
+ * {@link org.eclipse.jetty.util.resource.ResourceFactory#combine(List)}で結合したリソースは、
+ * パスを解決するたびに全てのWARベースパスを順に探索する。
+ * このクラスは、生成時に全てのWARベースパス上のファイルを走査し、
+ * パスごとに優先される（先に指定された）WARベースパスを索引として保持する。
+ * また、解決したリソースをパスごとに保持し、同じパスの2回目以降の解決ではWARベースパスを探索しない。
+ * <p/>
+ * 索引にないパス（ディレクトリや存在しないファイル）は、結合したリソースに解決を委譲する。
+ * 索引は生成時のファイル構成に基づくため、デプロイ後にファイルを追加・削除する場合は
+ * {@link #newScanner(int)}で生成したスキャナで変更を監視し、索引を再構築する必要がある。
+ */
+class IndexedOverlayResource extends Resource {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(IndexedOverlayResource.class);
+
+    /** 解決結果を保持するパスの上限数（超えた場合は全て破棄する） */
+    private static final int MAX_RESOLVED_ENTRIES = 10000;
+
+    /** 結合したリソース */
+    private final Resource delegate;
+
+    /** 重ね合わせるリソース（優先される順） */
+    private final List<Resource> overlays;
+
+    /** ファイルのパスをキーとした、優先されるリソースの{@link #overlays}上の位置 */
+    private volatile Map<String, Integer> index;
+
+    /** パスをキーとした解決済みのリソース */
+    private final Map<String, Resource> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param delegate 結合したリソース
+     */
+    IndexedOverlayResource(Resource delegate) {
+        this.delegate = delegate;
+        this.overlays = delegate instanceof CombinedResource
+                ? ((CombinedResource) delegate).getResources()
+                : Collections.singletonList(delegate);
+        this.index = buildIndex();
+    }
+
+    /**
+     * 全てのWARベースパス上のファイルを走査し、索引を構築する。
+     *
+     * @return 索引
+     */
+    private Map<String, Integer> buildIndex() {
+        long begin = System.nanoTime();
+        Map<String, Integer> newIndex = new HashMap<>();
+        for (int i = 0; i < overlays.size(); i++) {
+            Path root = overlays.get(i).getPath();
+            if (root == null || !Files.isDirectory(root)) {
+                continue;
+            }
+            final int position = i;
+            try (Stream<Path> files = Files.walk(root)) {
+                files.filter(Files::isRegularFile)
+                     .forEach(file -> newIndex.putIfAbsent(toKey(root.relativize(file)), position));
+            } catch (IOException e) {
+                throw new IllegalStateException("failed to index the war base path. path = [" + root + "]", e);
+            }
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.logDebug("indexed war resources. files = [" + newIndex.size()
+                    + "] overlays = [" + overlays.size()
+                    + "] millis = [" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) + "]");
+        }
+        return newIndex;
+    }
+
+    /**
+     * 索引を再構築し、解決済みのリソースを破棄する。
+     */
+    void invalidate() {
+        index = buildIndex();
+        resolved.clear();
+    }
+
+    /**
+     * WARベースパス上のファイルの変更を監視し、変更があった場合に索引を再構築するスキャナを生成する。
+     * <p/>
+     * スキャナは起動されていない状態で返す。
+     *
+     * @param scanInterval 監視間隔（秒）
+     * @return スキャナ
+     */
+    Scanner newScanner(int scanInterval) {
+        List<Path> dirs = new ArrayList<>(overlays.size());
+        for (Resource overlay : overlays) {
+            Path root = overlay.getPath();
+            if (root != null && Files.isDirectory(root)) {
+                dirs.add(root);
+            }
+        }
+        Scanner scanner = new Scanner();
+        scanner.setScanDirs(dirs);
+        scanner.setScanDepth(Scanner.MAX_SCAN_DEPTH);
+        scanner.setScanInterval(scanInterval);
+        scanner.setReportExistingFilesOnStartup(false);
+        scanner.addListener((Scanner.BulkListener) filenames -> {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.logDebug("war resources changed. files = " + filenames);
+            }
+            invalidate();
+        });
+        return scanner;
+    }
+
+    /**
+     * 相対パスを索引のキーに変換する。
+     *
+     * @param relative WARベースパスからの相対パス
+     * @return 索引のキー
+     */
+    private static String toKey(Path relative) {
+        StringBuilder key = new StringBuilder();
+        for (Path name : relative) {
+            if (key.length() > 0) {
+                key.append('/');
+            }
+            key.append(name);
+        }
+        return key.toString();
+    }
+
+    @Override
+    public Resource resolve(String subUriPath) {
+        if (subUriPath.isEmpty() || "/".equals(subUriPath)) {
+            return this;
+        }
+        Resource resource = resolved.get(subUriPath);
+        if (resource != null) {
+            return resource;
+        }
+        String key = subUriPath.startsWith("/") ? subUriPath.substring(1) : subUriPath;
+        Integer position = key.endsWith("/") ? null : index.get(URIUtil.decodePath(key));
+        resource = position == null ? delegate.resolve(subUriPath) : overlays.get(position).resolve(subUriPath);
+        if (resource != null) {
+            if (resolved.size() >= MAX_RESOLVED_ENTRIES) {
+                resolved.clear();
+            }
+            resolved.put(subUriPath, resource);
+        }
+        return resource;
+    }
+
+    @Override
+    public Path getPath() {
+        return delegate.getPath();
+    }
+
+    @Override
+    public boolean isContainedIn(Resource container) {
+        return delegate.isContainedIn(container);
+    }
+
+    @Override
+    public boolean contains(Resource other) {
+        return delegate.contains(other);
+    }
+
+    @Override
+    public Path getPathTo(Resource other) {
+        return delegate.getPathTo(other);
+    }
+
+    @Override
+    public Iterator<Resource> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public boolean exists() {
+        return delegate.exists();
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return delegate.isDirectory();
+    }
+
+    @Override
+    public boolean isReadable() {
+        return delegate.isReadable();
+    }
+
+    @Override
+    public Instant lastModified() {
+        return delegate.lastModified();
+    }
+
+    @Override
+    public long length() {
+        return delegate.length();
+    }
+
+    @Override
+    public URI getURI() {
+        return delegate.getURI();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getFileName() {
+        return delegate.getFileName();
+    }
+
+    @Override
+    public InputStream newInputStream() throws IOException {
+        return delegate.newInputStream();
+    }
+
+    @Override
+    public ReadableByteChannel newReadableByteChannel() throws IOException {
+        return delegate.newReadableByteChannel();
+    }
+
+    @Override
+    public List<Resource> list() {
+        return delegate.list();
+    }
+
+    @Override
+    public boolean isAlias() {
+        return delegate.isAlias();
+    }
+
+    @Override
+    public URI getRealURI() {
+        return delegate.getRealURI();
+    }
+
+    @Override
+    public void copyTo(Path destination) throws IOException {
+        delegate.copyTo(destination);
+    }
+
+    @Override
+    public Collection<Resource> getAllResources() {
+        return delegate.getAllResources();
+    }
+
+    @Override
+    public boolean isSameFile(Path path) {
+        return delegate.isSameFile(path);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
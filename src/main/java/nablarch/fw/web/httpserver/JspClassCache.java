@@ -0,0 +1,248 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+import org.apache.jasper.compiler.JspUtil;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.ee10.webapp.WebAppContext;
+import org.eclipse.jetty.util.resource.Resource;
+
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+
+/**
+ * JSPのコンパイル結果を、JSPの内容をキーとしてプロセスをまたいで再利用するためのキャッシュ。
+ * <p/>
+ * Jasperは、生成したクラスファイルの最終更新日時とJSPの最終更新日時が一致しない場合に再コンパイルを行う。
+ * このため、ビルドのたびにJSPがコピーされる環境（テストリソースとしてJSPを配置している場合など）や、
+ * 一時ディレクトリが異なる環境では、内容が変わっていなくても毎回JSPがコンパイルされてしまう。
+ * <p/>
+ * このクラスは、JSPサーブレットの出力先（scratchdir）を、Jasperの設定とタグライブラリから算出した
+ * フィンガープリントごとのディレクトリに固定する。
+ * また、JSPごとに内容のハッシュ値とコンパイル時の最終更新日時をマニフェストとして記録しておき、
+ * 起動時に内容が一致するJSPについては、コンパイル済みクラスの最終更新日時をJSPに合わせることで、
+ * 内容が変更されたJSPのみが再コンパイルされるようにする。
+ * <p/>
+ * インクルードしているファイルの最終更新日時が変わった場合は、Jasperの判定により再コンパイルされる。
+ */
+class JspClassCache {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(JspClassCache.class);
+
+    /** JSPサーブレットの名前 */
+    private static final String JSP_SERVLET_NAME = "jsp";
+
+    /** 出力先ディレクトリを指定する初期化パラメータ */
+    private static final String SCRATCH_DIR = "scratchdir";
+
+    /** 生成クラスのパッケージを指定する初期化パラメータ */
+    private static final String PACKAGE_NAME = "generatedJspPackageName";
+
+    /** 生成クラスのデフォルトのパッケージ */
+    private static final String DEFAULT_PACKAGE_NAME = "org.apache.jsp";
+
+    /** マニフェストのファイル名 */
+    private static final String MANIFEST_FILE_NAME = "jsp-cache.properties";
+
+    /** キャッシュのルートディレクトリ */
+    private final File directory;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param directory キャッシュのルートディレクトリ
+     */
+    JspClassCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Webアプリケーションのコンパイル結果をこのキャッシュに出力するよう設定する。
+     * <p/>
+     * 出力先の設定は、web.xmlの読み込み後、JSPサーブレットの初期化前に行う必要があるため、
+     * コンテキストの初期化時に行う。
+     *
+     * @param webApp 設定対象のWebアプリケーション
+     */
+    void install(final WebAppContext webApp) {
+        webApp.addEventListener(new ServletContextListener() {
+            @Override
+            public void contextInitialized(ServletContextEvent sce) {
+                ServletHolder jspServlet = webApp.getServletHandler().getServlet(JSP_SERVLET_NAME);
+                if (jspServlet == null) {
+                    return;
+                }
+                if (jspServlet.getInitParameter(SCRATCH_DIR) != null) {
+                    LOGGER.logInfo("jsp class cache is not used because the scratch directory is configured. "
+                            + "scratchdir = [" + jspServlet.getInitParameter(SCRATCH_DIR) + "]");
+                    return;
+                }
+                try {
+                    prepare(webApp, jspServlet);
+                } catch (IOException e) {
+                    LOGGER.logWarn("failed to prepare the jsp class cache. directory = [" + directory + "]", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * JSPサーブレットの出力先を設定し、内容が変わっていないJSPのコンパイル結果を再利用できるようにする。
+     *
+     * @param webApp Webアプリケーション
+     * @param jspServlet JSPサーブレット
+     * @throws IOException 入出力エラー
+     */
+    private void prepare(WebAppContext webApp, ServletHolder jspServlet) throws IOException {
+        Map<String, String> jspHashes = new TreeMap<>();
+        Map<String, Long> jspLastModified = new TreeMap<>();
+        Fingerprint fingerprint = new Fingerprint()
+                .add(System.getProperty("java.specification.version"))
+                .add(new TreeMap<>(jspServlet.getInitParameters()))
+                .addClassPath(webApp.getClassLoader());
+        scan(webApp.getBaseResource(), "/", fingerprint, jspHashes, jspLastModified);
+
+        File scratchDir = new File(directory, fingerprint.toHex());
+        Files.createDirectories(scratchDir.toPath());
+        jspServlet.setInitParameter(SCRATCH_DIR, scratchDir.getAbsolutePath());
+
+        String packageName = jspServlet.getInitParameter(PACKAGE_NAME);
+        if (packageName == null) {
+            packageName = DEFAULT_PACKAGE_NAME;
+        }
+        Path manifestPath = scratchDir.toPath().resolve(MANIFEST_FILE_NAME);
+        Properties manifest = load(manifestPath);
+        int reused = 0;
+        for (Map.Entry<String, String> jsp : jspHashes.entrySet()) {
+            String jspUri = jsp.getKey();
+            long lastModified = jspLastModified.get(jspUri);
+            String[] entry = manifest.getProperty(jspUri, "").split(",");
+            File classFile = getServletFile(scratchDir, packageName, jspUri, ".class");
+            if (entry.length == 2 && entry[0].equals(jsp.getValue())
+                    && classFile.lastModified() == Long.parseLong(entry[1])
+                    && lastModified != Long.parseLong(entry[1])) {
+                // 内容が同じJSPからコンパイルされたクラスなので、最終更新日時を合わせて再利用する。
+                File javaFile = getServletFile(scratchDir, packageName, jspUri, ".java");
+                if (classFile.setLastModified(lastModified)) {
+                    javaFile.setLastModified(lastModified);
+                    reused++;
+                }
+            }
+            // コンパイル前であっても記録しておく。（コンパイル時にクラスの最終更新日時はJSPと同じになる）
+            manifest.setProperty(jspUri, jsp.getValue() + "," + lastModified);
+        }
+        store(manifestPath, manifest);
+        LOGGER.logInfo("jsp class cache prepared. scratchdir = [" + scratchDir
+                + "] jsp = [" + jspHashes.size() + "] reused = [" + reused + "]");
+    }
+
+    /**
+     * リソースを再帰的に走査し、JSPのハッシュ値とタグライブラリディスクリプタの内容を収集する。
+     *
+     * @param dir 走査するディレクトリ
+     * @param uri ディレクトリのURI（コンテキストルートからのパス）
+     * @param fingerprint タグライブラリディスクリプタの内容を追加するフィンガープリント
+     * @param jspHashes JSPのURIとハッシュ値の格納先
+     * @param jspLastModified JSPのURIと最終更新日時の格納先
+     * @throws IOException 入出力エラー
+     */
+    private static void scan(Resource dir, String uri, Fingerprint fingerprint,
+                             Map<String, String> jspHashes, Map<String, Long> jspLastModified) throws IOException {
+        for (Resource child : dir.list()) {
+            String childUri = uri + child.getFileName();
+            if (child.isDirectory()) {
+                scan(child, childUri + "/", fingerprint, jspHashes, jspLastModified);
+            } else if (childUri.endsWith(".jsp") || childUri.endsWith(".jspx")) {
+                jspHashes.put(childUri, hash(new Fingerprint(), child).toHex());
+                jspLastModified.put(childUri, child.lastModified().toEpochMilli());
+            } else if (childUri.endsWith(".tld") || childUri.endsWith(".tag") || childUri.endsWith(".tagx")) {
+                hash(fingerprint.add(childUri), child);
+            }
+        }
+    }
+
+    /**
+     * リソースの内容をフィンガープリントに追加する。
+     *
+     * @param fingerprint 追加先のフィンガープリント
+     * @param resource リソース
+     * @return 引数のフィンガープリント
+     * @throws IOException 入出力エラー
+     */
+    private static Fingerprint hash(Fingerprint fingerprint, Resource resource) throws IOException {
+        byte[] buffer = new byte[8192];
+        try (InputStream in = resource.newInputStream()) {
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                fingerprint.add(buffer, length);
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * JSPから生成されるサーブレットのファイルを取得する。
+     * <p/>
+     * ファイルのパスは、Jasperと同じ規則で算出する。
+     *
+     * @param scratchDir 出力先ディレクトリ
+     * @param packageName 生成クラスのパッケージ
+     * @param jspUri JSPのURI
+     * @param suffix ファイルの拡張子
+     * @return サーブレットのファイル
+     */
+    private static File getServletFile(File scratchDir, String packageName, String jspUri, String suffix) {
+        int separator = jspUri.lastIndexOf('/');
+        String derivedPackage = separator > 0 ? JspUtil.makeJavaPackage(jspUri.substring(1, separator)) : "";
+        String servletPackage = derivedPackage.isEmpty() ? packageName : packageName + '.' + derivedPackage;
+        return new File(new File(scratchDir, servletPackage.replace('.', File.separatorChar)),
+                JspUtil.makeJavaIdentifier(jspUri.substring(separator + 1)) + suffix);
+    }
+
+    /**
+     * マニフェストを読み込む。
+     *
+     * @param path マニフェストのパス
+     * @return マニフェスト（存在しない場合は空）
+     * @throws IOException 入出力エラー
+     */
+    private static Properties load(Path path) throws IOException {
+        Properties manifest = new Properties();
+        if (Files.isRegularFile(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                manifest.load(in);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * マニフェストを保存する。
+     * <p/>
+     * 複数のプロセスで同じキャッシュを共有できるよう、一時ファイルに書き込んでから置き換える。
+     *
+     * @param path マニフェストのパス
+     * @param manifest マニフェスト
+     * @throws IOException 入出力エラー
+     */
+    private static void store(Path path, Properties manifest) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            manifest.store(out, null);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,243 @@
+package nablarch.fw.web.httpserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+
+import org.apache.jasper.EmbeddedServletOptions;
+import org.apache.jasper.Options;
+import org.apache.jasper.compiler.JspRuntimeContext;
+import org.apache.jasper.servlet.JspServletWrapper;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.ee10.webapp.WebAppContext;
+import org.eclipse.jetty.util.resource.Resource;
+
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+
+/**
+ * 起動済みのWebアプリケーションに含まれるJSPを並列にコンパイルするクラス。
+ * <p/>
+ * JSPは通常、最初にアクセスされたリクエストの処理中にコンパイルされる。
+ * このクラスを使用して起動時にコンパイルしておくことで、
+ * 最初のリクエストの処理時間がJSPのコンパイルによって大きくなることを防ぐ。
+ * <p/>
+ * コンパイル結果は、JSPサーブレットと同じ出力先に同じ規則で出力されるため、
+ * リクエストの処理時にはコンパイル済みのクラスがそのまま使用される。
+ */
+class JspPrecompiler {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(JspPrecompiler.class);
+
+    /** JSPサーブレットの名前 */
+    private static final String JSP_SERVLET_NAME = "jsp";
+
+    /** コンパイルに使用するスレッド数 */
+    private final int parallelism;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param parallelism コンパイルに使用するスレッド数
+     */
+    JspPrecompiler(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Webアプリケーションに含まれる全てのJSPをコンパイルする。
+     * <p/>
+     * コンパイルに失敗したJSPがあった場合も、残りのJSPのコンパイルは継続する。
+     * 失敗したJSPは、リクエストの処理時に改めてコンパイルされる。
+     *
+     * @param webApp 起動済みのWebアプリケーション
+     * @return コンパイル結果
+     */
+    List<Result> precompile(final WebAppContext webApp) {
+        ServletHolder jspServlet = webApp.getServletHandler().getServlet(JSP_SERVLET_NAME);
+        if (jspServlet == null) {
+            LOGGER.logInfo("jsp precompilation skipped because the jsp servlet is not deployed.");
+            return new ArrayList<>();
+        }
+
+        final ClassLoader webAppClassLoader = webApp.getClassLoader();
+        final ServletContext servletContext = webApp.getServletContext();
+        final ServletConfig config;
+        final Options options;
+        final JspRuntimeContext runtimeContext;
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(webAppClassLoader);
+        try {
+            config = jspServlet.getServlet().getServletConfig();
+            options = new EmbeddedServletOptions(config, servletContext);
+            runtimeContext = new JspRuntimeContext(servletContext, options);
+        } catch (Exception e) {
+            throw new IllegalStateException("failed to initialize the jsp compiler.", e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+
+        List<String> jspUris = new ArrayList<>();
+        findJsp(webApp.getBaseResource(), "/", jspUris);
+
+        long begin = System.nanoTime();
+        List<Callable<Result>> tasks = new ArrayList<>(jspUris.size());
+        for (final String jspUri : jspUris) {
+            tasks.add(() -> compile(jspUri, config, options, runtimeContext, webAppClassLoader));
+        }
+        List<Result> results = new ArrayList<>(jspUris.size());
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<Result> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("jsp precompilation was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("jsp precompilation failed.", e.getCause());
+        } finally {
+            pool.shutdown();
+            runtimeContext.destroy();
+        }
+
+        int failed = 0;
+        for (Result result : results) {
+            if (!result.isSucceeded()) {
+                failed++;
+            }
+        }
+        LOGGER.logInfo("jsp precompilation finished. jsp = [" + results.size() + "] failed = [" + failed
+                + "] parallelism = [" + parallelism + "] elapsedMillis = ["
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) + "]");
+        return results;
+    }
+
+    /**
+     * JSPを1つコンパイルする。
+     *
+     * @param jspUri JSPのURI
+     * @param config JSPサーブレットの設定
+     * @param options Jasperの設定
+     * @param runtimeContext Jasperの実行時コンテキスト
+     * @param webAppClassLoader Webアプリケーションのクラスローダ
+     * @return コンパイル結果
+     */
+    private static Result compile(String jspUri, ServletConfig config, Options options,
+                                  JspRuntimeContext runtimeContext, ClassLoader webAppClassLoader) {
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        thread.setContextClassLoader(webAppClassLoader);
+        long begin = System.nanoTime();
+        try {
+            JspServletWrapper wrapper = new JspServletWrapper(config, options, jspUri, runtimeContext);
+            wrapper.getJspEngineContext().compile();
+            Result result = new Result(jspUri, System.nanoTime() - begin, null);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.logDebug("jsp precompiled. " + result);
+            }
+            return result;
+        } catch (Exception e) {
+            Result result = new Result(jspUri, System.nanoTime() - begin, e);
+            LOGGER.logWarn("failed to precompile jsp. " + result, e);
+            return result;
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    /**
+     * リソースを再帰的に走査し、JSPのURIを収集する。
+     *
+     * @param dir 走査するディレクトリ
+     * @param uri ディレクトリのURI（コンテキストルートからのパス）
+     * @param jspUris JSPのURIの格納先
+     */
+    private static void findJsp(Resource dir, String uri, List<String> jspUris) {
+        for (Resource child : dir.list()) {
+            String childUri = uri + child.getFileName();
+            if (child.isDirectory()) {
+                findJsp(child, childUri + "/", jspUris);
+            } else if (childUri.endsWith(".jsp") || childUri.endsWith(".jspx")) {
+                jspUris.add(childUri);
+            }
+        }
+    }
+
+    /**
+     * JSP1つ分のコンパイル結果。
+     */
+    static final class Result {
+
+        /** JSPのURI */
+        private final String jspUri;
+
+        /** コンパイルに要した時間（ナノ秒） */
+        private final long elapsedNanos;
+
+        /** コンパイルに失敗した場合の例外 */
+        private final Exception failure;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param jspUri JSPのURI
+         * @param elapsedNanos コンパイルに要した時間（ナノ秒）
+         * @param failure コンパイルに失敗した場合の例外（成功した場合は{@code null}）
+         */
+        Result(String jspUri, long elapsedNanos, Exception failure) {
+            this.jspUri = jspUri;
+            this.elapsedNanos = elapsedNanos;
+            this.failure = failure;
+        }
+
+        /**
+         * JSPのURIを返す。
+         *
+         * @return JSPのURI
+         */
+        String getJspUri() {
+            return jspUri;
+        }
+
+        /**
+         * コンパイルに要した時間を返す。
+         *
+         * @return コンパイルに要した時間（ミリ秒）
+         */
+        long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * コンパイルに成功したか否かを返す。
+         *
+         * @return 成功した場合{@code true}
+         */
+        boolean isSucceeded() {
+            return failure == null;
+        }
+
+        /**
+         * コンパイルに失敗した場合の例外を返す。
+         *
+         * @return 例外（成功した場合は{@code null}）
+         */
+        Exception getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return "jsp = [" + jspUri + "] elapsedMillis = [" + getElapsedMillis() + "]";
+        }
+    }
+}
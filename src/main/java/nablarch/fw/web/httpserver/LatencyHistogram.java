@@ -0,0 +1,144 @@
+package nablarch.fw.web.httpserver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * レイテンシ（マイクロ秒）の分布を記録するヒストグラム。
+ * <p/>
+ * 値の範囲を2のべき乗ごとに区切り、さらに各範囲を64個のバケットに等分して件数を記録する。
+ * このため、記録した値は有効桁数およそ2桁（誤差1.6%以内）の精度で保持され、
+ * 値の大きさによらず一定のメモリで任意のパーセンタイルを求めることができる。
+ * 128マイクロ秒未満の値は、1マイクロ秒単位で正確に記録される。
+ * <p/>
+ * 複数のスレッドから同時に記録できる。
+ */
+final class LatencyHistogram {
+
+    /** 各範囲を等分するバケット数のビット数 */
+    private static final int SUB_BUCKET_BITS = 6;
+
+    /** 各範囲を等分するバケット数 */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /** 1マイクロ秒単位で記録する値の上限（この値を含まない） */
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT * 2;
+
+    /** 1マイクロ秒単位で記録する範囲の最上位ビットの位置 */
+    private static final int LINEAR_EXPONENT = SUB_BUCKET_BITS + 1;
+
+    /** バケット数 */
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (Long.SIZE - 1 - LINEAR_EXPONENT) * SUB_BUCKET_COUNT;
+
+    /** バケットごとの件数 */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /** 記録した件数 */
+    private final AtomicLong totalCount = new AtomicLong();
+
+    /** 記録した値の合計 */
+    private final AtomicLong sum = new AtomicLong();
+
+    /** 記録した値の最大値 */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 値を記録する。
+     *
+     * @param micros レイテンシ（マイクロ秒）。負の値は0として記録する。
+     */
+    void record(long micros) {
+        long value = Math.max(micros, 0L);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * 記録した件数を取得する。
+     *
+     * @return 記録した件数
+     */
+    long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * 記録した値の最大値を取得する。
+     *
+     * @return 最大値（マイクロ秒）
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * 記録した値の平均値を取得する。
+     *
+     * @return 平均値（マイクロ秒）。記録がない場合は0。
+     */
+    double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0d : (double) sum.get() / count;
+    }
+
+    /**
+     * 指定したパーセンタイルの値を取得する。
+     * <p/>
+     * 記録した値のうち、指定した割合の件数がその値以下となる値を、バケットの精度で返す。
+     *
+     * @param percentile パーセンタイル（0から100）
+     * @return パーセンタイルの値（マイクロ秒）。記録がない場合は0。
+     */
+    long getValueAtPercentile(double percentile) {
+        if (percentile < 0d || percentile > 100d) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100. percentile = [" + percentile + "]");
+        }
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0L;
+        }
+        long target = Math.max(1L, (long) Math.ceil(count * percentile / 100d));
+        long cumulative = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= target) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * 値を記録するバケットのインデックスを求める。
+     *
+     * @param value 値
+     * @return バケットのインデックス
+     */
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return LINEAR_LIMIT + (exponent - LINEAR_EXPONENT) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * バケットに記録される値の最大値を求める。
+     *
+     * @param index バケットのインデックス
+     * @return バケットに記録される値の最大値
+     */
+    static long highestValueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + LINEAR_EXPONENT;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowest = (1L << exponent) | (subBucket << shift);
+        return lowest + (1L << shift) - 1;
+    }
+}
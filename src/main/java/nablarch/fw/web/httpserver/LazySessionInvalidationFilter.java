@@ -70,6 +70,10 @@ public class LazySessionInvalidationFilter implements Filter {
 
         /** invalidateが要求されたかどうか */
         private boolean invalidated;
+
+        /** 最後に返却したセッションのラッパー（まだ返却していない場合は{@code null}） */
+        private SessionWrapper sessionWrapper;
+
         public RequestWrapper(HttpServletRequest request) {
             super(request);
         }
@@ -79,13 +83,24 @@ public class LazySessionInvalidationFilter implements Filter {
             return this.getSession(true);
         }
 
+        /**
+         * {@inheritDoc}
+         *
+         * セッションが存在しない場合は、ラップせずに{@code null}を返却する。
+         * 1リクエストの処理中に何度も呼び出されるため、同じセッションに対しては同じラッパーを返却する。
+         */
         @Override
         public HttpSession getSession(boolean create) {
             HttpSession session = super.getSession(create);
             if (session == null) {
                 return null;
             }
-            return new SessionWrapper(session, this);
+            SessionWrapper wrapper = sessionWrapper;
+            if (wrapper == null || wrapper.delegate != session) {
+                wrapper = new SessionWrapper(session, this);
+                sessionWrapper = wrapper;
+            }
+            return wrapper;
         }
 
         /**
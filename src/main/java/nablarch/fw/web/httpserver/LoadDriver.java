@@ -0,0 +1,333 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.util.annotation.Published;
+import nablarch.fw.ExecutionContext;
+import nablarch.fw.web.HttpRequest;
+import nablarch.fw.web.HttpServer;
+
+/**
+ * 内蔵サーバに対して、HTTPリクエストを繰り返し送信して負荷をかけるクラス。
+ * <p/>
+ * 指定した並列数のスレッドから、ウォームアップ期間と計測期間の間リクエストを送信し続け、
+ * 計測期間に完了したリクエストのスループットとレイテンシのパーセンタイルを{@link LoadResult}として返す。
+ * <p/>
+ * 送信するリクエストは、{@link #setRequests(List)}で指定したリクエストを順に繰り返すか、
+ * {@link #setRequestFactory(IntFunction)}で指定したファクトリが通番から生成する。
+ * <ul>
+ * <li>{@link HttpServer#startLocal()}で起動したサーバには、{@link #run(HttpServer)}で
+ * {@link HttpServer#handle(HttpRequest, ExecutionContext)}を経由してリクエストを送信する。</li>
+ * <li>{@link HttpServer#start()}で起動したサーバには、{@link #run(URI)}でHTTPクライアントを使用して送信する。</li>
+ * </ul>
+ * 送信するリクエストは複数のスレッドから同時に使用されるため、送信中に内容を変更してはならない。
+ */
+@Published(tag = "architect")
+public class LoadDriver {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(LoadDriver.class);
+
+    /** HTTPクライアントで設定できないヘッダ */
+    private static final Set<String> RESTRICTED_HEADERS =
+            Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    /** 計測終了後、実行中のリクエストの完了を待機する時間の上限（秒） */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30L;
+
+    /** 並列数 */
+    private int concurrency = 1;
+
+    /** 計測期間（ミリ秒） */
+    private long durationMillis = 10000L;
+
+    /** ウォームアップ期間（ミリ秒） */
+    private long warmUpMillis = 0L;
+
+    /** リクエストパラメータのエンコードに使用する文字セット（{@link #run(URI)}でのみ使用する） */
+    private Charset charset = Charset.defaultCharset();
+
+    /** 通番から送信するリクエストを生成するファクトリ */
+    private IntFunction<? extends HttpRequest> requestFactory;
+
+    /**
+     * 並列数を設定する。
+     * <p/>
+     * デフォルトは1。
+     *
+     * @param concurrency 並列数（リクエストを同時に送信するスレッド数）
+     * @return このオブジェクト自体
+     */
+    public LoadDriver setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be positive. concurrency = [" + concurrency + "]");
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * 計測期間を設定する。
+     * <p/>
+     * デフォルトは10秒。
+     *
+     * @param durationMillis 計測期間（ミリ秒）
+     * @return このオブジェクト自体
+     */
+    public LoadDriver setDurationMillis(long durationMillis) {
+        if (durationMillis <= 0) {
+            throw new IllegalArgumentException("duration must be positive. duration = [" + durationMillis + "]");
+        }
+        this.durationMillis = durationMillis;
+        return this;
+    }
+
+    /**
+     * ウォームアップ期間を設定する。
+     * <p/>
+     * ウォームアップ期間に完了したリクエストは、結果に含めない。デフォルトは0（ウォームアップなし）。
+     *
+     * @param warmUpMillis ウォームアップ期間（ミリ秒）
+     * @return このオブジェクト自体
+     */
+    public LoadDriver setWarmUpMillis(long warmUpMillis) {
+        if (warmUpMillis < 0) {
+            throw new IllegalArgumentException("warm-up must not be negative. warm-up = [" + warmUpMillis + "]");
+        }
+        this.warmUpMillis = warmUpMillis;
+        return this;
+    }
+
+    /**
+     * リクエストパラメータのエンコードに使用する文字セットを設定する。
+     * <p/>
+     * {@link #run(URI)}でリクエストを送信する場合にのみ使用する。
+     * デフォルトはJVMのデフォルト文字セット。
+     *
+     * @param charset 文字セット名
+     * @return このオブジェクト自体
+     */
+    public LoadDriver setCharset(String charset) {
+        this.charset = Charset.forName(charset);
+        return this;
+    }
+
+    /**
+     * 送信するリクエストを設定する。
+     * <p/>
+     * 記録したリクエストを、指定した順に繰り返し送信する。
+     *
+     * @param requests 送信するリクエスト
+     * @return このオブジェクト自体
+     */
+    public LoadDriver setRequests(List<? extends HttpRequest> requests) {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("requests must not be empty.");
+        }
+        List<HttpRequest> copy = new ArrayList<>(requests);
+        this.requestFactory = sequence -> copy.get(sequence % copy.size());
+        return this;
+    }
+
+    /**
+     * 送信するリクエストを生成するファクトリを設定する。
+     * <p/>
+     * ファクトリには、0から始まるリクエストの通番が渡される。
+     * ファクトリは複数のスレッドから同時に呼び出される。
+     *
+     * @param requestFactory 通番から送信するリクエストを生成するファクトリ
+     * @return このオブジェクト自体
+     */
+    public LoadDriver setRequestFactory(IntFunction<? extends HttpRequest> requestFactory) {
+        this.requestFactory = requestFactory;
+        return this;
+    }
+
+    /**
+     * {@link HttpServer#startLocal()}で起動したサーバに負荷をかける。
+     * <p/>
+     * リクエストごとに新しい{@link ExecutionContext}を生成して、
+     * {@link HttpServer#handle(HttpRequest, ExecutionContext)}を呼び出す。
+     *
+     * @param server 負荷をかけるサーバ
+     * @return 負荷実行の結果
+     */
+    public LoadResult run(HttpServer server) {
+        return run(req -> server.handle(req, new ExecutionContext()).getStatusCode());
+    }
+
+    /**
+     * {@link HttpServer#start()}で起動したサーバに、HTTPクライアントで負荷をかける。
+     * <p/>
+     * リクエストURIは、指定したベースURIからの相対位置として解決する。
+     * 送信時に決定されるヘッダ（Host、Content-Length等）は、リクエストに設定されていても送信しない。
+     *
+     * @param baseUri サーバのベースURI（例：{@code http://localhost:7777}）
+     * @return 負荷実行の結果
+     */
+    public LoadResult run(URI baseUri) {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        return run(req -> {
+            try {
+                return client.send(toClientRequest(baseUri, req),
+                        java.net.http.HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * HTTPリクエストオブジェクトから、HTTPクライアントで送信するリクエストを組み立てる。
+     *
+     * @param baseUri サーバのベースURI
+     * @param req HTTPリクエスト
+     * @return HTTPクライアントで送信するリクエスト
+     */
+    private java.net.http.HttpRequest toClientRequest(URI baseUri, HttpRequest req) {
+        String query = RequestParameters.toQueryString(req.getParamMap(), charset);
+        boolean queryInUri = RequestParameters.isSentAsQuery(req.getMethod());
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(
+                baseUri.resolve(RequestParameters.appendQuery(req.getRequestUri(), queryInUri ? query : "")));
+
+        boolean hasContentType = false;
+        for (Map.Entry<String, String> header : req.getHeaderMap().entrySet()) {
+            String name = header.getKey().toLowerCase(Locale.ROOT);
+            if (RESTRICTED_HEADERS.contains(name)) {
+                continue;
+            }
+            hasContentType |= name.equals("content-type");
+            builder.setHeader(header.getKey(), header.getValue());
+        }
+        String cookie = RequestParameters.toCookieHeader(req.getCookie());
+        if (!cookie.isEmpty()) {
+            builder.setHeader("Cookie", cookie);
+        }
+        if (queryInUri || query.isEmpty()) {
+            return builder.method(req.getMethod(), java.net.http.HttpRequest.BodyPublishers.noBody()).build();
+        }
+        if (!hasContentType) {
+            builder.setHeader("Content-Type", "application/x-www-form-urlencoded;charset=" + charset.name());
+        }
+        return builder.method(req.getMethod(), java.net.http.HttpRequest.BodyPublishers.ofString(query, charset))
+                .build();
+    }
+
+    /**
+     * 並列数分のスレッドからリクエストを送信し、結果を集計する。
+     *
+     * @param sender リクエストを送信し、ステータスコードを返す処理
+     * @return 負荷実行の結果
+     */
+    private LoadResult run(RequestSender sender) {
+        if (requestFactory == null) {
+            throw new IllegalStateException("requests to send are not set.");
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        AtomicLong errorCount = new AtomicLong();
+        AtomicInteger sequence = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(concurrency);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] window = new long[2];
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, task -> {
+            Thread thread = new Thread(task, "nablarch-load-driver-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(workers.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    long measureStart = window[0];
+                    long measureEnd = window[1];
+                    long start;
+                    while ((start = System.nanoTime()) < measureEnd) {
+                        boolean error;
+                        try {
+                            HttpRequest req = requestFactory.apply(sequence.getAndIncrement() & Integer.MAX_VALUE);
+                            error = sender.send(req) >= 500;
+                        } catch (RuntimeException e) {
+                            error = true;
+                        }
+                        long end = System.nanoTime();
+                        // ウォームアップ期間に送信を開始したリクエストは、結果に含めない。
+                        if (start >= measureStart) {
+                            histogram.record(TimeUnit.NANOSECONDS.toMicros(end - start));
+                            if (error) {
+                                errorCount.incrementAndGet();
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            ready.await();
+            long now = System.nanoTime();
+            window[0] = now + TimeUnit.MILLISECONDS.toNanos(warmUpMillis);
+            window[1] = window[0] + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsed = Math.max(System.nanoTime(), window[1]) - window[0];
+            LoadResult result = new LoadResult(histogram, errorCount.get(), elapsed);
+            LOGGER.logInfo("load test completed. concurrency = [" + concurrency + "] " + result);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            workers.shutdownNow();
+            try {
+                workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * リクエストを送信する処理。
+     */
+    private interface RequestSender {
+
+        /**
+         * リクエストを送信する。
+         *
+         * @param req HTTPリクエスト
+         * @return レスポンスのステータスコード
+         */
+        int send(HttpRequest req);
+    }
+}
@@ -0,0 +1,120 @@
+package nablarch.fw.web.httpserver;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * {@link LoadDriver}による負荷実行の結果。
+ * <p/>
+ * ウォームアップ期間を除いた計測期間のリクエスト数、エラー数、スループット、
+ * およびレイテンシのパーセンタイルを保持する。
+ * レイテンシは、有効桁数およそ2桁の精度で集計される。
+ */
+@Published(tag = "architect")
+public final class LoadResult {
+
+    /** 計測期間に完了したリクエストのレイテンシ */
+    private final LatencyHistogram histogram;
+
+    /** 計測期間に完了したリクエストのうち、エラーとなった件数 */
+    private final long errorCount;
+
+    /** 計測期間の長さ（ナノ秒） */
+    private final long elapsedNanos;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param histogram 計測期間に完了したリクエストのレイテンシ
+     * @param errorCount 計測期間に完了したリクエストのうち、エラーとなった件数
+     * @param elapsedNanos 計測期間の長さ（ナノ秒）
+     */
+    LoadResult(LatencyHistogram histogram, long errorCount, long elapsedNanos) {
+        this.histogram = histogram;
+        this.errorCount = errorCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * 計測期間に完了したリクエスト数を取得する。
+     *
+     * @return リクエスト数（エラーとなったリクエストを含む）
+     */
+    public long getRequestCount() {
+        return histogram.getTotalCount();
+    }
+
+    /**
+     * 計測期間に完了したリクエストのうち、エラーとなった件数を取得する。
+     * <p/>
+     * 例外が発生したリクエストと、ステータスコードが500以上のリクエストをエラーとして数える。
+     *
+     * @return エラー数
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * 計測期間の長さを取得する。
+     *
+     * @return 計測期間の長さ（ミリ秒）
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * スループットを取得する。
+     *
+     * @return 1秒あたりに完了したリクエスト数
+     */
+    public double getThroughput() {
+        return elapsedNanos <= 0 ? 0d : getRequestCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * 指定したパーセンタイルのレイテンシを取得する。
+     *
+     * @param percentile パーセンタイル（0から100）
+     * @return レイテンシ（マイクロ秒）
+     */
+    public long getLatencyMicros(double percentile) {
+        return histogram.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * レイテンシの平均値を取得する。
+     *
+     * @return レイテンシの平均値（マイクロ秒）
+     */
+    public double getMeanLatencyMicros() {
+        return histogram.getMean();
+    }
+
+    /**
+     * レイテンシの最大値を取得する。
+     *
+     * @return レイテンシの最大値（マイクロ秒）
+     */
+    public long getMaxLatencyMicros() {
+        return histogram.getMax();
+    }
+
+    /**
+     * 結果の概要を、ログ出力に適した形式で返す。
+     *
+     * @return 結果の概要
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "requests = [%d] errors = [%d] elapsed = [%dms] throughput = [%.1f/s]"
+                        + " latency(us) mean = [%.0f] p50 = [%d] p90 = [%d] p99 = [%d] p99.9 = [%d] max = [%d]",
+                getRequestCount(), errorCount, getElapsedMillis(), getThroughput(),
+                getMeanLatencyMicros(), getLatencyMicros(50d), getLatencyMicros(90d), getLatencyMicros(99d),
+                getLatencyMicros(99.9d), getMaxLatencyMicros());
+    }
+}
@@ -0,0 +1,144 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.eclipse.jetty.ee10.quickstart.QuickStartConfiguration;
+import org.eclipse.jetty.ee10.webapp.WebAppContext;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.Jetty;
+
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.fw.web.ResourceLocator;
+
+/**
+ * Jettyのquickstartディスクリプタ（quickstart-web.xml）の生成と利用を行うクラス。
+ * <p/>
+ * ディスクリプタは、WARベースパスとクラスパスから算出したフィンガープリントをファイル名として、
+ * 指定されたディレクトリに保存される。
+ * ディスクリプタが存在しない場合はアノテーションやweb.xmlのスキャン結果からディスクリプタを生成し、
+ * 存在する場合はスキャンを行わずにディスクリプタの内容でWARをデプロイする。
+ * <p/>
+ * クラスパス上のディレクトリに含まれるクラスの変更は検知しないため、
+ * サーブレットアノテーション等を変更した場合はディスクリプタを削除すること。
+ */
+class QuickStartDescriptor {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(QuickStartDescriptor.class);
+
+    /** ディスクリプタのパス */
+    private final Path path;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param path ディスクリプタのパス
+     */
+    private QuickStartDescriptor(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * デプロイ内容に対応するディスクリプタを取得する。
+     *
+     * @param directory ディスクリプタを保存するディレクトリ
+     * @param warBasePaths WARベースパス
+     * @param profile デプロイプロファイル
+     * @param classLoader Webアプリケーションのクラスローダ
+     * @return ディスクリプタ
+     */
+    static QuickStartDescriptor of(File directory, List<ResourceLocator> warBasePaths,
+                                   DeploymentProfile profile, ClassLoader classLoader) {
+        Fingerprint fingerprint = new Fingerprint().add(Jetty.VERSION).add(profile);
+        for (ResourceLocator warBasePath : warBasePaths) {
+            String realPath = warBasePath.getRealPath();
+            fingerprint.add(realPath)
+                       .add(new File(realPath, "WEB-INF/web.xml").lastModified());
+        }
+        fingerprint.addClassPath(classLoader);
+        return new QuickStartDescriptor(
+                directory.toPath().resolve("quickstart-" + fingerprint.toHex() + ".xml"));
+    }
+
+    /**
+     * ディスクリプタが存在するか否かを判定する。
+     *
+     * @return 存在する場合{@code true}
+     */
+    boolean exists() {
+        return Files.isRegularFile(path);
+    }
+
+    /**
+     * ディスクリプタのパスを返す。
+     *
+     * @return ディスクリプタのパス
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * ディスクリプタを生成する。
+     * <p/>
+     * 引数のWebアプリケーションをドライランモードのサーバで起動し、
+     * スキャン結果をディスクリプタに出力する。
+     * 引数のWebアプリケーションにはプログラムから追加したサーブレットやフィルタを含めないこと。
+     * （含めた場合、それらもディスクリプタに出力されてしまう。）
+     *
+     * @param webApp ディスクリプタの生成に使用するWebアプリケーション
+     */
+    void generate(WebAppContext webApp) {
+        Path temporary = path.resolveSibling(path.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        Server server = new Server();
+        try {
+            Files.createDirectories(path.getParent());
+            prepare(webApp, QuickStartConfiguration.Mode.GENERATE, temporary);
+            QuickStartConfiguration.configureMode(server, QuickStartConfiguration.Mode.GENERATE.name());
+            server.setHandler(webApp);
+            server.start();
+            server.stop();
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.logInfo("generated the quickstart descriptor. path = [" + path + "]");
+        } catch (Exception e) {
+            LOGGER.logWarn("failed to generate the quickstart descriptor. path = [" + path + "]", e);
+        } finally {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {  // SUPPRESS CHECKSTYLE
+                // NOP
+            }
+        }
+    }
+
+    /**
+     * ディスクリプタの内容でデプロイするようWebアプリケーションを設定する。
+     *
+     * @param webApp 設定対象のWebアプリケーション
+     */
+    void apply(WebAppContext webApp) {
+        prepare(webApp, QuickStartConfiguration.Mode.QUICKSTART, path);
+    }
+
+    /**
+     * quickstartを使用するようWebアプリケーションを設定する。
+     *
+     * @param webApp 設定対象のWebアプリケーション
+     * @param mode quickstartのモード
+     * @param descriptorPath ディスクリプタのパス
+     */
+    private static void prepare(WebAppContext webApp, QuickStartConfiguration.Mode mode, Path descriptorPath) {
+        // QuickStartConfigurationはWARが指定されていることを前提としているため、
+        // ベースリソースのパスをWARとして設定しておく。（ベースリソース設定済みのため展開は行われない）
+        webApp.setWar(webApp.getBaseResource().iterator().next().getURI().toString());
+        webApp.setAttribute(QuickStartConfiguration.MODE, mode);
+        webApp.setAttribute(QuickStartConfiguration.QUICKSTART_WEB_XML, descriptorPath);
+        webApp.addConfiguration(new QuickStartConfiguration());
+    }
+}
@@ -0,0 +1,98 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.eclipse.jetty.ee10.servlet.ServletContextRequest;
+import org.eclipse.jetty.io.EndPoint;
+
+/**
+ * リクエストの処理完了を、リクエストごとに通知する{@link Filter}実装クラス。
+ *
+ * {@link nablarch.test.core.http.HttpRequestTestSupportHandler}は単一の実行コンテキストに設定されたラッチで
+ * 処理完了を通知するため、1つのサーバで並行にリクエストを処理すると、どのリクエストの完了が通知されたかを区別できない。
+ * このフィルタは、リクエストを受信した接続に対応付けて登録されたラッチを、後続の全ての処理
+ * （ハンドラキューの実行と実行コンテキストの書き戻しを含む）が終わった後にカウントダウンする。
+ * 接続ごとに同時に処理されるリクエストは1つであるため、接続をキーとしてリクエストを識別できる。
+ */
+class RequestCompletionFilter implements Filter {
+
+    /** 処理完了を待機しているラッチ（キーはリクエストを送信する接続） */
+    private static final Map<EndPoint, CountDownLatch> PENDING = new ConcurrentHashMap<>();
+
+    /**
+     * 指定された接続で送信するリクエストの、処理完了時にカウントダウンされるラッチを登録する。
+     * <p/>
+     * リクエストを送信する前に登録し、処理完了の待機後（失敗した場合も含む）に{@link #unregister}で登録を解除すること。
+     *
+     * @param endPoint リクエストを送信する接続
+     * @return 処理完了時にカウントダウンされるラッチ
+     */
+    static CountDownLatch register(EndPoint endPoint) {
+        CountDownLatch latch = new CountDownLatch(1);
+        PENDING.put(endPoint, latch);
+        return latch;
+    }
+
+    /**
+     * ラッチの登録を解除する。
+     * <p/>
+     * 同じ接続に別のラッチが登録されている場合は、そのラッチの登録は解除しない。
+     *
+     * @param endPoint リクエストを送信した接続
+     * @param latch 登録を解除するラッチ（{@code null}の場合は何もしない）
+     */
+    static void unregister(EndPoint endPoint, CountDownLatch latch) {
+        if (latch != null) {
+            PENDING.remove(endPoint, latch);
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * 後続の処理が終わった後（例外が発生した場合も含む）に、リクエストを受信した接続に登録されたラッチをカウントダウンする。
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            signal(request);
+        }
+    }
+
+    /**
+     * リクエストを受信した接続に登録されたラッチをカウントダウンする。
+     *
+     * @param request リクエスト
+     */
+    private static void signal(ServletRequest request) {
+        ServletContextRequest contextRequest = ServletContextRequest.getServletContextRequest(request);
+        if (contextRequest == null) {
+            return;
+        }
+        CountDownLatch latch =
+                PENDING.remove(contextRequest.getConnectionMetaData().getConnection().getEndPoint());
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
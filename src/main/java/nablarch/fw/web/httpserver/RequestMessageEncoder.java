@@ -0,0 +1,574 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.RetainableByteBuffer;
+import org.eclipse.jetty.util.BufferUtil;
+
+import nablarch.fw.web.HttpRequest;
+import nablarch.fw.web.MockHttpRequest;
+import nablarch.fw.web.upload.PartInfo;
+
+/**
+ * HTTPリクエストを、サーバのバッファプールから取得したバッファにHTTPメッセージとしてエンコードするクラス。
+ * <pre>
+ * リクエストライン、ヘッダ、リクエストパラメータ、ボディを、HTTPリクエストオブジェクトから
+ * 中間の文字列やバイト配列を生成せずに、指定された文字セットで直接バッファに書き込む。
+ * ボディはヘッダとは別のバッファに書き込み、その長さをContent-Lengthヘッダに設定する。
+ * リクエストパラメータは、GETとHEADの場合はクエリ文字列に、それ以外の場合は
+ * URLエンコードしたリクエストボディに設定する。
+ * {@link MockHttpRequest}にマルチパートが設定されている場合は、リクエストパラメータとアップロードファイルを
+ * マルチパート形式のボディとして送信する。（アップロードファイルの内容は、ファイルから直接バッファに読み込む）
+ * 表現できない文字は、{@link String#getBytes(Charset)}と同様に置換文字に置き換える。
+ * </pre>
+ */
+class RequestMessageEncoder {
+
+    /** 改行 */
+    private static final String CRLF = "\r\n";
+
+    /** デフォルトのHTTPバージョン */
+    private static final String DEFAULT_HTTP_VERSION = "HTTP/1.1";
+
+    /** マルチパートのパートに、Content-Typeが設定されていない場合に使用する値 */
+    private static final String DEFAULT_PART_CONTENT_TYPE = "application/octet-stream";
+
+    /** マルチパートのパートのヘッダの長さの見積もり（バイト） */
+    private static final int PART_HEADER_ESTIMATE = 256;
+
+    /** ヘッダ部の長さの見積もり（バイト） */
+    private static final int HEAD_ESTIMATE = 512;
+
+    /** マルチパートの境界文字列の採番に使用するカウンタ */
+    private static final AtomicLong BOUNDARY_SEQUENCE = new AtomicLong();
+
+    /** バッファの取得元 */
+    private final ByteBufferPool bufferPool;
+
+    /** エンコードに使用する文字セット */
+    private final Charset charset;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param bufferPool バッファの取得元
+     * @param charset エンコードに使用する文字セット
+     */
+    RequestMessageEncoder(ByteBufferPool bufferPool, Charset charset) {
+        this.bufferPool = bufferPool;
+        this.charset = charset;
+    }
+
+    /**
+     * HTTPリクエストを、HTTPメッセージにエンコードする。
+     * <pre>
+     * 引数のHTTPリクエストは変更しない。
+     * ヘッダにHostが設定されていない場合は、HTTPリクエストのホスト
+     * （設定されていない場合は{@code defaultHost}）をHostヘッダとして送信する。
+     * 返却したメッセージのバッファは読み出し可能な状態となっている。
+     * 使用後は{@link #release(Message)}でプールに返却すること。
+     * </pre>
+     * @param req HTTPリクエスト
+     * @param defaultHost HTTPリクエストにホストが設定されていない場合に使用するホスト
+     * @return エンコード結果
+     * @throws IOException アップロードファイルの読み込みに失敗した場合
+     */
+    Message encode(HttpRequest req, String defaultHost) throws IOException {
+        Body body = encodeBody(req);
+        try {
+            return new Message(encodeHead(req, defaultHost, isSentAsQuery(req), body), body);
+        } catch (RuntimeException e) {
+            body.release();
+            throw e;
+        }
+    }
+
+    /**
+     * HTTPリクエストのボディをエンコードする。
+     * <pre>
+     * リクエストパラメータをクエリ文字列で送信する場合や、送信するものがない場合は{@link Body#EMPTY}を返す。
+     * 返却したボディのバッファは読み出し可能な状態となっている。
+     * 使用後は{@link Body#release()}でプールに返却すること。
+     * </pre>
+     * @param req HTTPリクエスト
+     * @return エンコード結果
+     * @throws IOException アップロードファイルの読み込みに失敗した場合
+     */
+    Body encodeBody(HttpRequest req) throws IOException {
+        if (isSentAsQuery(req)) {
+            return Body.EMPTY;
+        }
+        return encodeBody(req, getMultipart(req));
+    }
+
+    /**
+     * HTTPリクエストのリクエストパラメータを、クエリ文字列で送信するか否かを判定する。
+     * <pre>
+     * マルチパートが設定されていないGETとHEADの場合に、クエリ文字列で送信する。
+     * </pre>
+     * @param req HTTPリクエスト
+     * @return クエリ文字列で送信する場合{@code true}
+     */
+    static boolean isSentAsQuery(HttpRequest req) {
+        return getMultipart(req).isEmpty() && RequestParameters.isSentAsQuery(req.getMethod());
+    }
+
+    /**
+     * HTTPリクエストのリクエストラインとヘッダをエンコードする。
+     *
+     * @param req HTTPリクエスト
+     * @param defaultHost HTTPリクエストにホストが設定されていない場合に使用するホスト
+     * @param queryInUri リクエストパラメータをクエリ文字列で送信するか否か
+     * @param body エンコード済みのボディ
+     * @return エンコード結果を格納したバッファ
+     */
+    private RetainableByteBuffer encodeHead(HttpRequest req, String defaultHost, boolean queryInUri, Body body) {
+        BufferWriter writer = new BufferWriter(HEAD_ESTIMATE);
+        try {
+            writer.write(req.getMethod()).write(" ").write(req.getRequestUri());
+            if (queryInUri && !req.getParamMap().isEmpty()) {
+                writer.write(req.getRequestUri().indexOf('?') < 0 ? "?" : "&");
+                writeForm(writer, req.getParamMap());
+            }
+            writer.write(" ").write(req.getHttpVersion() == null ? DEFAULT_HTTP_VERSION : req.getHttpVersion())
+                  .write(CRLF);
+
+            String cookie = RequestParameters.toCookieHeader(req.getCookie());
+            boolean hasHost = false;
+            boolean hasContentType = false;
+            for (Map.Entry<String, String> header : req.getHeaderMap().entrySet()) {
+                String name = header.getKey();
+                if (HttpHeader.CONTENT_LENGTH.is(name)
+                        || (HttpHeader.COOKIE.is(name) && !cookie.isEmpty())
+                        || (HttpHeader.CONTENT_TYPE.is(name) && body.isMultipart())) {
+                    // ボディの長さ、クッキー、マルチパートの境界文字列は、HTTPリクエストの内容から設定する。
+                    continue;
+                }
+                hasHost |= HttpHeader.HOST.is(name);
+                hasContentType |= HttpHeader.CONTENT_TYPE.is(name);
+                writeHeader(writer, name, header.getValue());
+            }
+            if (!hasHost) {
+                String host = req.getHost();
+                writeHeader(writer, HttpHeader.HOST.asString(), host == null || host.isEmpty() ? defaultHost : host);
+            }
+            if (!cookie.isEmpty()) {
+                writeHeader(writer, HttpHeader.COOKIE.asString(), cookie);
+            }
+            if (body.size() > 0) {
+                if (!hasContentType) {
+                    writeHeader(writer, HttpHeader.CONTENT_TYPE.asString(), body.getContentType());
+                }
+                writeHeader(writer, HttpHeader.CONTENT_LENGTH.asString(), String.valueOf(body.size()));
+            }
+            writer.write(CRLF);
+            return writer.finish();
+        } catch (RuntimeException e) {
+            writer.discard();
+            throw e;
+        }
+    }
+
+    /**
+     * HTTPリクエストのボディをエンコードする。
+     *
+     * @param req HTTPリクエスト
+     * @param multipart マルチパート（設定されていない場合は空）
+     * @return エンコード結果
+     * @throws IOException アップロードファイルの読み込みに失敗した場合
+     */
+    private Body encodeBody(HttpRequest req, Map<String, List<PartInfo>> multipart) throws IOException {
+        if (!multipart.isEmpty()) {
+            return encodeMultipart(req.getParamMap(), multipart);
+        }
+        if (req.getParamMap().isEmpty()) {
+            return Body.EMPTY;
+        }
+        BufferWriter writer = new BufferWriter(HEAD_ESTIMATE);
+        try {
+            writeForm(writer, req.getParamMap());
+            return new Body(writer.finish(), "application/x-www-form-urlencoded;charset=" + charset.name(), false);
+        } catch (RuntimeException e) {
+            writer.discard();
+            throw e;
+        }
+    }
+
+    /**
+     * リクエストパラメータとアップロードファイルを、マルチパート形式のボディにエンコードする。
+     *
+     * @param params リクエストパラメータ
+     * @param multipart マルチパート
+     * @return エンコード結果
+     * @throws IOException アップロードファイルの読み込みに失敗した場合
+     */
+    private Body encodeMultipart(Map<String, String[]> params, Map<String, List<PartInfo>> multipart)
+            throws IOException {
+        String boundary = "----NablarchBoundary" + Long.toHexString(System.nanoTime())
+                + Long.toHexString(BOUNDARY_SEQUENCE.incrementAndGet());
+        long estimate = 0L;
+        for (List<PartInfo> parts : multipart.values()) {
+            for (PartInfo part : parts) {
+                estimate += part.size() + PART_HEADER_ESTIMATE;
+            }
+        }
+        BufferWriter writer = new BufferWriter(estimate + (long) params.size() * PART_HEADER_ESTIMATE);
+        try {
+            for (Map.Entry<String, String[]> param : params.entrySet()) {
+                for (String value : param.getValue()) {
+                    writer.write("--").write(boundary).write(CRLF)
+                          .write("Content-Disposition: form-data; name=\"").write(param.getKey()).write("\"")
+                          .write(CRLF).write(CRLF)
+                          .write(value == null ? "" : value).write(CRLF);
+                }
+            }
+            for (Map.Entry<String, List<PartInfo>> entry : multipart.entrySet()) {
+                for (PartInfo part : entry.getValue()) {
+                    String contentType = part.getContentType() == null
+                            ? DEFAULT_PART_CONTENT_TYPE : part.getContentType();
+                    writer.write("--").write(boundary).write(CRLF)
+                          .write("Content-Disposition: form-data; name=\"").write(entry.getKey())
+                          .write("\"; filename=\"").write(part.getFileName() == null ? "" : part.getFileName())
+                          .write("\"").write(CRLF)
+                          .write("Content-Type: ").write(contentType).write(CRLF).write(CRLF);
+                    try (InputStream in = part.getInputStream()) {
+                        writer.write(in);
+                    }
+                    writer.write(CRLF);
+                }
+            }
+            writer.write("--").write(boundary).write("--").write(CRLF);
+            return new Body(writer.finish(), "multipart/form-data; boundary=" + boundary, true);
+        } catch (IOException | RuntimeException e) {
+            writer.discard();
+            throw e;
+        }
+    }
+
+    /**
+     * リクエストパラメータを、URLエンコードしたフォームの形式で書き込む。
+     *
+     * @param writer 書き込み先
+     * @param params リクエストパラメータ
+     */
+    private void writeForm(BufferWriter writer, Map<String, String[]> params) {
+        boolean first = true;
+        for (Map.Entry<String, String[]> param : params.entrySet()) {
+            String name = URLEncoder.encode(param.getKey(), charset);
+            for (String value : param.getValue()) {
+                if (!first) {
+                    writer.write("&");
+                }
+                first = false;
+                writer.write(name).write("=").write(URLEncoder.encode(value == null ? "" : value, charset));
+            }
+        }
+    }
+
+    /**
+     * ヘッダを1行書き込む。
+     *
+     * @param writer 書き込み先
+     * @param name ヘッダ名
+     * @param value ヘッダの値
+     */
+    private static void writeHeader(BufferWriter writer, String name, String value) {
+        writer.write(name).write(": ").write(value == null ? "" : value).write(CRLF);
+    }
+
+    /**
+     * HTTPリクエストに設定されたマルチパートを取得する。
+     *
+     * @param req HTTPリクエスト
+     * @return マルチパート（{@link MockHttpRequest}でない場合や、設定されていない場合は空）
+     */
+    private static Map<String, List<PartInfo>> getMultipart(HttpRequest req) {
+        if (!(req instanceof MockHttpRequest)) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<PartInfo>> multipart = ((MockHttpRequest) req).getMultipart();
+        return multipart == null ? Collections.<String, List<PartInfo>>emptyMap() : multipart;
+    }
+
+    /**
+     * エンコード結果を格納したバッファをプールに返却する。
+     * <pre>
+     * コネクタが読み終えていないバッファは、コネクタ側で引き続き参照される可能性があるため返却しない。
+     * （その場合、バッファはガベージコレクションで回収される）
+     * </pre>
+     * @param message エンコード結果
+     */
+    void release(Message message) {
+        release(message.head);
+        message.body.release();
+    }
+
+    /**
+     * バッファを、読み終えている場合のみプールに返却する。
+     *
+     * @param buffer バッファ（{@code null}の場合は何もしない）
+     */
+    private static void release(RetainableByteBuffer buffer) {
+        if (buffer != null && !buffer.getByteBuffer().hasRemaining()) {
+            buffer.release();
+        }
+    }
+
+    /**
+     * HTTPメッセージのエンコード結果。
+     * <pre>
+     * ヘッダ部とボディ部は別のバッファに格納される。
+     * </pre>
+     */
+    static final class Message {
+
+        /** ヘッダ部（リクエストラインとヘッダ） */
+        private final RetainableByteBuffer head;
+
+        /** ボディ部 */
+        private final Body body;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param head ヘッダ部
+         * @param body ボディ部
+         */
+        private Message(RetainableByteBuffer head, Body body) {
+            this.head = head;
+            this.body = body;
+        }
+
+        /**
+         * ヘッダ部を取得する。
+         *
+         * @return ヘッダ部
+         */
+        ByteBuffer getHead() {
+            return head.getByteBuffer();
+        }
+
+        /**
+         * ボディ部を取得する。
+         *
+         * @return ボディ部（ボディがない場合は{@code null}）
+         */
+        ByteBuffer getBody() {
+            return body.getByteBuffer();
+        }
+
+        /**
+         * メッセージ全体のバイト数を取得する。
+         *
+         * @return バイト数
+         */
+        int size() {
+            return head.getByteBuffer().remaining() + body.size();
+        }
+    }
+
+    /**
+     * ボディのエンコード結果。
+     */
+    static final class Body {
+
+        /** ボディがないことを表すインスタンス */
+        static final Body EMPTY = new Body(null, null, false);
+
+        /** ボディを格納したバッファ（ボディがない場合は{@code null}） */
+        private final RetainableByteBuffer buffer;
+
+        /** Content-Typeヘッダの値 */
+        private final String contentType;
+
+        /** マルチパート形式か否か */
+        private final boolean multipart;
+
+        /** ボディのバイト数 */
+        private final int size;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param buffer ボディを格納したバッファ
+         * @param contentType Content-Typeヘッダの値
+         * @param multipart マルチパート形式か否か
+         */
+        private Body(RetainableByteBuffer buffer, String contentType, boolean multipart) {
+            this.buffer = buffer;
+            this.contentType = contentType;
+            this.multipart = multipart;
+            this.size = buffer == null ? 0 : buffer.getByteBuffer().remaining();
+        }
+
+        /**
+         * ボディを取得する。
+         *
+         * @return ボディ（ボディがない場合は{@code null}）
+         */
+        ByteBuffer getByteBuffer() {
+            return buffer == null ? null : buffer.getByteBuffer();
+        }
+
+        /**
+         * Content-Typeヘッダの値を取得する。
+         *
+         * @return Content-Typeヘッダの値
+         */
+        String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * マルチパート形式か否かを判定する。
+         *
+         * @return マルチパート形式の場合{@code true}
+         */
+        boolean isMultipart() {
+            return multipart;
+        }
+
+        /**
+         * ボディのバイト数を取得する。
+         *
+         * @return バイト数
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * ボディを格納したバッファを、読み終えている場合のみプールに返却する。
+         */
+        void release() {
+            RequestMessageEncoder.release(buffer);
+        }
+    }
+
+    /**
+     * プールから取得したバッファに書き込むライタ。
+     * <pre>
+     * 容量が足りなくなった場合は、より大きなバッファをプールから取得して内容を移し、元のバッファは返却する。
+     * </pre>
+     */
+    private final class BufferWriter {
+
+        /** 文字列のエンコーダ */
+        private final CharsetEncoder encoder = charset.newEncoder()
+                                                      .onMalformedInput(CodingErrorAction.REPLACE)
+                                                      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        /** 書き込み先のバッファ */
+        private RetainableByteBuffer buffer;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param capacity 初期容量の見積もり（バイト）
+         */
+        BufferWriter(long capacity) {
+            buffer = acquire(capacity);
+        }
+
+        /**
+         * 文字列を書き込む。
+         *
+         * @param text 文字列
+         * @return このオブジェクト自体
+         */
+        BufferWriter write(String text) {
+            ByteBuffer bytes = buffer.getByteBuffer();
+            CharBuffer chars = CharBuffer.wrap(text);
+            encoder.reset();
+            while (encoder.encode(chars, bytes, true).isOverflow()) {
+                bytes = grow((long) Math.ceil(chars.remaining() * (double) encoder.maxBytesPerChar()));
+            }
+            while (encoder.flush(bytes).isOverflow()) {
+                bytes = grow((long) Math.ceil(encoder.maxBytesPerChar()));
+            }
+            return this;
+        }
+
+        /**
+         * ストリームの内容を、終端まで書き込む。
+         *
+         * @param in ストリーム
+         * @throws IOException 読み込みに失敗した場合
+         */
+        void write(InputStream in) throws IOException {
+            ReadableByteChannel channel = Channels.newChannel(in);
+            ByteBuffer bytes = buffer.getByteBuffer();
+            while (true) {
+                if (!bytes.hasRemaining()) {
+                    bytes = grow(bytes.capacity());
+                }
+                if (channel.read(bytes) < 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 書き込みを終了し、読み出し可能な状態にしたバッファを返す。
+         *
+         * @return バッファ
+         */
+        RetainableByteBuffer finish() {
+            BufferUtil.flipToFlush(buffer.getByteBuffer(), 0);
+            return buffer;
+        }
+
+        /**
+         * 書き込みを中止し、バッファをプールに返却する。
+         */
+        void discard() {
+            buffer.release();
+        }
+
+        /**
+         * バッファの容量を拡張する。
+         *
+         * @param additional 追加で必要なバイト数
+         * @return 拡張後のバッファ（書き込み可能な状態）
+         */
+        private ByteBuffer grow(long additional) {
+            ByteBuffer current = buffer.getByteBuffer();
+            RetainableByteBuffer grown = acquire(Math.max(current.position() + additional, current.capacity() * 2L));
+            BufferUtil.flipToFlush(current, 0);
+            grown.getByteBuffer().put(current);
+            buffer.release();
+            buffer = grown;
+            return grown.getByteBuffer();
+        }
+
+        /**
+         * 書き込み可能な状態のバッファをプールから取得する。
+         *
+         * @param capacity 必要な容量（バイト）
+         * @return バッファ
+         */
+        private RetainableByteBuffer acquire(long capacity) {
+            if (capacity > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("request message is too large. size = [" + capacity + "]");
+            }
+            RetainableByteBuffer acquired = bufferPool.acquire((int) Math.max(capacity, 1L), false);
+            BufferUtil.clearToFill(acquired.getByteBuffer());
+            return acquired;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package nablarch.fw.web.httpserver;
+
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import nablarch.fw.web.HttpCookie;
+
+/**
+ * HTTPリクエストのパラメータとクッキーを、HTTPメッセージ上の表現に変換するユーティリティ。
+ */
+final class RequestParameters {
+
+    /**
+     * 隠蔽コンストラクタ。
+     */
+    private RequestParameters() {
+    }
+
+    /**
+     * パラメータをクエリ文字列の形式で送信するHTTPメソッドか否かを判定する。
+     * <pre>
+     * GETとHEADの場合はクエリ文字列で、それ以外の場合はURLエンコードしたリクエストボディで送信する。
+     * </pre>
+     * @param method HTTPメソッド
+     * @return クエリ文字列で送信する場合{@code true}
+     */
+    static boolean isSentAsQuery(String method) {
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    /**
+     * リクエストパラメータを、URLエンコードしたクエリ文字列に変換する。
+     *
+     * @param params リクエストパラメータ
+     * @param charset URLエンコードに使用する文字セット
+     * @return クエリ文字列（パラメータが存在しない場合は空文字）
+     */
+    static String toQueryString(Map<String, String[]> params, Charset charset) {
+        StringBuilder query = new StringBuilder();
+        for (Map.Entry<String, String[]> param : params.entrySet()) {
+            String name = URLEncoder.encode(param.getKey(), charset);
+            for (String value : param.getValue()) {
+                if (query.length() > 0) {
+                    query.append('&');
+                }
+                query.append(name).append('=').append(URLEncoder.encode(value == null ? "" : value, charset));
+            }
+        }
+        return query.toString();
+    }
+
+    /**
+     * リクエストURIにクエリ文字列を付加する。
+     *
+     * @param uri リクエストURI
+     * @param query クエリ文字列
+     * @return クエリ文字列を付加したリクエストURI
+     */
+    static String appendQuery(String uri, String query) {
+        if (query.isEmpty()) {
+            return uri;
+        }
+        return uri + (uri.indexOf('?') < 0 ? "?" : "&") + query;
+    }
+
+    /**
+     * クッキーを、Cookieヘッダの値に変換する。
+     *
+     * @param cookie クッキー
+     * @return Cookieヘッダの値（クッキーが存在しない場合は空文字）
+     */
+    static String toCookieHeader(HttpCookie cookie) {
+        if (cookie == null) {
+            return "";
+        }
+        StringBuilder header = new StringBuilder();
+        for (Map.Entry<String, String> entry : cookie.entrySet()) {
+            if (header.length() > 0) {
+                header.append("; ");
+            }
+            header.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return header.toString();
+    }
+}
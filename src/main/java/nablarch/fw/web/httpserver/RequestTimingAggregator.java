@@ -0,0 +1,147 @@
+package nablarch.fw.web.httpserver;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * リクエストの処理のフェーズごとの所要時間を、リクエストパスごとに集計するリスナ。
+ * <p/>
+ * HTTPメソッドとリクエストパス（クエリ文字列を除いたリクエストURI）の組み合わせごとに、
+ * リクエスト数、フェーズごとの所要時間の合計、送受信サイズの合計を保持する。
+ * テストスイート全体で1つのインスタンスを共有し、{@link #getSummary(int)}で
+ * 所要時間の合計が大きいリクエストパスから順に確認することを想定している。
+ * <p/>
+ * 複数のスレッドから同時に呼び出されてもよい。
+ *
+ * @see HttpServerJetty12#addRequestTimingListener(RequestTimingListener)
+ */
+@Published(tag = "architect")
+public class RequestTimingAggregator implements RequestTimingListener {
+
+    /** リクエストパスごとの集計値 */
+    private final Map<String, Totals> totals = new ConcurrentHashMap<>();
+
+    @Override
+    public void onRequest(RequestTimings timings) {
+        totals.computeIfAbsent(toKey(timings), key -> new Totals()).add(timings);
+    }
+
+    /**
+     * 集計のキーを生成する。
+     *
+     * @param timings リクエストの処理の所要時間
+     * @return HTTPメソッドとリクエストパスを空白で連結した文字列
+     */
+    private static String toKey(RequestTimings timings) {
+        String uri = timings.getRequestUri();
+        int query = uri == null ? -1 : uri.indexOf('?');
+        return timings.getMethod() + ' ' + (query < 0 ? uri : uri.substring(0, query));
+    }
+
+    /**
+     * 集計したリクエスト数を返す。
+     *
+     * @return 全リクエストパスのリクエスト数の合計
+     */
+    public long getRequestCount() {
+        long count = 0;
+        for (Totals value : totals.values()) {
+            count += value.count.sum();
+        }
+        return count;
+    }
+
+    /**
+     * 集計結果を、処理全体の所要時間の合計が大きい順に返す。
+     * <p/>
+     * 1行に1つのリクエストパスの集計結果を{@code key=value}形式で出力する。
+     * 所要時間はミリ秒単位の合計値、送受信サイズはバイト単位の合計値。
+     *
+     * @param limit 出力するリクエストパスの上限数
+     * @return 集計結果を表す文字列
+     */
+    public String getSummary(int limit) {
+        List<Map.Entry<String, Totals>> entries = new ArrayList<>(totals.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Totals> entry) -> entry.getValue().total.sum())
+                .reversed());
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, Totals> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            Totals value = entry.getValue();
+            summary.append(entry.getKey())
+                    .append(" count=").append(value.count.sum())
+                    .append(" total=").append(RequestTimings.toMillis(value.total.sum()))
+                    .append(" serialize=").append(RequestTimings.toMillis(value.serialize.sum()))
+                    .append(" process=").append(RequestTimings.toMillis(value.process.sum()))
+                    .append(" latchWait=").append(RequestTimings.toMillis(value.latchWait.sum()))
+                    .append(" parse=").append(RequestTimings.toMillis(value.parse.sum()))
+                    .append(" dump=").append(RequestTimings.toMillis(value.dump.sum()))
+                    .append(" bytesIn=").append(value.bytesIn.sum())
+                    .append(" bytesOut=").append(value.bytesOut.sum())
+                    .append(System.lineSeparator());
+        }
+        return summary.toString();
+    }
+
+    /**
+     * 集計結果を破棄する。
+     */
+    public void clear() {
+        totals.clear();
+    }
+
+    /**
+     * 1つのリクエストパスの集計値。
+     */
+    private static final class Totals {
+
+        /** リクエスト数 */
+        private final LongAdder count = new LongAdder();
+
+        /** 処理全体の所要時間の合計（ナノ秒） */
+        private final LongAdder total = new LongAdder();
+
+        /** シリアライズの所要時間の合計（ナノ秒） */
+        private final LongAdder serialize = new LongAdder();
+
+        /** サーバでの処理の所要時間の合計（ナノ秒） */
+        private final LongAdder process = new LongAdder();
+
+        /** 処理完了の待機時間の合計（ナノ秒） */
+        private final LongAdder latchWait = new LongAdder();
+
+        /** パースの所要時間の合計（ナノ秒） */
+        private final LongAdder parse = new LongAdder();
+
+        /** HTTPダンプの出力の所要時間の合計（ナノ秒） */
+        private final LongAdder dump = new LongAdder();
+
+        /** 送信したバイト数の合計 */
+        private final LongAdder bytesIn = new LongAdder();
+
+        /** 受信したバイト数の合計 */
+        private final LongAdder bytesOut = new LongAdder();
+
+        /**
+         * リクエストの所要時間を加算する。
+         *
+         * @param timings リクエストの処理の所要時間
+         */
+        void add(RequestTimings timings) {
+            count.increment();
+            total.add(timings.getTotalNanos());
+            serialize.add(timings.getSerializeNanos());
+            process.add(timings.getProcessNanos());
+            latchWait.add(timings.getLatchWaitNanos());
+            parse.add(timings.getParseNanos());
+            dump.add(timings.getDumpNanos());
+            bytesIn.add(timings.getBytesIn());
+            bytesOut.add(timings.getBytesOut());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package nablarch.fw.web.httpserver;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * {@link HttpServerJetty12}でのリクエストの処理完了時に、処理のフェーズごとの所要時間を受け取るリスナ。
+ * <p/>
+ * {@link HttpServerJetty12#handle}、{@link HttpServerJetty12#handleAsync}、{@link HttpServerJetty12#handleAll}で
+ * 処理したリクエストごとに呼び出される。
+ * {@link HttpServerJetty12#handle}と{@link HttpServerJetty12#handleAll}の場合は呼び出し元のスレッドで、
+ * {@link HttpServerJetty12#handleAsync}の場合はレスポンスを完了させるスレッドで呼び出される。
+ * 並行にリクエストを処理する場合は、複数のスレッドから同時に呼び出される。
+ *
+ * @see HttpServerJetty12#addRequestTimingListener(RequestTimingListener)
+ */
+@Published(tag = "architect")
+public interface RequestTimingListener {
+
+    /**
+     * リクエストの処理が完了した時に呼び出される。
+     *
+     * @param timings リクエストの処理のフェーズごとの所要時間
+     */
+    void onRequest(RequestTimings timings);
+}
@@ -0,0 +1,273 @@
+package nablarch.fw.web.httpserver;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import nablarch.core.util.annotation.Published;
+import nablarch.fw.web.HttpRequest;
+
+/**
+ * {@link HttpServerJetty12}での1リクエストの処理のフェーズごとの所要時間と送受信サイズ。
+ * <p/>
+ * フェーズは以下のとおり。
+ * <pre>
+ *   serialize : リクエストのHTTPメッセージへのシリアライズとエンコード
+ *               （直接ディスパッチの場合は、リクエストメタデータの組み立て）
+ *   process   : リクエストの送信からレスポンスの受信完了まで（サーバでの処理を含み、parseを除く）
+ *   latchWait : サーバでの処理完了の待機（処理完了が通知される場合のみ）
+ *   parse     : レスポンスメッセージのパース（直接ディスパッチの場合は0）
+ *   dump      : HTTPダンプの出力（有効な場合のみ。他のリクエストのダンプ出力の待機を含む）
+ *               （別スレッドで出力する場合は、出力待ちのキューへの格納）
+ * </pre>
+ * 送信サイズはエンコードしたリクエストメッセージのバイト数、受信サイズは受信したレスポンスメッセージのバイト数。
+ * 直接ディスパッチの場合はHTTPメッセージにエンコードしないため、それぞれリクエストボディとレスポンスボディのバイト数となる。
+ */
+@Published(tag = "architect")
+public final class RequestTimings {
+
+    /** HTTPメソッド */
+    private final String method;
+
+    /** リクエストURI */
+    private final String requestUri;
+
+    /** 処理の開始時刻（{@link System#nanoTime()}） */
+    private final long beginNanos;
+
+    /** ステータスコード */
+    private int statusCode;
+
+    /** シリアライズの所要時間（ナノ秒） */
+    private long serializeNanos;
+
+    /** サーバでの処理の所要時間（ナノ秒） */
+    private long processNanos;
+
+    /** 処理完了の待機時間（ナノ秒） */
+    private long latchWaitNanos;
+
+    /** パースの所要時間（ナノ秒） */
+    private long parseNanos;
+
+    /** HTTPダンプの出力の所要時間（ナノ秒） */
+    private long dumpNanos;
+
+    /** 処理全体の所要時間（ナノ秒） */
+    private long totalNanos;
+
+    /** 送信したバイト数 */
+    private long bytesIn;
+
+    /** 受信したバイト数 */
+    private long bytesOut;
+
+    /** レスポンスボディを一時ファイルに書き出したか否か */
+    private boolean responseSpilled;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param req HTTPリクエスト
+     */
+    RequestTimings(HttpRequest req) {
+        this.method = req.getMethod();
+        this.requestUri = req.getRequestUri();
+        this.beginNanos = System.nanoTime();
+    }
+
+    /**
+     * リクエストの送信に関する値を記録する。
+     *
+     * @param serializeNanos シリアライズの所要時間（ナノ秒）
+     * @param bytesIn 送信したバイト数
+     */
+    void recordRequest(long serializeNanos, long bytesIn) {
+        this.serializeNanos = serializeNanos;
+        this.bytesIn = bytesIn;
+    }
+
+    /**
+     * レスポンスの受信に関する値を記録する。
+     *
+     * @param processNanos サーバでの処理の所要時間（ナノ秒）
+     * @param parseNanos パースの所要時間（ナノ秒）
+     * @param bytesOut 受信したバイト数
+     * @param responseSpilled レスポンスボディを一時ファイルに書き出したか否か
+     */
+    void recordResponse(long processNanos, long parseNanos, long bytesOut, boolean responseSpilled) {
+        this.processNanos = processNanos;
+        this.parseNanos = parseNanos;
+        this.bytesOut = bytesOut;
+        this.responseSpilled = responseSpilled;
+    }
+
+    /**
+     * レスポンスボディを一時ファイルに書き出したか否かを判定する。
+     * <pre>
+     * 書き出した場合、レスポンスのボディは1回しか読み出せない。
+     * </pre>
+     * @return 一時ファイルに書き出した場合{@code true}
+     */
+    boolean isResponseSpilled() {
+        return responseSpilled;
+    }
+
+    /**
+     * 処理完了の待機時間を記録する。
+     *
+     * @param latchWaitNanos 処理完了の待機時間（ナノ秒）
+     */
+    void recordLatchWait(long latchWaitNanos) {
+        this.latchWaitNanos = latchWaitNanos;
+    }
+
+    /**
+     * HTTPダンプの出力の所要時間を記録する。
+     *
+     * @param dumpNanos HTTPダンプの出力の所要時間（ナノ秒）
+     */
+    void recordDump(long dumpNanos) {
+        this.dumpNanos = dumpNanos;
+    }
+
+    /**
+     * 処理の完了を記録する。
+     *
+     * @param statusCode ステータスコード
+     */
+    void complete(int statusCode) {
+        this.statusCode = statusCode;
+        this.totalNanos = System.nanoTime() - beginNanos;
+    }
+
+    /**
+     * HTTPメソッドを返す。
+     *
+     * @return HTTPメソッド
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * リクエストURIを返す。
+     *
+     * @return リクエストURI
+     */
+    public String getRequestUri() {
+        return requestUri;
+    }
+
+    /**
+     * ステータスコードを返す。
+     *
+     * @return ステータスコード
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * シリアライズの所要時間を返す。
+     *
+     * @return 所要時間（ナノ秒）
+     */
+    public long getSerializeNanos() {
+        return serializeNanos;
+    }
+
+    /**
+     * サーバでの処理の所要時間を返す。
+     *
+     * @return 所要時間（ナノ秒）
+     */
+    public long getProcessNanos() {
+        return processNanos;
+    }
+
+    /**
+     * 処理完了の待機時間を返す。
+     *
+     * @return 待機時間（ナノ秒）
+     */
+    public long getLatchWaitNanos() {
+        return latchWaitNanos;
+    }
+
+    /**
+     * パースの所要時間を返す。
+     *
+     * @return 所要時間（ナノ秒）
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * HTTPダンプの出力の所要時間を返す。
+     *
+     * @return 所要時間（ナノ秒）
+     */
+    public long getDumpNanos() {
+        return dumpNanos;
+    }
+
+    /**
+     * 処理全体の所要時間を返す。
+     *
+     * @return 所要時間（ナノ秒）
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * 送信したバイト数を返す。
+     *
+     * @return 送信したバイト数
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * 受信したバイト数を返す。
+     *
+     * @return 受信したバイト数
+     */
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * 所要時間を1行の{@code key=value}形式で返す。
+     * <p/>
+     * 所要時間はミリ秒単位で出力する。
+     *
+     * @return 所要時間を表す文字列
+     */
+    @Override
+    public String toString() {
+        return "method=" + method
+                + " uri=" + requestUri
+                + " status=" + statusCode
+                + " total=" + toMillis(totalNanos)
+                + " serialize=" + toMillis(serializeNanos)
+                + " process=" + toMillis(processNanos)
+                + " latchWait=" + toMillis(latchWaitNanos)
+                + " parse=" + toMillis(parseNanos)
+                + " dump=" + toMillis(dumpNanos)
+                + " bytesIn=" + bytesIn
+                + " bytesOut=" + bytesOut;
+    }
+
+    /**
+     * ナノ秒をミリ秒（小数点以下3桁）の文字列に変換する。
+     *
+     * @param nanos ナノ秒
+     * @return ミリ秒の文字列
+     */
+    static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
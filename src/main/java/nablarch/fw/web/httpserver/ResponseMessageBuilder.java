@@ -0,0 +1,222 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.util.BufferUtil;
+
+import nablarch.fw.web.HttpResponse;
+
+/**
+ * 受信したステータスライン、ヘッダ、ボディから{@link HttpResponse}を組み立てるクラス。
+ * <pre>
+ * ステータスラインとヘッダは{@link HttpResponse#parse(byte[])}でパースするため、
+ * クッキー等の扱いはHTTPレスポンスメッセージ全体をパースした場合と同じとなる。
+ * ボディはデコード済みの内容を受け取り、サイズが閾値を超えた場合は、ヒープに保持せずに一時ファイルに書き出し、
+ * {@link HttpResponse#setBodyStream(java.io.InputStream)}でその一時ファイルを読み出すストリームを設定する。
+ * （一時ファイルはストリームのクローズ時に削除される）
+ * {@link #discard()}で破棄した後は、ボディの追加やレスポンスの生成はできない。
+ * タイムアウトによる破棄と、Jettyのスレッドからのボディの追加が並行する場合があるため、
+ * ボディの追加、レスポンスの生成、破棄は排他して行う。
+ * </pre>
+ */
+class ResponseMessageBuilder {
+
+    /** ステータスライン・ヘッダのエンコーディング */
+    private static final Charset HEAD_CHARSET = StandardCharsets.ISO_8859_1;
+
+    /** ボディを一時ファイルに書き出す閾値（バイト） */
+    private final long spillThreshold;
+
+    /** ステータスライン・ヘッダ（Content-LengthとTransfer-Encodingを除く） */
+    private final StringBuilder head = new StringBuilder();
+
+    /** Content-Lengthヘッダの値 */
+    private String contentLength;
+
+    /** Transfer-Encodingヘッダの値 */
+    private String transferEncoding;
+
+    /** ヒープに保持しているボディ */
+    private ByteArrayOutputStream memoryBody;
+
+    /** ボディの書き出し先の一時ファイル（書き出していない場合は{@code null}） */
+    private Path spillFile;
+
+    /** 一時ファイルへの出力ストリーム */
+    private OutputStream spillOut;
+
+    /** 受信したボディのサイズ */
+    private long bodySize;
+
+    /** 破棄されたか否か */
+    private boolean discarded;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param spillThreshold ボディを一時ファイルに書き出す閾値（バイト）
+     */
+    ResponseMessageBuilder(long spillThreshold) {
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * ステータスラインを設定する。
+     *
+     * @param version HTTPバージョン
+     * @param status ステータスコード
+     * @param reason 理由フレーズ
+     */
+    void status(String version, int status, String reason) {
+        head.append(version).append(' ').append(status);
+        if (reason != null && !reason.isEmpty()) {
+            head.append(' ').append(reason);
+        }
+        head.append("\r\n");
+    }
+
+    /**
+     * ヘッダを追加する。
+     *
+     * @param field ヘッダ
+     */
+    void header(HttpField field) {
+        // ボディはデコードした状態で保持するため、ボディの形式を表すヘッダはボディの設定後に反映する。
+        if (field.getHeader() == HttpHeader.CONTENT_LENGTH) {
+            contentLength = field.getValue();
+        } else if (field.getHeader() == HttpHeader.TRANSFER_ENCODING) {
+            transferEncoding = field.getValue();
+        } else {
+            head.append(field.getName()).append(": ").append(field.getValue()).append("\r\n");
+        }
+    }
+
+    /**
+     * ボディを追加する。
+     *
+     * @param content ボディの内容（デコード済み）
+     * @throws IOException 一時ファイルへの書き出しに失敗した場合や、破棄された後に呼び出された場合
+     */
+    synchronized void body(ByteBuffer content) throws IOException {
+        if (discarded) {
+            throw new IOException("response body has been discarded.");
+        }
+        int size = content.remaining();
+        if (memoryBody == null && spillFile == null) {
+            long length = contentLength == null ? -1L : parseLength(contentLength);
+            memoryBody = new ByteArrayOutputStream(
+                    length > 0 && length <= spillThreshold ? (int) length : 256);
+        }
+        if (spillFile == null && bodySize + size > spillThreshold) {
+            spill();
+        }
+        BufferUtil.writeTo(content, spillFile == null ? memoryBody : spillOut);
+        bodySize += size;
+    }
+
+    /**
+     * 受信したボディのサイズを取得する。
+     *
+     * @return 受信したボディのサイズ（バイト）
+     */
+    synchronized long getBodySize() {
+        return bodySize;
+    }
+
+    /**
+     * ボディを一時ファイルに書き出したか否かを判定する。
+     * <pre>
+     * 書き出した場合、生成したレスポンスのボディは一時ファイルを読み出すストリームとなり、1回しか読み出せない。
+     * </pre>
+     * @return 一時ファイルに書き出した場合{@code true}
+     */
+    synchronized boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * Content-Lengthヘッダの値を数値に変換する。
+     *
+     * @param value Content-Lengthヘッダの値
+     * @return 変換結果（数値でない場合は-1）
+     */
+    private static long parseLength(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * ヒープに保持しているボディを一時ファイルに書き出し、以降のボディの書き出し先を一時ファイルに切り替える。
+     *
+     * @throws IOException 一時ファイルの書き出しに失敗した場合
+     */
+    private void spill() throws IOException {
+        spillFile = Files.createTempFile("nablarch-response-", ".tmp");
+        spillOut = Files.newOutputStream(spillFile);
+        memoryBody.writeTo(spillOut);
+        memoryBody = null;
+    }
+
+    /**
+     * 設定された内容から、HTTPレスポンスオブジェクトを生成する。
+     *
+     * @return HTTPレスポンス
+     * @throws IllegalStateException 破棄された後に呼び出された場合
+     */
+    synchronized HttpResponse build() {
+        if (discarded) {
+            throw new IllegalStateException("response has been discarded.");
+        }
+        head.append("\r\n");
+        HttpResponse res = HttpResponse.parse(head.toString().getBytes(HEAD_CHARSET));
+        if (spillFile == null) {
+            if (memoryBody != null && memoryBody.size() > 0) {
+                res.write(memoryBody.toByteArray());
+            }
+        } else {
+            try {
+                spillOut.close();
+                res.setBodyStream(Files.newInputStream(spillFile, StandardOpenOption.DELETE_ON_CLOSE));
+            } catch (IOException e) {
+                discard();
+                throw new RuntimeException(e);
+            }
+        }
+        if (contentLength != null) {
+            res.setHeader(HttpHeader.CONTENT_LENGTH.asString(), contentLength);
+        }
+        if (transferEncoding != null) {
+            res.setHeader(HttpHeader.TRANSFER_ENCODING.asString(), transferEncoding);
+        }
+        return res;
+    }
+
+    /**
+     * 一時ファイルに書き出したボディを破棄する。
+     */
+    synchronized void discard() {
+        discarded = true;
+        if (spillFile == null) {
+            return;
+        }
+        try {
+            spillOut.close();
+            Files.deleteIfExists(spillFile);
+        } catch (IOException ignored) {
+            // 一時ファイルの削除に失敗しても、レスポンスの処理には影響しない。
+        }
+    }
+}
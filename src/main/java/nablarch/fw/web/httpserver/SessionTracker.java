@@ -0,0 +1,52 @@
+package nablarch.fw.web.httpserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionListener;
+
+/**
+ * Webアプリケーションで生成されたセッションを記録する{@link HttpSessionListener}実装クラス。
+ *
+ * プールされた内蔵サーバを別の{@link HttpServerJetty12}で再利用する際に、
+ * 前のテストクラスで生成されたセッションを破棄するために使用する。
+ */
+class SessionTracker implements HttpSessionListener {
+
+    /** 有効なセッション */
+    private final Set<HttpSession> sessions = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void sessionCreated(HttpSessionEvent se) {
+        sessions.add(se.getSession());
+    }
+
+    @Override
+    public void sessionDestroyed(HttpSessionEvent se) {
+        sessions.remove(se.getSession());
+    }
+
+    /**
+     * 有効なセッションを全て無効化する。
+     *
+     * @return 無効化したセッションの数
+     */
+    int invalidateAll() {
+        List<HttpSession> targets = new ArrayList<>(sessions);
+        int invalidated = 0;
+        for (HttpSession session : targets) {
+            sessions.remove(session);
+            try {
+                session.invalidate();
+                invalidated++;
+            } catch (IllegalStateException e) {
+                // 既に無効化されている場合は、何もしない。
+            }
+        }
+        return invalidated;
+    }
+}
@@ -0,0 +1,42 @@
+package nablarch.fw.web.httpserver;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * デプロイプロファイルごとの内蔵サーバの起動時間を集計するクラス。
+ * <p/>
+ * プロセス内で起動した内蔵サーバの起動時間を、デプロイプロファイルごとに平均して保持する。
+ */
+final class StartupStatistics {
+
+    /** デプロイプロファイルごとの起動回数と起動時間の合計（ナノ秒） */
+    private static final Map<DeploymentProfile, long[]> STARTUPS = new EnumMap<>(DeploymentProfile.class);
+
+    /** インスタンス化しない */
+    private StartupStatistics() {
+    }
+
+    /**
+     * 起動時間を記録し、デプロイプロファイルごとの平均起動時間を返す。
+     *
+     * @param profile デプロイプロファイル
+     * @param startupNanos 起動時間（ナノ秒）
+     * @return デプロイプロファイルごとの平均起動時間を表す文字列
+     */
+    static synchronized String record(DeploymentProfile profile, long startupNanos) {
+        long[] startup = STARTUPS.computeIfAbsent(profile, key -> new long[2]);
+        startup[0]++;
+        startup[1] += startupNanos;
+
+        StringBuilder averages = new StringBuilder();
+        for (Map.Entry<DeploymentProfile, long[]> entry : STARTUPS.entrySet()) {
+            long[] value = entry.getValue();
+            averages.append(' ').append(entry.getKey().getProfileName())
+                    .append(" = [").append(TimeUnit.NANOSECONDS.toMillis(value[1] / value[0]))
+                    .append("ms/").append(value[0]).append(']');
+        }
+        return averages.toString().trim();
+    }
+}
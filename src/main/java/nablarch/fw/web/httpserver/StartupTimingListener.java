@@ -0,0 +1,21 @@
+package nablarch.fw.web.httpserver;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * {@link HttpServerJetty12}の起動完了時に、起動処理のフェーズごとの所要時間を受け取るリスナ。
+ * <p/>
+ * {@link HttpServerJetty12#redeploy()}でWebアプリケーションを再デプロイした場合も呼び出される。
+ *
+ * @see HttpServerJetty12#addStartupTimingListener(StartupTimingListener)
+ */
+@Published(tag = "architect")
+public interface StartupTimingListener {
+
+    /**
+     * サーバの起動が完了した時に呼び出される。
+     *
+     * @param timings 起動処理のフェーズごとの所要時間
+     */
+    void onStartup(StartupTimings timings);
+}
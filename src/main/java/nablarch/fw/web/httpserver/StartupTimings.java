@@ -0,0 +1,151 @@
+package nablarch.fw.web.httpserver;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * {@link HttpServerJetty12}の起動処理のフェーズごとの所要時間。
+ * <p/>
+ * フェーズは実行された順に保持される。主なフェーズは以下のとおり。
+ * <pre>
+ *   server                  : サーバとコネクタの生成
+ *   resources               : WARベースパスからのリソースの生成
+ *   quickStartGenerate      : quickstartディスクリプタの生成（生成した場合のみ）
+ *   preConfigure            : 各Configurationの事前設定（ソートとクラスローダの設定を含む）
+ *   configure.&lt;Configuration名&gt;     : 各Configurationの設定（アノテーションのスキャンを含む）
+ *   metadata                : web.xml等のメタデータの反映
+ *   initializers            : ServletContainerInitializerの実行（JSPのTLDスキャンを含む）
+ *   servlets                : フィルタとサーブレットの初期化（JSPサーブレットの初期化を含む）
+ *   postConfigure.&lt;Configuration名&gt; : 各Configurationの事後処理
+ *   jettyStart              : サーバの起動全体（上記のうちpreConfigure以降を含む）
+ *   webAppStart             : Webアプリケーションの起動全体（再デプロイ時のみ。jettyStartの代わりに記録される）
+ *   jspPrecompile           : JSPのコンパイル（有効な場合のみ）
+ * </pre>
+ * jettyStartは内訳となるフェーズを含むため、全フェーズの合計は起動時間と一致しない。
+ * 起動時間は{@link #getTotalMillis()}で取得する。
+ */
+@Published(tag = "architect")
+public final class StartupTimings {
+
+    /** デプロイプロファイル名 */
+    private final String profileName;
+
+    /** フェーズごとの所要時間（ナノ秒） */
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    /** 起動処理全体の所要時間（ナノ秒） */
+    private long totalNanos;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param profileName デプロイプロファイル名
+     */
+    StartupTimings(String profileName) {
+        this.profileName = profileName;
+    }
+
+    /**
+     * フェーズの所要時間を記録する。
+     * <p/>
+     * 同じフェーズが複数回記録された場合は、所要時間を合算する。
+     *
+     * @param phase フェーズ名
+     * @param elapsedNanos 所要時間（ナノ秒）
+     */
+    synchronized void record(String phase, long elapsedNanos) {
+        phases.merge(phase, elapsedNanos, Long::sum);
+    }
+
+    /**
+     * 起動処理全体の所要時間を記録する。
+     *
+     * @param totalNanos 所要時間（ナノ秒）
+     */
+    synchronized void complete(long totalNanos) {
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * デプロイプロファイル名を返す。
+     *
+     * @return デプロイプロファイル名
+     */
+    public String getProfileName() {
+        return profileName;
+    }
+
+    /**
+     * 記録されたフェーズ名を、実行された順に返す。
+     *
+     * @return フェーズ名
+     */
+    public synchronized List<String> getPhaseNames() {
+        return new ArrayList<>(phases.keySet());
+    }
+
+    /**
+     * フェーズの所要時間を返す。
+     *
+     * @param phase フェーズ名
+     * @return 所要時間（ナノ秒）。記録されていないフェーズの場合は{@code -1}
+     */
+    public synchronized long getElapsedNanos(String phase) {
+        Long elapsed = phases.get(phase);
+        return elapsed == null ? -1L : elapsed;
+    }
+
+    /**
+     * フェーズの所要時間を返す。
+     *
+     * @param phase フェーズ名
+     * @return 所要時間（ミリ秒）。記録されていないフェーズの場合は{@code -1}
+     */
+    public long getElapsedMillis(String phase) {
+        long elapsed = getElapsedNanos(phase);
+        return elapsed < 0 ? -1L : TimeUnit.NANOSECONDS.toMillis(elapsed);
+    }
+
+    /**
+     * 起動処理全体の所要時間を返す。
+     *
+     * @return 所要時間（ミリ秒）
+     */
+    public synchronized long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+    }
+
+    /**
+     * 所要時間を1行の{@code key=value}形式で返す。
+     * <p/>
+     * 所要時間はミリ秒単位で出力する。
+     *
+     * @return 所要時間を表す文字列
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder line = new StringBuilder()
+                .append("profile=").append(profileName)
+                .append(" total=").append(toMillis(totalNanos));
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            line.append(' ').append(phase.getKey()).append('=').append(toMillis(phase.getValue()));
+        }
+        return line.toString();
+    }
+
+    /**
+     * ナノ秒をミリ秒（小数点以下1桁）の文字列に変換する。
+     *
+     * @param nanos ナノ秒
+     * @return ミリ秒の文字列
+     */
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000000.0);
+    }
+}
@@ -0,0 +1,195 @@
+package nablarch.fw.web.httpserver;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nablarch.fw.web.HttpResponse;
+
+/**
+ * 静的リソースに対するHTTPレスポンスを、メモリ上に保持するキャッシュ。
+ * <p/>
+ * リクエストURIをキーとして、ステータスコード、ヘッダ、ボディを保持する。
+ * 各エントリはリソースの最終更新日時とともに保持し、取得時の最終更新日時と一致しない場合は無効とする。
+ * 保持しているボディの合計サイズが上限を超えた場合は、最も長く参照されていないエントリから破棄する。
+ * <p/>
+ * 取得したHTTPレスポンスは取得のたびに生成するため、呼び出し元で変更しても他の呼び出しには影響しない。
+ * <p/>
+ * 複数のスレッドから同時に使用できる。
+ */
+class StaticResponseCache {
+
+    /** 保持するボディの合計サイズの上限（バイト） */
+    private final long maxBytes;
+
+    /** リクエストURIをキーとしたエントリ（参照順） */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** 保持しているボディの合計サイズ（バイト） */
+    private long totalBytes;
+
+    /** キャッシュから取得できた回数 */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /** キャッシュから取得できなかった回数 */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param maxBytes 保持するボディの合計サイズの上限（バイト）
+     */
+    StaticResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * キャッシュからHTTPレスポンスを取得する。
+     *
+     * @param requestUri リクエストURI
+     * @param lastModified リソースの最終更新日時（エポックミリ秒）
+     * @return HTTPレスポンス（保持していない場合や、最終更新日時が一致しない場合は{@code null}）
+     */
+    HttpResponse get(String requestUri, long lastModified) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(requestUri);
+            if (entry != null && entry.lastModified != lastModified) {
+                remove(requestUri);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.toResponse();
+    }
+
+    /**
+     * HTTPレスポンスをキャッシュに格納する。
+     * <p/>
+     * ボディのサイズが上限を超える場合は格納しない。
+     *
+     * @param requestUri リクエストURI
+     * @param lastModified リソースの最終更新日時（エポックミリ秒）
+     * @param res HTTPレスポンス
+     * @param body HTTPレスポンスのボディ
+     */
+    void put(String requestUri, long lastModified, HttpResponse res, byte[] body) {
+        if (body.length > maxBytes) {
+            return;
+        }
+        Entry entry = new Entry(lastModified, res.getStatusCode(), new LinkedHashMap<>(res.getHeaderMap()), body);
+        synchronized (this) {
+            remove(requestUri);
+            entries.put(requestUri, entry);
+            totalBytes += body.length;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (totalBytes > maxBytes) {
+                totalBytes -= eldest.next().body.length;
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * 全てのエントリを破棄する。
+     */
+    synchronized void clear() {
+        entries.clear();
+        totalBytes = 0L;
+    }
+
+    /**
+     * 保持しているボディの合計サイズを取得する。
+     *
+     * @return 合計サイズ（バイト）
+     */
+    synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * キャッシュから取得できた回数を取得する。
+     *
+     * @return 取得できた回数
+     */
+    long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * キャッシュから取得できなかった回数を取得する。
+     *
+     * @return 取得できなかった回数
+     */
+    long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * エントリを破棄する。
+     *
+     * @param requestUri リクエストURI
+     */
+    private void remove(String requestUri) {
+        Entry removed = entries.remove(requestUri);
+        if (removed != null) {
+            totalBytes -= removed.body.length;
+        }
+    }
+
+    /**
+     * キャッシュのエントリ。
+     */
+    private static final class Entry {
+
+        /** リソースの最終更新日時（エポックミリ秒） */
+        private final long lastModified;
+
+        /** ステータスコード */
+        private final int statusCode;
+
+        /** ヘッダ */
+        private final Map<String, String> headers;
+
+        /** ボディ */
+        private final byte[] body;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param lastModified リソースの最終更新日時（エポックミリ秒）
+         * @param statusCode ステータスコード
+         * @param headers ヘッダ
+         * @param body ボディ
+         */
+        Entry(long lastModified, int statusCode, Map<String, String> headers, byte[] body) {
+            this.lastModified = lastModified;
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        /**
+         * 保持している内容から、HTTPレスポンスを生成する。
+         * <p/>
+         * ボディの書き込みでContent-Length等が変更されないよう、ヘッダはボディの書き込み後に設定する。
+         *
+         * @return HTTPレスポンス
+         */
+        HttpResponse toResponse() {
+            HttpResponse res = new HttpResponse(statusCode);
+            if (body.length > 0) {
+                res.write(body);
+            }
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                res.setHeader(header.getKey(), header.getValue());
+            }
+            return res;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpParser;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.util.BufferUtil;
+
+import nablarch.fw.web.HttpResponse;
+
+/**
+ * ローカルコネクタから受信したHTTPレスポンスメッセージを、受信しながらパースするクラス。
+ * <pre>
+ * レスポンスメッセージ全体をバイト配列にコピーしてからパースするのではなく、
+ * コネクタが出力したデータを受信した分ずつパースする。
+ * チャンク形式のボディはデコードした上で{@link ResponseMessageBuilder}に渡すため、
+ * サイズが閾値を超えるボディはヒープに保持せずに一時ファイルに書き出される。
+ * </pre>
+ */
+class StreamingResponseParser implements HttpParser.ResponseHandler {
+
+    /** パーサ */
+    private final HttpParser parser;
+
+    /** パースした内容から組み立てるレスポンス */
+    private final ResponseMessageBuilder builder;
+
+    /** メッセージの受信が完了したか否か */
+    private boolean complete;
+
+    /** パース中に発生した例外（発生していない場合は{@code null}） */
+    private RuntimeException failure;
+
+    /** 受信したバイト数 */
+    private long receivedBytes;
+
+    /** パースとレスポンスの組み立てに要した時間（ナノ秒） */
+    private long parseNanos;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param spillThreshold ボディを一時ファイルに書き出す閾値（バイト）
+     * @param headRequest HEADリクエストに対するレスポンスか否か
+     */
+    StreamingResponseParser(long spillThreshold, boolean headRequest) {
+        this.builder = new ResponseMessageBuilder(spillThreshold);
+        this.parser = new HttpParser(this);
+        parser.setHeadResponse(headRequest);
+    }
+
+    /**
+     * エンドポイントから出力されたレスポンスを、受信が完了するまで読み込んでパースする。
+     *
+     * @param endPoint ローカルコネクタのエンドポイント
+     * @param timeout 受信を待機する時間の上限
+     * @param unit {@code timeout}の単位
+     * @return パースしたHTTPレスポンス
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    HttpResponse parse(LocalConnector.LocalEndPoint endPoint, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            while (!complete) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IllegalStateException(
+                            "response was not received within the timeout. timeout = ["
+                                    + unit.toMillis(timeout) + "ms]");
+                }
+                ByteBuffer output = endPoint.waitForOutput(remaining, TimeUnit.NANOSECONDS);
+                if (BufferUtil.hasContent(output)) {
+                    receivedBytes += output.remaining();
+                    long begin = System.nanoTime();
+                    while (!complete && output.hasRemaining()) {
+                        parser.parseNext(output);
+                        checkFailure();
+                    }
+                    parseNanos += System.nanoTime() - begin;
+                } else if (!endPoint.isOpen() || endPoint.isOutputShutdown()) {
+                    // 接続が閉じられた場合は、Content-Lengthのないボディの終端として扱う。
+                    parser.atEOF();
+                    parser.parseNext(BufferUtil.EMPTY_BUFFER);
+                    checkFailure();
+                    if (!complete) {
+                        throw new IllegalStateException("connection closed before the response was completed.");
+                    }
+                }
+            }
+            long begin = System.nanoTime();
+            HttpResponse res = builder.build();
+            parseNanos += System.nanoTime() - begin;
+            return res;
+        } catch (RuntimeException | InterruptedException e) {
+            builder.discard();
+            throw e;
+        }
+    }
+
+    /**
+     * 受信したバイト数を取得する。
+     *
+     * @return 受信したバイト数
+     */
+    long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    /**
+     * レスポンスボディを一時ファイルに書き出したか否かを判定する。
+     *
+     * @return 一時ファイルに書き出した場合{@code true}
+     * @see ResponseMessageBuilder#isSpilled()
+     */
+    boolean isSpilled() {
+        return builder.isSpilled();
+    }
+
+    /**
+     * パースとレスポンスの組み立てに要した時間を取得する。
+     * <pre>
+     * レスポンスの受信を待機していた時間は含まない。
+     * </pre>
+     * @return 所要時間（ナノ秒）
+     */
+    long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * パース中に例外が発生していた場合、その例外を送出する。
+     * <pre>
+     * パーサはハンドラから送出された例外を不正なメッセージとして扱うため、
+     * ハンドラで発生した例外は保持しておき、パースの呼び出し元で送出する。
+     * </pre>
+     */
+    private void checkFailure() {
+        if (failure != null) {
+            throw failure;
+        }
+        if (!complete && (parser.isState(HttpParser.State.CLOSE) || parser.isState(HttpParser.State.CLOSED))) {
+            throw new IllegalStateException("invalid response message was received.");
+        }
+    }
+
+    @Override
+    public void startResponse(HttpVersion version, int status, String reason) {
+        builder.status(version.asString(), status, reason);
+    }
+
+    @Override
+    public void parsedHeader(HttpField field) {
+        builder.header(field);
+    }
+
+    @Override
+    public boolean headerComplete() {
+        return false;
+    }
+
+    @Override
+    public boolean content(ByteBuffer item) {
+        try {
+            builder.body(item);
+        } catch (IOException e) {
+            failure = new RuntimeException(e);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contentComplete() {
+        return false;
+    }
+
+    @Override
+    public boolean messageComplete() {
+        complete = true;
+        return true;
+    }
+
+    @Override
+    public void earlyEOF() {
+        failure = new IllegalStateException("connection closed before the response was completed.");
+    }
+}
@@ -0,0 +1,77 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.IOException;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+
+/**
+ * 処理の委譲先を後から差し替えることができる{@link Filter}実装クラス。
+ *
+ * プールされた内蔵サーバを別の{@link HttpServerJetty12}で再利用する際に、
+ * デプロイ済みのWARはそのままで、リクエストの処理先となる
+ * {@link nablarch.fw.web.servlet.WebFrontController}のみを差し替えるために使用する。
+ */
+class SwitchableFilter implements Filter {
+
+    /** 処理の委譲先 */
+    private volatile Filter delegate;
+
+    /** 初期化時に渡された設定（未初期化の場合は{@code null}） */
+    private volatile FilterConfig filterConfig;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param delegate 処理の委譲先
+     */
+    SwitchableFilter(Filter delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 処理の委譲先を差し替える。
+     * <p/>
+     * このフィルタが既に初期化されている場合、
+     * 新しい委譲先は同じ{@link FilterConfig}で初期化され、差し替え前の委譲先は破棄される。
+     *
+     * @param newDelegate 新しい委譲先
+     * @throws ServletException 委譲先の初期化に失敗した場合
+     */
+    void switchTo(Filter newDelegate) throws ServletException {
+        Filter previous = delegate;
+        if (newDelegate == previous) {
+            return;
+        }
+        FilterConfig config = filterConfig;
+        if (config != null) {
+            newDelegate.init(config);
+        }
+        delegate = newDelegate;
+        if (config != null) {
+            previous.destroy();
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        this.filterConfig = filterConfig;
+        delegate.init(filterConfig);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        delegate.doFilter(request, response, chain);
+    }
+
+    @Override
+    public void destroy() {
+        delegate.destroy();
+        filterConfig = null;
+    }
+}
@@ -0,0 +1,85 @@
+package nablarch.fw.web.httpserver;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+import org.eclipse.jetty.ee10.webapp.Configuration;
+import org.eclipse.jetty.ee10.webapp.WebAppContext;
+
+/**
+ * 起動処理のフェーズごとの所要時間を{@link StartupTimings}に記録する{@link WebAppContext}。
+ * <p/>
+ * 各{@link Configuration}の設定処理と事後処理は、{@link WebAppContext}と同じ順序で個別に呼び出し、
+ * Configurationごとに所要時間を記録する。
+ * 事前設定処理はConfigurationのソートやクラスローダの設定と一体となっているため、まとめて記録する。
+ */
+class TimedWebAppContext extends WebAppContext {
+
+    /** 所要時間の記録先 */
+    private final StartupTimings timings;
+
+    /** 直前のフェーズの終了時刻（{@link System#nanoTime()}の値） */
+    private long lastMark;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param timings 所要時間の記録先
+     */
+    TimedWebAppContext(StartupTimings timings) {
+        this.timings = timings;
+        // ServletContainerInitializerの実行後、サーブレットの初期化前に呼び出される。
+        addEventListener(new ServletContextListener() {
+            @Override
+            public void contextInitialized(ServletContextEvent sce) {
+                lap("initializers");
+            }
+        });
+    }
+
+    @Override
+    public void preConfigure() throws Exception {
+        lastMark = System.nanoTime();
+        super.preConfigure();
+        lap("preConfigure");
+    }
+
+    @Override
+    public boolean configure() throws Exception {
+        for (Configuration configuration : getConfigurations()) {
+            configuration.configure(this);
+            lap("configure." + configuration.getClass().getSimpleName());
+            if (configuration.abort(this)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void startWebapp() throws Exception {
+        lap("metadata");
+        super.startWebapp();
+        lap("servlets");
+    }
+
+    @Override
+    public void postConfigure() throws Exception {
+        lastMark = System.nanoTime();
+        for (Configuration configuration : getConfigurations()) {
+            configuration.postConfigure(this);
+            lap("postConfigure." + configuration.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * 直前のフェーズの終了時刻からの経過時間を、フェーズの所要時間として記録する。
+     *
+     * @param phase フェーズ名
+     */
+    private void lap(String phase) {
+        long now = System.nanoTime();
+        timings.record(phase, now - lastMark);
+        lastMark = now;
+    }
+}
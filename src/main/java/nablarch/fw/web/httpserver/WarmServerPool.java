@@ -0,0 +1,365 @@
+package nablarch.fw.web.httpserver;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.ee10.webapp.WebAppContext;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * {@link HttpServerJetty12#startLocal()}で起動した内蔵サーバをプロセス内で再利用するためのプール。
+ * <p/>
+ * 内蔵サーバは、デプロイ内容を識別するフィンガープリント
+ * （WARベースパス、サーブレットコンテキストパス、一時ディレクトリ、Webフロントコントローラ）
+ * をキーとして保持される。
+ * 同じフィンガープリントで再度{@link HttpServerJetty12#startLocal()}が呼び出された場合、
+ * サーバの生成とWARのデプロイは行わず、プールされたサーバの
+ * Webフロントコントローラのみを差し替えて再利用する。
+ * <p/>
+ * プールされたサーバは、最後に取得した{@link HttpServerJetty12}のハンドラキューでリクエストを処理する。
+ * このため、同時に複数の{@link HttpServerJetty12}から同じサーバを使用することはできない。
+ * 別の{@link HttpServerJetty12}がサーバを取得した時点で、それまでサーバを使用していた{@link HttpServerJetty12}は
+ * サーバを使用できなくなる（リクエストを処理しようとすると例外を送出する）。
+ * 再利用時には、前の{@link HttpServerJetty12}で生成されたセッションは全て無効化される。
+ */
+@Published(tag = "architect")
+public final class WarmServerPool {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(WarmServerPool.class);
+
+    /** シングルトンインスタンス */
+    private static final WarmServerPool INSTANCE = new WarmServerPool();
+
+    /** フィンガープリントをキーとしたプール済みサーバ */
+    private final Map<String, PooledServer> servers = new LinkedHashMap<>();
+
+    /** プールからサーバを取得できた回数 */
+    private long hitCount;
+
+    /** プールにサーバが存在しなかった回数 */
+    private long missCount;
+
+    /** 再利用によって節約した起動時間（ナノ秒） */
+    private long savedStartupNanos;
+
+    /**
+     * プールのインスタンスを取得する。
+     *
+     * @return プールのインスタンス
+     */
+    public static WarmServerPool getInstance() {
+        return INSTANCE;
+    }
+
+    /** プライベートコンストラクタ */
+    private WarmServerPool() {
+    }
+
+    /**
+     * フィンガープリントに対応するサーバをプールから取得する。
+     * <p/>
+     * 取得したサーバは、指定した{@link HttpServerJetty12}が使用中となる。
+     * 他の{@link HttpServerJetty12}が使用中だった場合、そのサーバは使用できなくなり、
+     * HTTPダンプのZIPファイルが閉じられる。
+     *
+     * @param fingerprint デプロイ内容のフィンガープリント
+     * @param owner サーバを使用する{@link HttpServerJetty12}
+     * @return プールされたサーバ。存在しない場合は{@code null}
+     */
+    PooledServer acquire(String fingerprint, HttpServerJetty12 owner) {
+        PooledServer pooled;
+        HttpServerJetty12 displaced = null;
+        synchronized (this) {
+            pooled = servers.get(fingerprint);
+            if (pooled == null || !pooled.getServer().isStarted()) {
+                servers.remove(fingerprint);
+                missCount++;
+                return null;
+            }
+            if (pooled.owner != null && pooled.owner != owner) {
+                LOGGER.logInfo("a pooled server was taken over by another server. "
+                        + "the previous server can no longer handle requests.");
+                displaced = pooled.owner;
+            }
+            pooled.owner = owner;
+            hitCount++;
+            savedStartupNanos += pooled.getStartupNanos();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.logDebug("reused a pooled server. " + this);
+            }
+        }
+        if (displaced != null) {
+            displaced.closeHttpDumpArchive();
+        }
+        return pooled;
+    }
+
+    /**
+     * サーバの使用を終了する。
+     * <p/>
+     * 指定した{@link HttpServerJetty12}が使用中でない場合は何もしない。
+     * サーバは停止せず、プールに残る。
+     *
+     * @param pooled プールされたサーバ
+     * @param owner サーバを使用していた{@link HttpServerJetty12}
+     */
+    synchronized void release(PooledServer pooled, HttpServerJetty12 owner) {
+        if (pooled.owner == owner) {
+            pooled.owner = null;
+        }
+    }
+
+    /**
+     * サーバを、指定した{@link HttpServerJetty12}が使用中であるか否かを判定する。
+     *
+     * @param pooled プールされたサーバ
+     * @param owner {@link HttpServerJetty12}
+     * @return 使用中の場合{@code true}
+     */
+    synchronized boolean isOwnedBy(PooledServer pooled, HttpServerJetty12 owner) {
+        return pooled.owner == owner;
+    }
+
+    /**
+     * サーバをプールに登録する。
+     * <p/>
+     * 登録したサーバは、指定した{@link HttpServerJetty12}が使用中となる。
+     *
+     * @param fingerprint デプロイ内容のフィンガープリント
+     * @param pooled 登録するサーバ
+     * @param owner サーバを使用する{@link HttpServerJetty12}
+     */
+    synchronized void register(String fingerprint, PooledServer pooled, HttpServerJetty12 owner) {
+        pooled.owner = owner;
+        servers.put(fingerprint, pooled);
+    }
+
+    /**
+     * サーバをプールから登録解除する。
+     * <p/>
+     * サーバは停止しない。
+     * 登録解除したサーバを使用中だった他の{@link HttpServerJetty12}は、そのサーバを使用できなくなり、
+     * HTTPダンプのZIPファイルが閉じられる。
+     *
+     * @param server 登録解除するサーバ
+     * @param owner 登録解除を行う{@link HttpServerJetty12}
+     */
+    void unregister(Server server, HttpServerJetty12 owner) {
+        List<HttpServerJetty12> displaced = new ArrayList<>();
+        synchronized (this) {
+            servers.values().removeIf(pooled -> {
+                if (pooled.getServer() != server) {
+                    return false;
+                }
+                if (pooled.owner != null && pooled.owner != owner) {
+                    displaced.add(pooled.owner);
+                }
+                pooled.owner = null;
+                return true;
+            });
+        }
+        for (HttpServerJetty12 previous : displaced) {
+            previous.closeHttpDumpArchive();
+        }
+    }
+
+    /**
+     * 再デプロイに使用する、起動中のサーバをプールから取得する。
+     * <p/>
+     * 最後に登録された起動中のサーバを返す。
+     * 取得したサーバは、再デプロイ時に新しいフィンガープリントで登録し直される。
+     *
+     * @return 起動中のサーバ。存在しない場合は{@code null}
+     */
+    synchronized PooledServer findRunning() {
+        PooledServer running = null;
+        for (PooledServer pooled : servers.values()) {
+            if (pooled.getServer().isStarted()) {
+                running = pooled;
+            }
+        }
+        return running;
+    }
+
+    /**
+     * プールからサーバを取得できた回数を返す。
+     *
+     * @return ヒット数
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * プールにサーバが存在せず、新たに起動した回数を返す。
+     *
+     * @return ミス数
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * サーバの再利用によって節約した起動時間の合計を返す。
+     *
+     * @return 節約した起動時間（ミリ秒）
+     */
+    public synchronized long getSavedStartupMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(savedStartupNanos);
+    }
+
+    /**
+     * プールされているサーバの数を返す。
+     *
+     * @return プールされているサーバの数
+     */
+    public synchronized int size() {
+        return servers.size();
+    }
+
+    /**
+     * プールされている全てのサーバを停止し、プールを空にする。
+     * <p/>
+     * サーバを使用中の{@link HttpServerJetty12}は、HTTPダンプのZIPファイルが閉じられる。
+     * ヒット数、ミス数および節約した起動時間もリセットされる。
+     */
+    public void clear() {
+        List<HttpServerJetty12> owners = new ArrayList<>();
+        synchronized (this) {
+            for (PooledServer pooled : servers.values()) {
+                try {
+                    pooled.getServer().stop();
+                } catch (Exception e) {
+                    LOGGER.logWarn("failed to stop a pooled server.", e);
+                }
+                if (pooled.owner != null) {
+                    owners.add(pooled.owner);
+                    pooled.owner = null;
+                }
+            }
+            servers.clear();
+            hitCount = 0;
+            missCount = 0;
+            savedStartupNanos = 0;
+        }
+        for (HttpServerJetty12 owner : owners) {
+            owner.closeHttpDumpArchive();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "pooled=[" + servers.size() + "] hit=[" + hitCount + "] miss=[" + missCount
+                + "] savedStartupMillis=[" + TimeUnit.NANOSECONDS.toMillis(savedStartupNanos) + "]";
+    }
+
+    /**
+     * プールされたサーバ。
+     */
+    static final class PooledServer {
+
+        /** アプリケーションサーバの実体 */
+        private final Server server;
+
+        /** 自動テスト実行用コネクター */
+        private final LocalConnector localConnector;
+
+        /** デプロイしたWebアプリケーション */
+        private final WebAppContext webAppContext;
+
+        /** Webフロントコントローラの差し替えを行うフィルタ */
+        private final SwitchableFilter frontControllerFilter;
+
+        /** Webアプリケーションで生成されたセッションの記録 */
+        private final SessionTracker sessionTracker;
+
+        /** 起動に要した時間（ナノ秒） */
+        private final long startupNanos;
+
+        /** サーバを使用中の{@link HttpServerJetty12}（使用中でない場合は{@code null}。プールのロックで保護する） */
+        private HttpServerJetty12 owner;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param server アプリケーションサーバの実体
+         * @param localConnector 自動テスト実行用コネクター
+         * @param webAppContext デプロイしたWebアプリケーション
+         * @param frontControllerFilter Webフロントコントローラの差し替えを行うフィルタ
+         * @param sessionTracker Webアプリケーションで生成されたセッションの記録
+         * @param startupNanos 起動に要した時間（ナノ秒）
+         */
+        PooledServer(Server server, LocalConnector localConnector, WebAppContext webAppContext,
+                     SwitchableFilter frontControllerFilter, SessionTracker sessionTracker, long startupNanos) {
+            this.server = server;
+            this.localConnector = localConnector;
+            this.webAppContext = webAppContext;
+            this.frontControllerFilter = frontControllerFilter;
+            this.sessionTracker = sessionTracker;
+            this.startupNanos = startupNanos;
+        }
+
+        /**
+         * アプリケーションサーバの実体を返す。
+         *
+         * @return アプリケーションサーバの実体
+         */
+        Server getServer() {
+            return server;
+        }
+
+        /**
+         * 自動テスト実行用コネクターを返す。
+         *
+         * @return 自動テスト実行用コネクター
+         */
+        LocalConnector getLocalConnector() {
+            return localConnector;
+        }
+
+        /**
+         * デプロイしたWebアプリケーションを返す。
+         *
+         * @return デプロイしたWebアプリケーション
+         */
+        WebAppContext getWebAppContext() {
+            return webAppContext;
+        }
+
+        /**
+         * Webアプリケーションで生成されたセッションの記録を返す。
+         *
+         * @return Webアプリケーションで生成されたセッションの記録
+         */
+        SessionTracker getSessionTracker() {
+            return sessionTracker;
+        }
+
+        /**
+         * Webフロントコントローラの差し替えを行うフィルタを返す。
+         *
+         * @return Webフロントコントローラの差し替えを行うフィルタ
+         */
+        SwitchableFilter getFrontControllerFilter() {
+            return frontControllerFilter;
+        }
+
+        /**
+         * 起動に要した時間を返す。
+         *
+         * @return 起動に要した時間（ナノ秒）
+         */
+        long getStartupNanos() {
+            return startupNanos;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import nablarch.fw.web.HttpRequestHandler;
+import nablarch.fw.web.HttpResponse;
+import nablarch.fw.web.MockHttpRequest;
+
+/**
+ * ベンチマークで計測するリクエストの種類。
+ * <p/>
+ * 各シナリオのリクエストを処理するハンドラを、{@link #configure(HttpServerJetty12)}でサーバに登録する。
+ */
+enum BenchmarkScenario {
+
+    /** 小さなレスポンスを返すGETリクエスト */
+    SMALL_GET {
+        @Override
+        MockHttpRequest newRequest() {
+            return new MockHttpRequest("GET /small HTTP/1.1");
+        }
+    },
+
+    /** 大きなリクエストパラメータを送信するPOSTリクエスト */
+    LARGE_POST {
+        @Override
+        MockHttpRequest newRequest() {
+            MockHttpRequest req = new MockHttpRequest("POST /post HTTP/1.1");
+            req.setParam("payload", LARGE_PAYLOAD);
+            return req;
+        }
+    },
+
+    /** JSPで描画するページ */
+    JSP {
+        @Override
+        MockHttpRequest newRequest() {
+            return new MockHttpRequest("GET /greeting HTTP/1.1");
+        }
+    },
+
+    /** ファイルのダウンロード */
+    DOWNLOAD {
+        @Override
+        MockHttpRequest newRequest() {
+            return new MockHttpRequest("GET /download HTTP/1.1");
+        }
+    };
+
+    /** JSPを配置したWARベースパス */
+    static final String WAR_BASE_PATH = "classpath://nablarch/fw/web/sample/app/";
+
+    /** {@link #LARGE_POST}で送信するパラメータのサイズ（文字数） */
+    private static final int LARGE_PAYLOAD_LENGTH = 512 * 1024;
+
+    /** {@link #DOWNLOAD}でダウンロードするファイルのサイズ（バイト） */
+    private static final int DOWNLOAD_FILE_SIZE = 1024 * 1024;
+
+    /** {@link #LARGE_POST}で送信するパラメータ */
+    private static final String LARGE_PAYLOAD = newPayload();
+
+    /**
+     * このシナリオのリクエストを生成する。
+     * <p/>
+     * {@link HttpServerJetty12#handle}はリクエストにホストを設定するため、呼び出しごとに新しいリクエストを生成する。
+     *
+     * @return HTTPリクエスト
+     */
+    abstract MockHttpRequest newRequest();
+
+    /**
+     * 全てのシナリオのリクエストを処理するハンドラを、サーバに登録する。
+     *
+     * @param server 登録先のサーバ
+     * @return 引数のサーバ
+     * @throws IOException ダウンロードするファイルの作成に失敗した場合
+     */
+    static HttpServerJetty12 configure(HttpServerJetty12 server) throws IOException {
+        Path download = Files.createTempFile("nablarch-benchmark-", ".bin");
+        download.toFile().deleteOnExit();
+        byte[] content = new byte[DOWNLOAD_FILE_SIZE];
+        Arrays.fill(content, (byte) 'x');
+        Files.write(download, content);
+
+        server.setWarBasePath(WAR_BASE_PATH);
+        server.addHandler("/small", (HttpRequestHandler) (req, ctx) ->
+                new HttpResponse(200).setContentType("text/plain").write("ok"));
+        server.addHandler("/post", (HttpRequestHandler) (req, ctx) ->
+                new HttpResponse(200).setContentType("text/plain")
+                        .write(String.valueOf(req.getParam("payload")[0].length())));
+        server.addHandler("/greeting", (HttpRequestHandler) (req, ctx) -> {
+            ctx.setRequestScopedVar("greeting", "Hello Benchmark!");
+            return new HttpResponse(200).setContentPath("servlet:///jsp/index.jsp");
+        });
+        server.addHandler("/download", (HttpRequestHandler) (req, ctx) ->
+                new HttpResponse(200).setContentType("application/octet-stream")
+                        .setContentPath("file://" + download.toAbsolutePath()));
+        return server;
+    }
+
+    /**
+     * {@link #LARGE_POST}で送信するパラメータを生成する。
+     *
+     * @return パラメータ
+     */
+    private static String newPayload() {
+        char[] payload = new char[LARGE_PAYLOAD_LENGTH];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (char) ('a' + i % 26);
+        }
+        return new String(payload);
+    }
+}
@@ -0,0 +1,108 @@
+package nablarch.fw.web.httpserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link DumpResourceStore}のテスト。
+ */
+public class DumpResourceStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * 同じ内容のリソースは、ストアに1回だけ保存され、配置先はその実体へのリンクとなること。
+     */
+    @Test
+    public void testPlaceAll() throws Exception {
+        Path root = temporaryFolder.getRoot().toPath();
+        Path source = root.resolve("war");
+        write(source.resolve("css/common.css"), "body { color: red; }");
+        write(source.resolve("js/common.js"), "var a = 1;");
+        write(source.resolve("WEB-INF/web.xml"), "<web-app/>");
+        DumpResourceStore store = new DumpResourceStore(root.resolve("store"));
+
+        assertEquals(2, store.placeAll(source, root.resolve("dump/Test1")));
+        assertEquals(2, store.placeAll(source, root.resolve("dump/Test2")));
+
+        Path css1 = root.resolve("dump/Test1/css/common.css");
+        Path css2 = root.resolve("dump/Test2/css/common.css");
+        assertEquals("body { color: red; }", read(css1));
+        assertTrue(Files.isSameFile(css1, css2));
+        assertTrue(Files.isSameFile(css1, store.store(source.resolve("css/common.css"))));
+        assertFalse(Files.exists(root.resolve("dump/Test1/WEB-INF/web.xml")));
+        assertEquals(2, countFiles(root.resolve("store")));
+    }
+
+    /**
+     * 出力済みのリソースが実体へのリンクに置き換えられ、置き換え済みのリソースは再度置き換えられないこと。
+     */
+    @Test
+    public void testDeduplicate() throws Exception {
+        Path root = temporaryFolder.getRoot().toPath();
+        Path dump = root.resolve("dump");
+        write(dump.resolve("Test1/css/common.css"), "body { color: red; }");
+        write(dump.resolve("Test2/css/common.css"), "body { color: red; }");
+        write(dump.resolve("Test2/css/other.CSS"), "body { color: blue; }");
+        write(dump.resolve("Test1/index.html"), "<html/>");
+        DumpResourceStore store = new DumpResourceStore(dump.resolve(".dump-resources"));
+
+        assertEquals(3, store.deduplicate(dump));
+        assertEquals(0, store.deduplicate(dump));
+
+        assertTrue(Files.isSameFile(dump.resolve("Test1/css/common.css"), dump.resolve("Test2/css/common.css")));
+        assertEquals("body { color: blue; }", read(dump.resolve("Test2/css/other.CSS")));
+        assertEquals("<html/>", read(dump.resolve("Test1/index.html")));
+        assertEquals(2, countFiles(dump.resolve(".dump-resources")));
+    }
+
+    /**
+     * 配置先がストアの実体へのリンクの場合、実体に書き込まずにリンクを置き換えること。
+     */
+    @Test
+    public void testPlaceOverLinkDoesNotModifyStore() throws Exception {
+        Path root = temporaryFolder.getRoot().toPath();
+        write(root.resolve("v1/css/common.css"), "body { color: red; }");
+        write(root.resolve("v2/css/common.css"), "body { color: blue; }");
+        DumpResourceStore store = new DumpResourceStore(root.resolve("store"));
+        Path target = root.resolve("dump/Test1/css/common.css");
+        Path other = root.resolve("dump/Test2/css/common.css");
+
+        store.placeAll(root.resolve("v1"), root.resolve("dump/Test1"));
+        store.placeAll(root.resolve("v1"), root.resolve("dump/Test2"));
+        Path stored = store.store(root.resolve("v1/css/common.css"));
+        assertTrue(store.place(root.resolve("v2/css/common.css"), target));
+
+        assertEquals("body { color: blue; }", read(target));
+        assertEquals("body { color: red; }", read(stored));
+        assertEquals("body { color: red; }", read(other));
+        assertFalse(Files.isSameFile(target, other));
+        assertEquals(2, countFiles(root.resolve("store")));
+    }
+
+    private static void write(Path path, String content) throws Exception {
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path path) throws Exception {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    private static long countFiles(Path dir) throws Exception {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile).count();
+        }
+    }
+}
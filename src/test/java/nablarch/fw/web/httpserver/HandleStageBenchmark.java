@@ -0,0 +1,251 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.util.BufferUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nablarch.fw.ExecutionContext;
+import nablarch.fw.Handler;
+import nablarch.fw.web.HttpRequest;
+import nablarch.fw.web.HttpResponse;
+import nablarch.fw.web.MockHttpRequest;
+import nablarch.test.core.http.HttpRequestTestSupportHandler;
+import nablarch.test.core.http.HttpTestConfiguration;
+
+/**
+ * {@link HttpServerJetty12#handle}の処理を段階ごとに分けて計測するベンチマーク。
+ * <p/>
+ * 各段階の入力は、セットアップ時に実際のサーバとやり取りして記録したものを使用する。
+ * <ul>
+ * <li>serialize: リクエストのHTTPメッセージへのシリアライズとエンコード</li>
+ * <li>dispatch: ローカルコネクタへの送信から、レスポンスメッセージの受信完了まで（サーバでの処理を含む）</li>
+ * <li>latchWait: {@link HttpRequestTestSupportHandler}を含むサーバで、レスポンスメッセージの受信完了から処理完了の通知まで
+ * （{@link RequestTimings#getLatchWaitNanos()}と同じ区間）</li>
+ * <li>parse: 受信したレスポンスメッセージのパース</li>
+ * <li>parseWhole: レスポンスメッセージ全体をバイト配列として{@link HttpResponse#parse(byte[])}でパース（比較用）</li>
+ * <li>dump: HTTPダンプの出力</li>
+ * </ul>
+ * {@code mvn -P benchmark verify}で実行する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandleStageBenchmark {
+
+    /** リクエストの種類 */
+    @Param({"SMALL_GET", "LARGE_POST", "JSP", "DOWNLOAD"})
+    public BenchmarkScenario scenario;
+
+    /** 計測対象のサーバ */
+    private DumpingServer server;
+
+    /** サーバのローカルコネクタ */
+    private LocalConnector connector;
+
+    /** サーバのバッファプール */
+    private ByteBufferPool bufferPool;
+
+    /** 送信するリクエスト（ホスト設定済み） */
+    private HttpRequest request;
+
+    /** エンコード済みのリクエストメッセージ */
+    private byte[] rawRequest;
+
+    /** 受信したレスポンスメッセージ */
+    private byte[] rawResponse;
+
+    /** ダンプするレスポンス */
+    private HttpResponse response;
+
+    /** HTTPダンプの出力先 */
+    private Path dumpRoot;
+
+    @Setup
+    public void setUp() throws Exception {
+        dumpRoot = Files.createTempDirectory("nablarch-benchmark-dump-");
+        server = new DumpingServer();
+        BenchmarkScenario.configure(server);
+        server.setHttpDumpRoot(dumpRoot.toString());
+        server.startLocal();
+        connector = HttpServerJetty12Benchmark.getLocalConnector(server);
+        bufferPool = HttpServerJetty12Benchmark.getJetty(server).getByteBufferPool();
+
+        MockHttpRequest req = scenario.newRequest();
+        req.setHost(HttpServerJetty12.DEFAULT_HOST);
+        request = req;
+        rawRequest = req.toString().getBytes(Charset.defaultCharset());
+        ByteBuffer res = connector.getResponse(ByteBuffer.wrap(rawRequest), 10, TimeUnit.SECONDS);
+        rawResponse = BufferUtil.toArray(res);
+        response = server.handle(scenario.newRequest(), new ExecutionContext());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        HttpServerJetty12Benchmark.stop(server);
+        HttpServerJetty12Benchmark.deleteRecursively(dumpRoot);
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        RequestMessageEncoder encoder = new RequestMessageEncoder(bufferPool, Charset.defaultCharset());
+        RequestMessageEncoder.Message message = encoder.encode(request, HttpServerJetty12.DEFAULT_HOST);
+        int size = message.size();
+        // コネクタが読み終えた状態にしてから、バッファをプールに返却する。
+        BufferUtil.clear(message.getHead());
+        if (message.getBody() != null) {
+            BufferUtil.clear(message.getBody());
+        }
+        encoder.release(message);
+        return size;
+    }
+
+    @Benchmark
+    public ByteBuffer dispatch() throws Exception {
+        return connector.getResponse(ByteBuffer.wrap(rawRequest), 10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public boolean latchWait(SignalledExchange exchange) throws InterruptedException {
+        return exchange.latch.await(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public HttpResponse parse() throws IOException, InterruptedException {
+        LocalConnector.LocalEndPoint endPoint = connector.new LocalEndPoint();
+        try {
+            endPoint.flush(ByteBuffer.wrap(rawResponse));
+            HttpResponse res = new StreamingResponseParser(Long.MAX_VALUE, false)
+                    .parse(endPoint, 10, TimeUnit.SECONDS);
+            InputStream body = res.getBodyStream();
+            if (body != null) {
+                body.close();
+            }
+            return res;
+        } finally {
+            endPoint.close();
+        }
+    }
+
+    @Benchmark
+    public HttpResponse parseWhole() {
+        return HttpResponse.parse(rawResponse);
+    }
+
+    @Benchmark
+    public void dump() {
+        server.dump(request, response);
+    }
+
+    /**
+     * HTTPダンプの出力を、リクエストの処理とは別に呼び出せるサーバ。
+     */
+    static final class DumpingServer extends HttpServerJetty12 {
+
+        /**
+         * HTTPダンプを出力する。
+         *
+         * @param req HTTPリクエスト
+         * @param res HTTPレスポンス
+         */
+        void dump(HttpRequest req, HttpResponse res) {
+            dumpHttpMessage(req, res);
+        }
+    }
+
+    /**
+     * 処理完了が通知されるサーバとの、レスポンスメッセージの受信完了までのやり取り。
+     * <p/>
+     * {@link HttpServerJetty12}と同様に、接続に対応付けてラッチを登録してからリクエストを送信し、
+     * レスポンスメッセージを最後まで受信する。ここまでを計測対象外とすることで、
+     * ベンチマークではレスポンスの受信完了から処理完了の通知までのラッチの待機のみを計測する。
+     */
+    @State(Scope.Thread)
+    public static class SignalledExchange {
+
+        /** {@link HttpRequestTestSupportHandler}を含むサーバ */
+        private HttpServerJetty12 server;
+
+        /** サーバのローカルコネクタ */
+        private LocalConnector connector;
+
+        /** エンコード済みのリクエストメッセージ */
+        private byte[] rawRequest;
+
+        /** リクエストを送信した接続 */
+        private LocalConnector.LocalEndPoint endPoint;
+
+        /** 処理完了時にカウントダウンされるラッチ */
+        private CountDownLatch latch;
+
+        @Setup
+        public void setUp(HandleStageBenchmark benchmark) throws Exception {
+            // HttpRequestTestSupportHandlerは、保持する実行コンテキストのラッチもカウントダウンする。
+            ExecutionContext context = new ExecutionContext();
+            context.setRequestScopedVar(
+                    HttpRequestTestSupportHandler.NABLARCH_JETTY_CONNECTOR_LATCH, new CountDownLatch(1));
+            HttpRequestTestSupportHandler supportHandler =
+                    new HttpRequestTestSupportHandler(new HttpTestConfiguration());
+            supportHandler.setContext(context);
+
+            server = new HttpServerJetty12();
+            BenchmarkScenario.configure(server);
+            List<Handler> handlerQueue = new ArrayList<>(server.getHandlerQueue());
+            handlerQueue.add(0, supportHandler);
+            server.setHandlerQueue(handlerQueue);
+            server.startLocal();
+            connector = HttpServerJetty12Benchmark.getLocalConnector(server);
+
+            MockHttpRequest req = benchmark.scenario.newRequest();
+            req.setHost(HttpServerJetty12.DEFAULT_HOST);
+            rawRequest = req.toString().getBytes(Charset.defaultCharset());
+        }
+
+        @Setup(Level.Invocation)
+        public void exchange() throws Exception {
+            endPoint = connector.connect();
+            latch = RequestCompletionFilter.register(endPoint);
+            endPoint.addInput(ByteBuffer.wrap(rawRequest));
+            if (endPoint.waitForResponse(false, 10, TimeUnit.SECONDS) == null) {
+                throw new IllegalStateException("response was not received.");
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() {
+            RequestCompletionFilter.unregister(endPoint, latch);
+            endPoint.close();
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            HttpServerJetty12Benchmark.stop(server);
+        }
+    }
+}
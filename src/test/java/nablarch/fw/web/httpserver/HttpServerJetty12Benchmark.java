@@ -0,0 +1,128 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nablarch.fw.ExecutionContext;
+import nablarch.fw.web.HttpResponse;
+
+/**
+ * {@link HttpServerJetty12#handle}を、リクエストの送信からレスポンスの受信まで通して計測するベンチマーク。
+ * <p/>
+ * {@code mvn -P benchmark verify}で実行する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpServerJetty12Benchmark {
+
+    /** リクエストの種類 */
+    @Param({"SMALL_GET", "LARGE_POST", "JSP", "DOWNLOAD"})
+    public BenchmarkScenario scenario;
+
+    /** 直接ディスパッチを有効にするか否か */
+    @Param({"false", "true"})
+    public boolean directDispatch;
+
+    /** HTTPダンプを出力するか否か */
+    @Param({"false", "true"})
+    public boolean httpDump;
+
+    /** 計測対象のサーバ */
+    private HttpServerJetty12 server;
+
+    /** HTTPダンプの出力先 */
+    private Path dumpRoot;
+
+    @Setup
+    public void setUp() throws IOException {
+        dumpRoot = Files.createTempDirectory("nablarch-benchmark-dump-");
+        server = BenchmarkScenario.configure(new HttpServerJetty12());
+        server.setDirectDispatchEnabled(directDispatch);
+        server.setHttpDumpRoot(dumpRoot.toString());
+        server.setHttpDumpEnabled(httpDump);
+        server.startLocal();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        stop(server);
+        deleteRecursively(dumpRoot);
+    }
+
+    @Benchmark
+    public HttpResponse handle() throws IOException {
+        HttpResponse res = server.handle(scenario.newRequest(), new ExecutionContext());
+        // 一時ファイルに書き出されたボディを削除するため、ボディのストリームを閉じる。
+        InputStream body = res.getBodyStream();
+        if (body != null) {
+            body.close();
+        }
+        return res;
+    }
+
+    /**
+     * サーバのローカルコネクタを取得する。
+     *
+     * @param server サーバ
+     * @return ローカルコネクタ
+     */
+    static LocalConnector getLocalConnector(HttpServerJetty12 server) {
+        return server.getLocalConnector();
+    }
+
+    /**
+     * サーバを停止する。
+     *
+     * @param server サーバ
+     * @throws Exception 停止に失敗した場合
+     */
+    static void stop(HttpServerJetty12 server) throws Exception {
+        getJetty(server).stop();
+    }
+
+    /**
+     * サーバのJettyサーバインスタンスを取得する。
+     *
+     * @param server サーバ
+     * @return Jettyサーバインスタンス
+     */
+    static Server getJetty(HttpServerJetty12 server) {
+        return server.getJetty();
+    }
+
+    /**
+     * ディレクトリを、配下のファイルごと削除する。
+     *
+     * @param dir ディレクトリ
+     * @throws IOException 削除に失敗した場合
+     */
+    static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
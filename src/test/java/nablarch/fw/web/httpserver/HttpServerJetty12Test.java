@@ -0,0 +1,979 @@
+package nablarch.fw.web.httpserver;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import org.eclipse.jetty.ee10.webapp.WebAppContext;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.repository.SystemRepository;
+import nablarch.fw.ExecutionContext;
+import nablarch.fw.Handler;
+import nablarch.fw.web.HttpRequest;
+import nablarch.fw.web.HttpRequestHandler;
+import nablarch.fw.web.HttpResponse;
+import nablarch.fw.web.HttpServer;
+import nablarch.fw.web.MockHttpRequest;
+import nablarch.fw.web.ResourceLocator;
+import nablarch.fw.web.servlet.ServletExecutionContext;
+import nablarch.test.core.http.HttpRequestTestSupport;
+import nablarch.test.core.http.HttpRequestTestSupportHandler;
+import nablarch.test.core.http.HttpTestConfiguration;
+
+/**
+ * {@link HttpServerJetty12}のテスト。
+ */
+public class HttpServerJetty12Test {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** テストで生成したサーバ */
+    private final List<HttpServerJetty12> servers = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        SystemRepository.clear();
+        ThreadContext.clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (HttpServerJetty12 server : servers) {
+            Server jetty = server.getJetty();
+            if (jetty != null) {
+                jetty.stop();
+            }
+        }
+        servers.clear();
+    }
+
+    /**
+     * 初回起動時にquickstartディスクリプタが生成され、
+     * 2回目以降はそのディスクリプタでデプロイされること。
+     */
+    @Test
+    public void testQuickStart() throws Exception {
+        File quickStartDir = temporaryFolder.newFolder("quickstart");
+
+        HttpServer first = createJspServer()
+                .setQuickStartDirectory(quickStartDir.getPath())
+                .startLocal();
+        File[] descriptors = Objects.requireNonNull(quickStartDir.listFiles());
+        assertEquals(1, descriptors.length);
+        File descriptor = descriptors[0];
+        assertTrue(descriptor.getName().startsWith("quickstart-"));
+        long generatedAt = descriptor.lastModified();
+        assertJspRendered(first);
+
+        HttpServer second = createJspServer()
+                .setQuickStartDirectory(quickStartDir.getPath())
+                .startLocal();
+        assertEquals(1, Objects.requireNonNull(quickStartDir.listFiles()).length);
+        assertEquals(generatedAt, descriptor.lastModified());
+        assertJspRendered(second);
+    }
+
+    /**
+     * JSPの内容が変わっていない場合は、最終更新日時や一時ディレクトリが変わっても
+     * キャッシュしたコンパイル結果が再利用され、内容が変わった場合のみ再コンパイルされること。
+     */
+    @Test
+    public void testJspCache() throws Exception {
+        File cacheDir = temporaryFolder.newFolder("jspcache");
+        File warDir = temporaryFolder.newFolder("war");
+        Path jsp = warDir.toPath().resolve("jsp/index.jsp");
+        Files.createDirectories(jsp.getParent());
+        Files.copy(new File("src/test/resources/nablarch/fw/web/sample/app/jsp/index.jsp").toPath(), jsp);
+
+        assertJspRendered(createJspServer("file://" + warDir.getPath())
+                .setJspCacheDirectory(cacheDir.getPath())
+                .startLocal());
+        Path javaFile = findGeneratedFile(cacheDir, "index_jsp.java");
+        Path classFile = findGeneratedFile(cacheDir, "index_jsp.class");
+        // 再コンパイルされた場合は消える目印をつけておく。
+        Files.write(javaFile, "// cached".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(javaFile, Files.getLastModifiedTime(jsp));
+
+        // 内容は変えずに最終更新日時のみ変更する。（一時ディレクトリも変更する）
+        long touched = jsp.toFile().lastModified() + 10000L;
+        assertTrue(jsp.toFile().setLastModified(touched));
+        assertJspRendered(createJspServer("file://" + warDir.getPath())
+                .setJspCacheDirectory(cacheDir.getPath())
+                .setTempDirectory(temporaryFolder.newFolder("tmp2").getPath())
+                .startLocal());
+        assertEquals(touched, classFile.toFile().lastModified());
+        assertThat(new String(Files.readAllBytes(javaFile), StandardCharsets.UTF_8), containsString("// cached"));
+
+        // 内容を変更した場合は再コンパイルされる。
+        Files.write(jsp, "<%= request.getAttribute(\"greeting\") %> (modified)".getBytes(StandardCharsets.UTF_8));
+        assertTrue(jsp.toFile().setLastModified(touched + 10000L));
+        HttpServer modified = createJspServer("file://" + warDir.getPath())
+                .setJspCacheDirectory(cacheDir.getPath())
+                .startLocal();
+        HttpResponse res = modified.handle(new MockHttpRequest("GET /greeting HTTP/1.1"), new ExecutionContext());
+        assertThat(res.getBodyString(), containsString("(modified)"));
+        assertThat(new String(Files.readAllBytes(javaFile), StandardCharsets.UTF_8), not(containsString("// cached")));
+    }
+
+    /**
+     * 起動時のJSPのコンパイルが有効な場合、リクエストの処理前にJSPがコンパイルされること。
+     * コンパイルに失敗するJSPがあっても起動できること。
+     */
+    @Test
+    public void testJspPrecompile() throws Exception {
+        File cacheDir = temporaryFolder.newFolder("jspcache");
+        File warDir = temporaryFolder.newFolder("war");
+        Path jsp = warDir.toPath().resolve("jsp/index.jsp");
+        Files.createDirectories(jsp.getParent());
+        Files.copy(new File("src/test/resources/nablarch/fw/web/sample/app/jsp/index.jsp").toPath(), jsp);
+        Files.write(warDir.toPath().resolve("jsp/broken.jsp"), "<%= undefined %>".getBytes(StandardCharsets.UTF_8));
+
+        HttpServerJetty12 server = createJspServer("file://" + warDir.getPath())
+                .setJspCacheDirectory(cacheDir.getPath())
+                .setJspPrecompileEnabled(true)
+                .setJspPrecompileParallelism(2);
+        server.startLocal();
+        assertEquals(List.of("/jsp/broken.jsp"), server.getJspPrecompileFailures());
+        Path classFile = findGeneratedFile(cacheDir, "index_jsp.class");
+        long compiledAt = classFile.toFile().lastModified();
+
+        assertJspRendered(server);
+        assertEquals(compiledAt, classFile.toFile().lastModified());
+    }
+
+    /**
+     * no-jspプロファイルの場合、JSP以外のリクエストは処理でき、JSPは使用できないこと。
+     */
+    @Test
+    public void testNoJspProfile() {
+        HttpServer server = createJspServer()
+                .setDeploymentProfile("no-jsp")
+                .startLocal();
+        server.addHandler("/text", (HttpRequestHandler) (req, ctx) -> new HttpResponse(200).write("no-jsp"));
+        HttpResponse text = server.handle(new MockHttpRequest("GET /text HTTP/1.1"), new ExecutionContext());
+        assertEquals(200, text.getStatusCode());
+        assertThat(text.getBodyString(), containsString("no-jsp"));
+
+        HttpResponse jsp = server.handle(new MockHttpRequest("GET /greeting HTTP/1.1"), new ExecutionContext());
+        assertThat(jsp.getBodyString(), not(containsString("Hello QuickStart!")));
+    }
+
+    /**
+     * no-annotationsプロファイルの場合も、JSPを使用できること。
+     */
+    @Test
+    public void testNoAnnotationsProfile() {
+        assertJspRendered(createJspServer()
+                .setDeploymentProfile("no-annotations")
+                .startLocal());
+    }
+
+    /**
+     * 存在しないプロファイル名を指定した場合、例外が送出されること。
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownProfile() {
+        new HttpServerJetty12().setDeploymentProfile("unknown");
+    }
+
+    /**
+     * 起動処理のフェーズごとの所要時間がリスナに通知されること。
+     */
+    @Test
+    public void testStartupTimingListener() {
+        List<StartupTimings> notified = new ArrayList<>();
+        createJspServer()
+                .setStartupTimingLogEnabled(true)
+                .addStartupTimingListener(notified::add)
+                .startLocal();
+
+        assertEquals(1, notified.size());
+        StartupTimings timings = notified.get(0);
+        assertEquals("full", timings.getProfileName());
+        assertThat(timings.getPhaseNames(), hasItems("server", "resources", "preConfigure",
+                "configure.WebXmlConfiguration", "configure.AnnotationConfiguration",
+                "metadata", "initializers", "servlets", "jettyStart"));
+        assertTrue(timings.getElapsedNanos("jettyStart") >= timings.getElapsedNanos("servlets"));
+        assertTrue(timings.getTotalMillis() >= timings.getElapsedMillis("jettyStart"));
+        assertEquals(-1L, timings.getElapsedNanos("jspPrecompile"));
+        assertThat(timings.toString(), containsString("profile=full total="));
+    }
+
+    /**
+     * スレッドプールの設定が反映されること。
+     * 仮想スレッドをサポートしない実行環境では、仮想スレッドの設定が無視されること。
+     */
+    @Test
+    public void testThreadPool() throws Exception {
+        HttpServerJetty12 server = createJspServer()
+                .setMaxThreads(32)
+                .setMinThreads(4)
+                .setThreadIdleTimeout(5000)
+                .setReservedThreads(2)
+                .setVirtualThreadsEnabled(true);
+        server.startLocal();
+
+        QueuedThreadPool threadPool = (QueuedThreadPool) server.getJetty().getThreadPool();
+        assertEquals(32, threadPool.getMaxThreads());
+        assertEquals(4, threadPool.getMinThreads());
+        assertEquals(5000, threadPool.getIdleTimeout());
+        assertEquals(2, threadPool.getReservedThreads());
+        assertEquals(VirtualThreads.areSupported(), threadPool.getVirtualThreadsExecutor() != null);
+        assertJspRendered(server);
+    }
+
+    /**
+     * サーバを停止せずに、変更後のWARベースパスでWebアプリケーションを再デプロイできること。
+     */
+    @Test
+    public void testRedeploy() throws Exception {
+        File war = temporaryFolder.newFolder("war");
+        Path jsp = war.toPath().resolve("jsp/index.jsp");
+        Files.createDirectories(jsp.getParent());
+        Files.write(jsp, "Redeployed: <%= request.getAttribute(\"greeting\") %>".getBytes(StandardCharsets.UTF_8));
+
+        List<StartupTimings> notified = new ArrayList<>();
+        HttpServerJetty12 server = createJspServer().addStartupTimingListener(notified::add);
+        server.startLocal();
+        assertJspRendered(server);
+        Server jetty = server.getJetty();
+        WebAppContext previous = server.getWebAppContext();
+
+        server.setWarBasePath("file://" + war.getPath());
+        server.redeploy();
+
+        assertSame(jetty, server.getJetty());
+        assertTrue(previous.isStopped());
+        assertThat(assertJspRendered(server), containsString("Redeployed: Hello QuickStart!"));
+        assertEquals(2, notified.size());
+        assertThat(notified.get(1).getPhaseNames(), hasItems("resources", "servlets", "webAppStart"));
+        assertEquals(-1L, notified.get(1).getElapsedNanos("server"));
+    }
+
+    /**
+     * 索引を使用する場合も、先に指定されたWARベースパスのJSPが優先されること。
+     */
+    @Test
+    public void testWarResourceIndex() throws Exception {
+        File overlay = temporaryFolder.newFolder("overlay");
+        Path jsp = overlay.toPath().resolve("jsp/index.jsp");
+        Files.createDirectories(jsp.getParent());
+        Files.write(jsp, "Overlay: <%= request.getAttribute(\"greeting\") %>".getBytes(StandardCharsets.UTF_8));
+
+        HttpServerJetty12 server = createJspServer().setWarResourceIndexEnabled(true);
+        server.setWarBasePaths(Arrays.asList(
+                ResourceLocator.valueOf("file://" + overlay.getPath()),
+                ResourceLocator.valueOf("classpath://nablarch/fw/web/sample/app/")));
+        server.startLocal();
+
+        WebAppContext webApp = server.getWebAppContext();
+        assertThat(webApp.getBaseResource(), instanceOf(IndexedOverlayResource.class));
+        assertThat(assertJspRendered(server), containsString("Overlay: Hello QuickStart!"));
+    }
+
+    /**
+     * ハンドラキューにHttpRequestTestSupportHandlerが含まれない場合、処理完了を待機しないこと。
+     */
+    @Test
+    public void testCompletionNotSignalled() {
+        HttpServerJetty12 server = createJspServer();
+        server.startLocal();
+        assertJspRendered(server);
+        assertEquals(0L, server.getCompletionTimeoutCount());
+        assertEquals(0L, server.getTotalCompletionWaitMillis());
+    }
+
+    /**
+     * HttpRequestTestSupportHandlerが処理完了を通知した場合、タイムアウトしないこと。
+     */
+    @Test
+    public void testCompletionSignalled() {
+        ExecutionContext context = new ExecutionContext();
+        HttpRequestTestSupportHandler supportHandler = new HttpRequestTestSupportHandler(new HttpTestConfiguration());
+        supportHandler.setContext(context);
+        HttpServerJetty12 server = createJspServer().setCompletionTimeout(60000L);
+        addFirst(server, supportHandler);
+        server.startLocal();
+
+        HttpResponse res = server.handle(new MockHttpRequest("GET /greeting HTTP/1.1"), context);
+        assertEquals(200, res.getStatusCode());
+        assertEquals(0L, server.getCompletionTimeoutCount());
+        // ハンドラでの処理結果がテスト側に反映されていること。
+        assertEquals("Hello QuickStart!", context.getRequestScopedVar("greeting"));
+    }
+
+    /**
+     * レスポンスの送信後も処理が続き、設定した時間内に完了しない場合、タイムアウトし、タイムアウト回数が記録されること。
+     */
+    @Test
+    public void testCompletionTimeout() {
+        HttpRequestTestSupportHandler slowHandler = new HttpRequestTestSupportHandler(new HttpTestConfiguration()) {
+            @Override
+            public HttpResponse handle(HttpRequest request, ExecutionContext context) {
+                // レスポンスを送信し終えた後も、処理を続ける。
+                HttpServletResponse response = ((ServletExecutionContext) context).getServletResponse();
+                byte[] body = "slow".getBytes(StandardCharsets.UTF_8);
+                try {
+                    response.setContentType("text/plain;charset=UTF-8");
+                    response.setContentLength(body.length);
+                    response.getOutputStream().write(body);
+                    response.flushBuffer();
+                    Thread.sleep(500L);
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new HttpResponse(200);
+            }
+        };
+        HttpServerJetty12 server = createJspServer().setCompletionTimeout(100L);
+        addFirst(server, slowHandler);
+        server.startLocal();
+
+        HttpResponse res = server.handle(new MockHttpRequest("GET /slow HTTP/1.1"), new ExecutionContext());
+        assertEquals(200, res.getStatusCode());
+        assertThat(res.getBodyString(), containsString("slow"));
+        assertEquals(1L, server.getCompletionTimeoutCount());
+        assertTrue(server.getTotalCompletionWaitMillis() >= 100L);
+    }
+
+    /**
+     * ハンドラキューにHttpRequestTestSupportHandlerが含まれる場合も、1つのサーバに並行にリクエストを送信でき、
+     * 各リクエストが自身の処理完了を待機すること。（他のリクエストの完了通知を待ってタイムアウトしないこと）
+     * 並行に送信される同じリクエストオブジェクトは変更されないこと。
+     */
+    @Test
+    public void testConcurrentCompletion() {
+        HttpRequestTestSupportHandler supportHandler = new HttpRequestTestSupportHandler(new HttpTestConfiguration());
+        supportHandler.setContext(new ExecutionContext());
+        HttpServerJetty12 server = createJspServer().setCompletionTimeout(5000L);
+        addFirst(server, supportHandler);
+        server.addHandler("/echo", (HttpRequestHandler) (req, ctx) ->
+                new HttpResponse(200).write("echo:" + req.getParam("message")[0]));
+        server.startLocal();
+
+        MockHttpRequest echo = new MockHttpRequest("POST /echo HTTP/1.1");
+        echo.setParam("message", "hello");
+        MockHttpRequest greeting = new MockHttpRequest("GET /greeting HTTP/1.1");
+        LoadResult result = new LoadDriver()
+                .setConcurrency(8)
+                .setWarmUpMillis(100)
+                .setDurationMillis(1000)
+                .setRequests(Arrays.asList(echo, greeting))
+                .run(server);
+
+        assertTrue(result.getRequestCount() > 0);
+        assertEquals(0, result.getErrorCount());
+        assertEquals(0L, server.getCompletionTimeoutCount());
+        assertNull(echo.getHost());
+        assertNull(greeting.getHost());
+    }
+
+    /**
+     * 指定した文字セットでエンコードしたリクエストが、ボディを含めて処理されること。
+     */
+    @Test
+    public void testRequestCharset() {
+        HttpServerJetty12 server = createJspServer().setRequestCharset("UTF-8");
+        server.addHandler("/echo", (HttpRequestHandler) (req, ctx) ->
+                new HttpResponse(200).write("echo:" + req.getParam("message")[0]));
+        server.startLocal();
+
+        MockHttpRequest req = new MockHttpRequest("POST /echo HTTP/1.1");
+        req.setParam("message", "hello");
+        HttpResponse res = server.handle(req, new ExecutionContext());
+        assertEquals(200, res.getStatusCode());
+        assertThat(res.getBodyString(), containsString("echo:hello"));
+        assertJspRendered(server);
+    }
+
+    /**
+     * 閾値を超えるレスポンスボディは一時ファイルに書き出され、ストリームから全て読み出せること。
+     * 閾値以下のレスポンスボディは、これまで通り文字列として取得できること。
+     */
+    @Test
+    public void testResponseSpill() throws Exception {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            large.append("line").append(i).append('\n');
+        }
+        HttpServerJetty12 server = createJspServer().setResponseSpillThreshold(1024L);
+        server.addHandler("/large", (HttpRequestHandler) (req, ctx) -> new HttpResponse(200).write(large.toString()));
+        server.startLocal();
+
+        HttpResponse res = server.handle(new MockHttpRequest("GET /large HTTP/1.1"), new ExecutionContext());
+        assertEquals(200, res.getStatusCode());
+        try (InputStream body = res.getBodyStream()) {
+            ByteArrayOutputStream read = new ByteArrayOutputStream();
+            body.transferTo(read);
+            assertEquals(large.toString(), read.toString(StandardCharsets.UTF_8.name()));
+        }
+        assertJspRendered(server);
+    }
+
+    /**
+     * シリアライズを行わずにディスパッチした場合も、JSPへのフォワードとリクエストパラメータが処理されること。
+     */
+    @Test
+    public void testDirectDispatch() {
+        HttpServerJetty12 server = createJspServer().setDirectDispatchEnabled(true);
+        server.addHandler("/echo", (HttpRequestHandler) (req, ctx) ->
+                new HttpResponse(200).write("echo:" + req.getParam("message")[0]));
+        server.startLocal();
+        assertJspRendered(server);
+
+        MockHttpRequest post = new MockHttpRequest("POST /echo HTTP/1.1");
+        post.setParam("message", "hello");
+        assertThat(server.handle(post, new ExecutionContext()).getBodyString(), containsString("echo:hello"));
+
+        MockHttpRequest get = new MockHttpRequest("GET /echo HTTP/1.1");
+        get.setParam("message", "world");
+        assertThat(server.handle(get, new ExecutionContext()).getBodyString(), containsString("echo:world"));
+    }
+
+    /**
+     * マルチパートのリクエストが、シリアライズする場合も直接ディスパッチする場合も、
+     * アップロードファイルの内容を含めてWebアプリケーションに届くこと。
+     */
+    @Test
+    public void testMultipart() throws Exception {
+        SystemRepository.load(() -> Collections.singletonMap("httpTestConfiguration", new HttpTestConfiguration()));
+        File upload = temporaryFolder.newFile("upload.txt");
+        Files.write(upload.toPath(), "アップロード内容".getBytes(StandardCharsets.UTF_8));
+
+        for (boolean direct : new boolean[] {false, true}) {
+            HttpServerJetty12 server = createJspServer().setDirectDispatchEnabled(direct).setRequestCharset("UTF-8");
+            server.addHandler("/upload", (HttpRequestHandler) (req, ctx) -> {
+                HttpServletRequest servletRequest = ((ServletExecutionContext) ctx).getServletRequest();
+                try (InputStream in = servletRequest.getInputStream()) {
+                    return new HttpResponse(200).setContentType("text/plain;charset=UTF-8")
+                            .write("type:" + servletRequest.getContentType() + "\n"
+                                    + new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            server.startLocal();
+
+            Map<String, String[]> params = new HashMap<>();
+            params.put("upload_file", new String[] {"${attach:" + upload.getAbsolutePath() + "}"});
+            params.put("message", new String[] {"hello"});
+            HttpRequest req = new HttpRequestTestSupport(getClass()).createHttpRequest("/upload", params);
+
+            HttpResponse res = server.handle(req, new ExecutionContext());
+            assertEquals(200, res.getStatusCode());
+            String body = res.getBodyString();
+            assertThat(body, containsString("type:multipart/form-data; boundary="));
+            assertThat(body, containsString("name=\"upload_file\"; filename=\"upload.txt\""));
+            assertThat(body, containsString("アップロード内容"));
+            assertThat(body, containsString("name=\"message\""));
+            assertThat(body, containsString("hello"));
+        }
+    }
+
+    /**
+     * 1つのサーバに対して複数のスレッドから並行にリクエストを処理しても、
+     * 各スレッドが自身のリクエストに対するレスポンスを受け取ること。
+     */
+    @Test
+    public void testConcurrentHandle() throws Exception {
+        assertConcurrentHandle(createJspServer());
+    }
+
+    /**
+     * シリアライズを行わずにディスパッチする場合も、並行にリクエストを処理できること。
+     */
+    @Test
+    public void testConcurrentHandleWithDirectDispatch() throws Exception {
+        assertConcurrentHandle(createJspServer().setDirectDispatchEnabled(true));
+    }
+
+    /**
+     * 1つのスレッドから非同期に送信した複数のリクエストが、それぞれのレスポンスで完了すること。
+     */
+    @Test
+    public void testHandleAsync() throws Exception {
+        assertHandleAsync(createJspServer());
+        assertHandleAsync(createJspServer().setDirectDispatchEnabled(true));
+    }
+
+    /**
+     * バックグラウンドで起動中のサーバに非同期に送信したリクエストは、起動完了後に処理されること。
+     */
+    @Test
+    public void testHandleAsyncWithBackgroundStart() throws Exception {
+        HttpServer server = createJspServer()
+                .setBackgroundStartEnabled(true)
+                .startLocal();
+        HttpResponse res = ((HttpServerJetty12) server)
+                .handleAsync(new MockHttpRequest("GET /greeting HTTP/1.1"), new ExecutionContext())
+                .get(60, TimeUnit.SECONDS);
+        assertThat(res.getBodyString(), containsString("Hello QuickStart!"));
+    }
+
+    /**
+     * 複数のリクエストを1つの接続で順に処理し、セッションが引き継がれること。
+     */
+    @Test
+    public void testHandleAll() {
+        assertHandleAll(createJspServer());
+        assertHandleAll(createJspServer().setDirectDispatchEnabled(true));
+    }
+
+    /**
+     * リクエストごとに、処理のフェーズごとの所要時間と送受信サイズがリスナに通知されること。
+     */
+    @Test
+    public void testRequestTimingListener() {
+        List<RequestTimings> notified = new ArrayList<>();
+        RequestTimingAggregator aggregator = new RequestTimingAggregator();
+        HttpServerJetty12 server = createJspServer()
+                .addRequestTimingListener(notified::add)
+                .addRequestTimingListener(aggregator);
+        server.startLocal();
+
+        assertJspRendered(server);
+        server.handle(new MockHttpRequest("GET /greeting?name=timing HTTP/1.1"), new ExecutionContext());
+        assertEquals(2, notified.size());
+        RequestTimings timings = notified.get(0);
+        assertEquals("GET", timings.getMethod());
+        assertEquals("/greeting", timings.getRequestUri());
+        assertEquals(200, timings.getStatusCode());
+        assertTrue(timings.getSerializeNanos() > 0);
+        assertTrue(timings.getProcessNanos() > 0);
+        assertTrue(timings.getParseNanos() > 0);
+        assertEquals(0L, timings.getDumpNanos());
+        assertTrue(timings.getBytesIn() > 0);
+        assertTrue(timings.getBytesOut() > timings.getBytesIn());
+        assertTrue(timings.getTotalNanos() >= timings.getSerializeNanos() + timings.getProcessNanos()
+                + timings.getParseNanos());
+        assertThat(timings.toString(), containsString("method=GET uri=/greeting status=200 total="));
+
+        // クエリ文字列を除いたリクエストパスごとに集計されること。
+        assertEquals(2, aggregator.getRequestCount());
+        assertThat(aggregator.getSummary(10), containsString("GET /greeting count=2 total="));
+
+        // 直接ディスパッチの場合は、パースを行わないこと。
+        notified.clear();
+        server.setDirectDispatchEnabled(true);
+        assertJspRendered(server);
+        assertEquals(1, notified.size());
+        assertEquals(0L, notified.get(0).getParseNanos());
+        assertTrue(notified.get(0).getBytesOut() > 0);
+    }
+
+    /**
+     * HTTPダンプを別スレッドで出力する場合も、キューに格納した時点の出力先に全てのダンプが出力されること。
+     */
+    @Test
+    public void testAsyncHttpDump() throws Exception {
+        File dumpRoot = temporaryFolder.newFolder("dump");
+        HttpServerJetty12 server = createJspServer()
+                .setHttpDumpAsyncEnabled(true)
+                .setHttpDumpQueueCapacity(2)
+                .setHttpDumpBackPressure("caller-runs");
+        server.setHttpDumpRoot(dumpRoot.getPath());
+        server.setHttpDumpEnabled(true);
+        server.startLocal();
+
+        for (int i = 0; i < 5; i++) {
+            server.setHttpDumpFilePath(new File(dumpRoot, "dump" + i + ".html").getAbsolutePath());
+            assertJspRendered(server);
+        }
+        server.flushHttpDump();
+
+        assertEquals(0, server.getHttpDumpQueueDepth());
+        assertEquals(0L, server.getHttpDumpDiscardCount());
+        for (int i = 0; i < 5; i++) {
+            File dumpFile = new File(dumpRoot, "dump" + i + ".html");
+            assertTrue(dumpFile.getPath(), dumpFile.exists());
+            assertThat(new String(Files.readAllBytes(dumpFile.toPath()), StandardCharsets.UTF_8),
+                    containsString("Hello QuickStart!"));
+        }
+    }
+
+    /**
+     * 静的リソースの重複排除が有効な場合、複数のダンプディレクトリの静的リソースが、
+     * テストフレームワークが既にコピーしていたものも含めて同じ実体（inode）を共有すること。
+     */
+    @Test
+    public void testHttpDumpResourceDedup() throws Exception {
+        Path warDir = temporaryFolder.newFolder("war").toPath();
+        Files.createDirectories(warDir.resolve("css"));
+        Files.write(warDir.resolve("css/app.css"), "body {}".getBytes(StandardCharsets.UTF_8));
+        File dumpRoot = temporaryFolder.newFolder("dump");
+        Path first = Files.createDirectories(dumpRoot.toPath().resolve("First"));
+        Path second = Files.createDirectories(dumpRoot.toPath().resolve("Second").resolve("css")).getParent();
+        Files.copy(warDir.resolve("css/app.css"), second.resolve("css/app.css"));
+
+        HttpServerJetty12 server = createServer().setHttpDumpResourceDedupEnabled(true);
+        server.setWarBasePath("file://" + warDir.toAbsolutePath());
+        server.addHandler("/hello", (HttpRequestHandler) (req, ctx) -> new HttpResponse(200).write("hello"));
+        server.setHttpDumpRoot(dumpRoot.getPath());
+        server.setHttpDumpEnabled(true);
+        server.startLocal();
+        for (Path dir : Arrays.asList(first, second)) {
+            server.setHttpDumpFilePath(dir.resolve("dump.html").toString());
+            assertEquals(200, server.handle(
+                    new MockHttpRequest("GET /hello HTTP/1.1"), new ExecutionContext()).getStatusCode());
+        }
+
+        Object firstInode = Files.readAttributes(first.resolve("css/app.css"), BasicFileAttributes.class).fileKey();
+        Object secondInode = Files.readAttributes(second.resolve("css/app.css"), BasicFileAttributes.class).fileKey();
+        assertNotNull(firstInode);
+        assertEquals(firstInode, secondInode);
+    }
+
+    /**
+     * HTTPダンプの出力待ちのキューが満杯の場合の動作に、不正な値を指定した場合は例外となること。
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidHttpDumpBackPressure() {
+        new HttpServerJetty12().setHttpDumpBackPressure("wait");
+    }
+
+    /**
+     * HTTPダンプをZIPファイルに出力する場合、ロールサイズごとにZIPファイルが切り替わり、
+     * 各ZIPファイルにダンプと静的リソースが含まれること。
+     */
+    @Test
+    public void testArchiveHttpDump() throws Exception {
+        File dumpRoot = temporaryFolder.newFolder("dump");
+        File dumpDir = new File(dumpRoot, "Test");
+        Files.createDirectories(dumpDir.toPath().resolve("css"));
+        Files.write(dumpDir.toPath().resolve("css/common.css"), "body {}".getBytes(StandardCharsets.UTF_8));
+        File archiveDir = temporaryFolder.newFolder("archive");
+        HttpServerJetty12 server = createJspServer()
+                .setHttpDumpArchiveEnabled(true)
+                .setHttpDumpArchivePath(archiveDir.getPath())
+                .setHttpDumpArchiveRollSize(1);
+        server.setHttpDumpRoot(dumpRoot.getPath());
+        server.setHttpDumpEnabled(true);
+        server.startLocal();
+
+        for (int i = 0; i < 2; i++) {
+            server.setHttpDumpFilePath(new File(dumpDir, "dump" + i + ".html").getAbsolutePath());
+            assertJspRendered(server);
+        }
+        server.closeHttpDumpArchive();
+
+        assertEquals(2L, server.getArchivedHttpDumpCount());
+        assertFalse(new File(dumpDir, "dump0.html").exists());
+        File[] archives = archiveDir.listFiles();
+        assertNotNull(archives);
+        Arrays.sort(archives);
+        assertEquals(2, archives.length);
+        for (int i = 0; i < 2; i++) {
+            try (ZipFile zip = new ZipFile(archives[i])) {
+                assertNotNull(zip.getEntry("Test/css/common.css"));
+                ZipEntry entry = zip.getEntry("Test/dump" + i + ".html");
+                assertNotNull(entry);
+                try (InputStream in = zip.getInputStream(entry)) {
+                    assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8),
+                            containsString("Hello QuickStart!"));
+                }
+            }
+        }
+    }
+
+    /**
+     * 同じディレクトリにHTTPダンプのZIPファイルを出力する複数のサーバが、互いのZIPファイルを上書きしないこと。
+     */
+    @Test
+    public void testArchiveHttpDumpNotOverwritten() throws Exception {
+        File dumpRoot = temporaryFolder.newFolder("dump");
+        File archiveDir = temporaryFolder.newFolder("archive");
+        List<HttpServerJetty12> servers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            HttpServerJetty12 server = createJspServer()
+                    .setHttpDumpArchiveEnabled(true)
+                    .setHttpDumpArchivePath(archiveDir.getPath());
+            server.setHttpDumpRoot(dumpRoot.getPath());
+            server.setHttpDumpEnabled(true);
+            server.startLocal();
+            servers.add(server);
+        }
+        for (HttpServerJetty12 server : servers) {
+            assertJspRendered(server);
+        }
+        for (HttpServerJetty12 server : servers) {
+            server.closeHttpDumpArchive();
+        }
+
+        File[] archives = archiveDir.listFiles();
+        assertNotNull(archives);
+        assertEquals(2, archives.length);
+        for (File archive : archives) {
+            try (ZipFile zip = new ZipFile(archive)) {
+                assertEquals(1, zip.stream().filter(entry -> entry.getName().endsWith(".html")).count());
+            }
+        }
+    }
+
+    /**
+     * 静的リソースに対するレスポンスのキャッシュが有効な場合、2回目以降のリクエストはディスパッチせずに
+     * キャッシュから返され、リソースが更新された場合は再度ディスパッチされること。
+     */
+    @Test
+    public void testStaticResponseCache() throws Exception {
+        File warDir = temporaryFolder.newFolder("war");
+        Path css = warDir.toPath().resolve("css/app.css");
+        Files.createDirectories(css.getParent());
+        Files.write(css, "body {}".getBytes(StandardCharsets.UTF_8));
+        AtomicInteger dispatched = new AtomicInteger();
+        HttpServerJetty12 server = createJspServer("file://" + warDir.getPath())
+                .setStaticResponseCacheSize(1024);
+        server.addHandler("/css/app.css", (HttpRequestHandler) (req, ctx) ->
+                new HttpResponse(200).write("dispatched:" + dispatched.incrementAndGet()));
+        server.startLocal();
+
+        for (int i = 0; i < 3; i++) {
+            HttpResponse res = server.handle(new MockHttpRequest("GET /css/app.css HTTP/1.1"), new ExecutionContext());
+            assertEquals(200, res.getStatusCode());
+            assertEquals("dispatched:1", res.getBodyString());
+        }
+        assertEquals(1, dispatched.get());
+        assertEquals(2L, server.getStaticResponseCacheHitCount());
+        assertEquals(1L, server.getStaticResponseCacheMissCount());
+
+        // 条件付きリクエストと範囲リクエストは、キャッシュを使用せずにディスパッチすること。
+        MockHttpRequest conditional = new MockHttpRequest("GET /css/app.css HTTP/1.1");
+        conditional.getHeaderMap().put("If-None-Match", "\"etag\"");
+        assertEquals("dispatched:2", server.handle(conditional, new ExecutionContext()).getBodyString());
+        MockHttpRequest range = new MockHttpRequest("GET /css/app.css HTTP/1.1");
+        range.getHeaderMap().put("Range", "bytes=0-1");
+        assertEquals("dispatched:3", server.handle(range, new ExecutionContext()).getBodyString());
+        assertEquals(2L, server.getStaticResponseCacheHitCount());
+
+        assertTrue(css.toFile().setLastModified(css.toFile().lastModified() + 10000L));
+        HttpResponse res = server.handle(new MockHttpRequest("GET /css/app.css HTTP/1.1"), new ExecutionContext());
+        assertEquals("dispatched:4", res.getBodyString());
+        assertEquals(4, dispatched.get());
+    }
+
+    private static void assertHandleAll(HttpServerJetty12 server) {
+        server.addHandler("/login", (HttpRequestHandler) (req, ctx) -> {
+            ((ServletExecutionContext) ctx).getNativeHttpSession(true).setAttribute("user", "alice");
+            return new HttpResponse(200).write("login");
+        });
+        server.addHandler("/whoami", (HttpRequestHandler) (req, ctx) -> {
+            HttpSession session = ((ServletExecutionContext) ctx).getNativeHttpSession(false);
+            return new HttpResponse(200).write("user:" + (session == null ? null : session.getAttribute("user")));
+        });
+        server.startLocal();
+
+        List<MockHttpRequest> requests = Arrays.asList(
+                new MockHttpRequest("GET /whoami HTTP/1.1"),
+                new MockHttpRequest("GET /login HTTP/1.1"),
+                new MockHttpRequest("GET /whoami HTTP/1.1"),
+                new MockHttpRequest("GET /greeting HTTP/1.1"));
+        List<HttpResponse> responses = server.handleAll(requests, new ExecutionContext());
+
+        assertEquals(4, responses.size());
+        assertThat(responses.get(0).getBodyString(), containsString("user:null"));
+        assertThat(responses.get(1).getBodyString(), containsString("login"));
+        assertThat(responses.get(2).getBodyString(), containsString("user:alice"));
+        assertThat(responses.get(3).getBodyString(), containsString("Hello QuickStart!"));
+        // 引数のリクエストには、セッションIDが設定されていないこと。
+        for (MockHttpRequest req : requests) {
+            assertTrue(req.getCookie() == null || req.getCookie().isEmpty());
+        }
+    }
+
+    private static void assertHandleAsync(HttpServerJetty12 server) throws Exception {
+        server.addHandler("/echo", (HttpRequestHandler) (req, ctx) ->
+                new HttpResponse(200).write("echo:" + req.getParam("message")[0] + ":"));
+        server.startLocal();
+
+        List<CompletableFuture<HttpResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            MockHttpRequest req = new MockHttpRequest("POST /echo HTTP/1.1");
+            req.setParam("message", "async" + i);
+            futures.add(server.handleAsync(req, new ExecutionContext()));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            HttpResponse res = futures.get(i).get(60, TimeUnit.SECONDS);
+            assertEquals(200, res.getStatusCode());
+            assertThat(res.getBodyString(), containsString("echo:async" + i + ":"));
+        }
+    }
+
+    private static void assertConcurrentHandle(HttpServerJetty12 server) throws Exception {
+        server.addHandler("/echo", (HttpRequestHandler) (req, ctx) ->
+                new HttpResponse(200).write("echo:" + req.getParam("message")[0] + ":"));
+        server.startLocal();
+
+        int threads = 8;
+        int requestsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch ready = new CountDownLatch(threads);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                results.add(executor.submit(() -> {
+                    ready.countDown();
+                    ready.await();
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        String message = "t" + thread + "-" + i;
+                        MockHttpRequest req = new MockHttpRequest("POST /echo HTTP/1.1");
+                        req.setParam("message", message);
+                        HttpResponse res = server.handle(req, new ExecutionContext());
+                        assertEquals(200, res.getStatusCode());
+                        assertThat(res.getBodyString(), containsString("echo:" + message + ":"));
+                    }
+                    // JSPへのフォワードも並行に処理できること。
+                    assertJspRendered(server);
+                    return requestsPerThread;
+                }));
+            }
+            int handled = 0;
+            for (Future<Integer> result : results) {
+                handled += result.get(60, TimeUnit.SECONDS);
+            }
+            assertEquals(threads * requestsPerThread, handled);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 起動していないサーバは再デプロイできないこと。
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testRedeployBeforeStart() {
+        createJspServer().redeploy();
+    }
+
+    /**
+     * バックグラウンドで起動したサーバの起動完了を待機できること。
+     */
+    @Test
+    public void testStartLocalAsync() throws Exception {
+        HttpServerJetty12 server = createJspServer();
+        CompletableFuture<HttpServerJetty12> started = server.startLocalAsync();
+        assertSame(server, started.get(60, TimeUnit.SECONDS));
+        assertJspRendered(server);
+    }
+
+    /**
+     * バックグラウンド起動が有効な場合、startLocal()は起動完了を待たずに戻り、
+     * handle()が起動完了を待機してからリクエストを処理すること。
+     */
+    @Test
+    public void testBackgroundStart() {
+        HttpServer server = createJspServer()
+                .setBackgroundStartEnabled(true)
+                .startLocal();
+        assertJspRendered(server);
+    }
+
+    /**
+     * バックグラウンドでの起動に失敗した場合、handle()で例外が送出されること。
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testBackgroundStartFailure() {
+        HttpServer server = createJspServer(
+                "file://" + new File(temporaryFolder.getRoot(), "notExist").getPath())
+                .setBackgroundStartEnabled(true)
+                .startLocal();
+        server.handle(new MockHttpRequest("GET /greeting HTTP/1.1"), new ExecutionContext());
+    }
+
+    private static Path findGeneratedFile(File dir, String name) throws Exception {
+        try (Stream<Path> files = Files.walk(dir.toPath())) {
+            List<Path> found = files.filter(p -> p.getFileName().toString().equals(name))
+                                    .collect(Collectors.toList());
+            assertEquals(1, found.size());
+            return found.get(0);
+        }
+    }
+
+    private HttpServerJetty12 createJspServer() {
+        return createJspServer("classpath://nablarch/fw/web/sample/app/");
+    }
+
+    private HttpServerJetty12 createJspServer(String warBasePath) {
+        HttpServerJetty12 server = createServer();
+        server.setWarBasePath(warBasePath);
+        server.addHandler("/greeting", (HttpRequestHandler) (req, ctx) -> {
+            ctx.setRequestScopedVar("greeting", "Hello QuickStart!");
+            return new HttpResponse(200).setContentPath("servlet:///jsp/index.jsp");
+        });
+        return server;
+    }
+
+    /**
+     * テストの終了時に停止するサーバを生成する。
+     *
+     * @return サーバ
+     */
+    private HttpServerJetty12 createServer() {
+        HttpServerJetty12 server = new HttpServerJetty12();
+        servers.add(server);
+        return server;
+    }
+
+    private static String assertJspRendered(HttpServer server) {
+        HttpResponse res = server.handle(new MockHttpRequest("GET /greeting HTTP/1.1"), new ExecutionContext());
+        assertEquals(200, res.getStatusCode());
+        assertNotNull(res.getBodyString());
+        assertThat(res.getBodyString(), containsString("Hello QuickStart!"));
+        return res.getBodyString();
+    }
+
+    private static void addFirst(HttpServer server, Handler<?, ?> handler) {
+        List<Handler> handlerQueue = new ArrayList<>(server.getHandlerQueue());
+        handlerQueue.add(0, handler);
+        server.setHandlerQueue(handlerQueue);
+    }
+}
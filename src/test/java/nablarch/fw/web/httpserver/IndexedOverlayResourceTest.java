@@ -0,0 +1,119 @@
+package nablarch.fw.web.httpserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.eclipse.jetty.util.Scanner;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.resource.ResourceFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link IndexedOverlayResource}のテスト。
+ */
+public class IndexedOverlayResourceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File first;
+
+    private File second;
+
+    private Resource combined;
+
+    @Before
+    public void setUp() throws Exception {
+        first = temporaryFolder.newFolder("first");
+        second = temporaryFolder.newFolder("second");
+        write(first, "css/common.css", "first");
+        write(second, "css/common.css", "second");
+        write(second, "css/second.css", "second only");
+        combined = ResourceFactory.combine(Arrays.asList(
+                ResourceFactory.root().newResource(first.toPath()),
+                ResourceFactory.root().newResource(second.toPath())));
+    }
+
+    /**
+     * 先に指定されたWARベースパスのファイルが優先されること。
+     */
+    @Test
+    public void testResolveFile() throws Exception {
+        IndexedOverlayResource resource = new IndexedOverlayResource(combined);
+        assertEquals("first", read(resource.resolve("/css/common.css")));
+        assertEquals("second only", read(resource.resolve("/css/second.css")));
+        assertSame(resource.resolve("/css/common.css"), resource.resolve("/css/common.css"));
+        assertSame(resource, resource.resolve("/"));
+    }
+
+    /**
+     * 索引にないパスは、結合したリソースと同じ結果となること。
+     */
+    @Test
+    public void testResolveNotIndexed() {
+        IndexedOverlayResource resource = new IndexedOverlayResource(combined);
+        Resource dir = resource.resolve("/css/");
+        assertTrue(dir.isDirectory());
+        assertEquals(2, dir.list().size());
+        assertFalse(resource.resolve("/notExist.css").exists());
+    }
+
+    /**
+     * 索引を再構築すると、追加されたファイルが優先されること。
+     */
+    @Test
+    public void testInvalidate() throws Exception {
+        IndexedOverlayResource resource = new IndexedOverlayResource(combined);
+        assertEquals("second only", read(resource.resolve("/css/second.css")));
+
+        write(first, "css/second.css", "added");
+        resource.invalidate();
+        assertEquals("added", read(resource.resolve("/css/second.css")));
+    }
+
+    /**
+     * スキャナがファイルの追加を検知して索引を再構築すること。
+     */
+    @Test
+    public void testScanner() throws Exception {
+        IndexedOverlayResource resource = new IndexedOverlayResource(combined);
+        assertFalse(resource.resolve("/js/app.js").exists());
+
+        Scanner scanner = resource.newScanner(1);
+        scanner.start();
+        try {
+            write(first, "js/app.js", "scanned");
+            long deadline = System.currentTimeMillis() + 10000L;
+            while (!resource.resolve("/js/app.js").exists() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100L);
+            }
+            assertEquals("scanned", read(resource.resolve("/js/app.js")));
+        } finally {
+            scanner.stop();
+        }
+    }
+
+    private static void write(File dir, String path, String content) throws Exception {
+        Path file = dir.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Resource resource) throws Exception {
+        try (InputStream in = resource.newInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package nablarch.fw.web.httpserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * {@link LatencyHistogram}のテスト。
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * 128マイクロ秒未満の値は、正確に集計されること。
+     */
+    @Test
+    public void testSmallValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(50, histogram.getValueAtPercentile(50d));
+        assertEquals(99, histogram.getValueAtPercentile(99d));
+        assertEquals(100, histogram.getValueAtPercentile(100d));
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5d, histogram.getMean(), 0d);
+    }
+
+    /**
+     * 大きな値は、バケットの精度（誤差1.6%以内）で集計されること。
+     */
+    @Test
+    public void testLargeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i * 10L);
+        }
+        assertWithinPrecision(500000, histogram.getValueAtPercentile(50d));
+        assertWithinPrecision(990000, histogram.getValueAtPercentile(99d));
+        assertWithinPrecision(999000, histogram.getValueAtPercentile(99.9d));
+        assertEquals(1000000, histogram.getValueAtPercentile(100d));
+    }
+
+    /**
+     * 全ての値が、その値を含むバケットに記録されること。
+     */
+    @Test
+    public void testBucketBoundaries() {
+        long[] values = {0L, 127L, 128L, 129L, 255L, 256L, 1000L, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue("value = " + value, value <= LatencyHistogram.highestValueOf(index));
+            if (index > 0) {
+                assertTrue("value = " + value, value > LatencyHistogram.highestValueOf(index - 1));
+            }
+        }
+    }
+
+    /**
+     * 記録がない場合は0が返され、範囲外のパーセンタイルは例外となること。
+     */
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99d));
+        assertEquals(0d, histogram.getMean(), 0d);
+        try {
+            histogram.getValueAtPercentile(101d);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("percentile = [101.0]"));
+        }
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue("expected = " + expected + " actual = " + actual,
+                Math.abs(actual - expected) <= expected / 64);
+    }
+}
@@ -0,0 +1,221 @@
+package nablarch.fw.web.httpserver;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link LazySessionInvalidationFilter}で、1リクエストの処理中にセッションを繰り返し取得する処理のベンチマーク。
+ * <p/>
+ * ハンドラキューの各ハンドラ（セッションストア、CSRFトークン、hiddenストア等）がセッションを取得する状況を、
+ * 1リクエストあたり{@link #callsPerRequest}回{@link HttpServletRequest#getSession(boolean)}を呼び出すことで再現する。
+ * <ul>
+ * <li>filter: フィルタを経由した場合（同じセッションには同じラッパーを返却する）</li>
+ * <li>perCallWrapper: 呼び出しごとにラッパーを生成する場合（比較用。ラッパーの生成を再利用しない場合の実装を模したもの）</li>
+ * </ul>
+ * 1操作あたりの割り当て量は、gcプロファイラの{@code gc.alloc.rate.norm}で比較する。
+ * {@code mvn -P benchmark verify -Dbenchmark.includes=LazySessionInvalidationFilterBenchmark}で実行する。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazySessionInvalidationFilterBenchmark {
+
+    /** 1リクエストあたりのセッションの取得回数 */
+    @Param({"1", "10", "30"})
+    public int callsPerRequest;
+
+    /** セッションが存在するか否か */
+    @Param({"true", "false"})
+    public boolean sessionExists;
+
+    /** 計測対象のフィルタ */
+    private final LazySessionInvalidationFilter sessionFilter = new LazySessionInvalidationFilter();
+
+    /** フィルタに渡すリクエスト */
+    private HttpServletRequest request;
+
+    /**
+     * リクエストとセッションを準備する。
+     */
+    @Setup
+    public void setUp() {
+        HttpSession session = (HttpSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {HttpSession.class}, (proxy, method, args) -> {
+                    if ("getAttributeNames".equals(method.getName())) {
+                        return Collections.emptyEnumeration();
+                    }
+                    return null;
+                });
+        HttpSession existing = sessionExists ? session : null;
+        request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class}, (proxy, method, args) -> {
+                    if ("getSession".equals(method.getName())) {
+                        return existing;
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * フィルタを経由して、セッションを繰り返し取得する。
+     *
+     * @param blackhole 取得したセッションの受け取り先
+     * @throws IOException 発生しない
+     * @throws ServletException 発生しない
+     */
+    @Benchmark
+    public void filter(Blackhole blackhole) throws IOException, ServletException {
+        sessionFilter.doFilter(request, null, (req, res) -> getSessions(req, blackhole));
+    }
+
+    /**
+     * 呼び出しごとにラッパーを生成するリクエストで、セッションを繰り返し取得する。
+     *
+     * @param blackhole 取得したセッションの受け取り先
+     * @throws IOException 発生しない
+     * @throws ServletException 発生しない
+     */
+    @Benchmark
+    public void perCallWrapper(Blackhole blackhole) throws IOException, ServletException {
+        FilterChain chain = (req, res) -> getSessions(req, blackhole);
+        chain.doFilter(new PerCallRequestWrapper(request), null);
+    }
+
+    /**
+     * セッションを繰り返し取得する。
+     *
+     * @param request リクエスト
+     * @param blackhole 取得したセッションの受け取り先
+     */
+    private void getSessions(ServletRequest request, Blackhole blackhole) {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        for (int i = 0; i < callsPerRequest; i++) {
+            blackhole.consume(httpRequest.getSession(false));
+        }
+    }
+
+    /**
+     * 呼び出しごとにセッションのラッパーを生成するリクエストのラッパー（比較用）。
+     */
+    private static final class PerCallRequestWrapper extends HttpServletRequestWrapper {
+
+        /**
+         * コンストラクタ。
+         *
+         * @param request ラップするリクエスト
+         */
+        PerCallRequestWrapper(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public HttpSession getSession(boolean create) {
+            HttpSession session = super.getSession(create);
+            return session == null ? null : new PerCallSessionWrapper(session);
+        }
+    }
+
+    /**
+     * セッションのラッパー（比較用）。
+     */
+    private static final class PerCallSessionWrapper implements HttpSession {
+
+        /** {@link HttpSession}の実体 */
+        private final HttpSession delegate;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param delegate {@link HttpSession}の実体
+         */
+        PerCallSessionWrapper(HttpSession delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long getCreationTime() {
+            return delegate.getCreationTime();
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public long getLastAccessedTime() {
+            return delegate.getLastAccessedTime();
+        }
+
+        @Override
+        public ServletContext getServletContext() {
+            return delegate.getServletContext();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(int interval) {
+            delegate.setMaxInactiveInterval(interval);
+        }
+
+        @Override
+        public int getMaxInactiveInterval() {
+            return delegate.getMaxInactiveInterval();
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return delegate.getAttribute(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            return delegate.getAttributeNames();
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            delegate.setAttribute(name, value);
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            delegate.removeAttribute(name);
+        }
+
+        @Override
+        public void invalidate() {
+            delegate.invalidate();
+        }
+
+        @Override
+        public boolean isNew() {
+            return delegate.isNew();
+        }
+    }
+}
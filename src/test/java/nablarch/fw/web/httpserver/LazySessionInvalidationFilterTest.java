@@ -0,0 +1,105 @@
+package nablarch.fw.web.httpserver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.junit.Test;
+
+/**
+ * {@link LazySessionInvalidationFilter}のテスト。
+ */
+public class LazySessionInvalidationFilterTest {
+
+    private final LazySessionInvalidationFilter sut = new LazySessionInvalidationFilter();
+
+    /** リクエストが返却するセッション */
+    private final AtomicReference<HttpSession> currentSession = new AtomicReference<>();
+
+    /** 実際にinvalidateが呼び出された回数 */
+    private final AtomicInteger invalidateCount = new AtomicInteger();
+
+    /**
+     * 同じセッションに対しては、繰り返し呼び出しても同じラッパーが返却されること。
+     */
+    @Test
+    public void testSameWrapperForSameSession() throws Exception {
+        currentSession.set(newSession("s1"));
+        sut.doFilter(newRequest(), null, (request, response) -> {
+            HttpServletRequest req = (HttpServletRequest) request;
+            HttpSession first = req.getSession(true);
+            assertThat(req.getSession(false), is(sameInstance(first)));
+            assertThat(req.getSession(), is(sameInstance(first)));
+            assertThat(first.getId(), is("s1"));
+        });
+    }
+
+    /**
+     * セッションが変わった場合は、新しいセッションをラップしたラッパーが返却されること。
+     */
+    @Test
+    public void testNewWrapperAfterSessionChanged() throws Exception {
+        currentSession.set(newSession("s1"));
+        sut.doFilter(newRequest(), null, (request, response) -> {
+            HttpServletRequest req = (HttpServletRequest) request;
+            HttpSession first = req.getSession(true);
+            currentSession.set(newSession("s2"));
+            HttpSession second = req.getSession(true);
+            assertThat(second, is(not(sameInstance(first))));
+            assertThat(second.getId(), is("s2"));
+            assertThat(req.getSession(true), is(sameInstance(second)));
+        });
+    }
+
+    /**
+     * 再利用されたラッパーでinvalidateを呼び出しても、実際のinvalidateは後続の処理が終わるまで遅延されること。
+     */
+    @Test
+    public void testInvalidateThroughReusedWrapperIsDeferred() throws Exception {
+        currentSession.set(newSession("s1"));
+        sut.doFilter(newRequest(), null, (request, response) -> {
+            HttpServletRequest req = (HttpServletRequest) request;
+            req.getSession(true);
+            HttpSession reused = req.getSession(true);
+            reused.invalidate();
+            assertEquals(0, invalidateCount.get());
+        });
+        assertEquals(1, invalidateCount.get());
+    }
+
+    private HttpServletRequest newRequest() {
+        return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class}, (proxy, method, args) -> {
+                    if ("getSession".equals(method.getName())) {
+                        return currentSession.get();
+                    }
+                    return null;
+                });
+    }
+
+    private HttpSession newSession(String id) {
+        return (HttpSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {HttpSession.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getId":
+                            return id;
+                        case "getAttributeNames":
+                            return Collections.emptyEnumeration();
+                        case "invalidate":
+                            invalidateCount.incrementAndGet();
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
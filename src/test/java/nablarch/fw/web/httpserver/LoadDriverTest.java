@@ -0,0 +1,90 @@
+package nablarch.fw.web.httpserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.repository.SystemRepository;
+import nablarch.fw.web.HttpRequestHandler;
+import nablarch.fw.web.HttpResponse;
+import nablarch.fw.web.MockHttpRequest;
+
+/**
+ * {@link LoadDriver}のテスト。
+ */
+public class LoadDriverTest {
+
+    @Before
+    public void setUp() {
+        SystemRepository.clear();
+        ThreadContext.clear();
+    }
+
+    /**
+     * ローカル接続で起動したサーバに、記録したリクエストを繰り返し送信して結果を集計できること。
+     */
+    @Test
+    public void testRunLocal() {
+        HttpServerJetty12 server = new HttpServerJetty12();
+        server.addHandler("/ok", (HttpRequestHandler) (req, ctx) -> new HttpResponse(200).write("ok"));
+        server.addHandler("/error", (HttpRequestHandler) (req, ctx) -> new HttpResponse(500));
+        server.startLocal();
+
+        LoadResult result = new LoadDriver()
+                .setConcurrency(2)
+                .setWarmUpMillis(100)
+                .setDurationMillis(300)
+                .setRequests(Arrays.asList(
+                        new MockHttpRequest("GET /ok HTTP/1.1"),
+                        new MockHttpRequest("GET /error HTTP/1.1")))
+                .run(server);
+
+        assertTrue(result.getRequestCount() > 0);
+        assertTrue(result.getErrorCount() > 0);
+        assertTrue(result.getErrorCount() < result.getRequestCount());
+        assertTrue(result.getElapsedMillis() >= 300);
+        assertTrue(result.getThroughput() > 0);
+        assertTrue(result.getLatencyMicros(50d) <= result.getLatencyMicros(99d));
+        assertTrue(result.getLatencyMicros(99d) <= result.getMaxLatencyMicros());
+        assertTrue(result.toString().startsWith("requests = [" + result.getRequestCount() + "]"));
+    }
+
+    /**
+     * ポートで起動したサーバに、ファクトリで生成したリクエストをHTTPクライアントで送信できること。
+     */
+    @Test
+    public void testRunRemote() {
+        HttpServerJetty12 server = new HttpServerJetty12();
+        server.setPort(7997);
+        server.addHandler("/echo", (HttpRequestHandler) (req, ctx) ->
+                new HttpResponse("n".equals(req.getParam("type")[0]) ? 200 : 500));
+        server.start();
+
+        LoadResult result = new LoadDriver()
+                .setDurationMillis(200)
+                .setRequestFactory(sequence -> {
+                    MockHttpRequest req = new MockHttpRequest("POST /echo HTTP/1.1");
+                    req.setParam("type", "n");
+                    req.setParam("sequence", String.valueOf(sequence));
+                    return req;
+                })
+                .run(URI.create("http://127.0.0.1:7997"));
+
+        assertTrue(result.getRequestCount() > 0);
+        assertEquals(0, result.getErrorCount());
+    }
+
+    /**
+     * 送信するリクエストが設定されていない場合は、例外となること。
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testRequestsNotSet() {
+        new LoadDriver().setDurationMillis(1).run(new HttpServerJetty12());
+    }
+}
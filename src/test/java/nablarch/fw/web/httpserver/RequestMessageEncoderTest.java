@@ -0,0 +1,128 @@
+package nablarch.fw.web.httpserver;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.Test;
+
+import nablarch.fw.web.HttpCookie;
+import nablarch.fw.web.MockHttpRequest;
+
+/**
+ * {@link RequestMessageEncoder}のテスト。
+ */
+public class RequestMessageEncoderTest {
+
+    private final ArrayByteBufferPool bufferPool = new ArrayByteBufferPool();
+
+    /**
+     * GETのリクエストパラメータがクエリ文字列として、ヘッダとクッキーがヘッダとしてエンコードされること。
+     * ホストが設定されていない場合は、引数のホストが使用され、HTTPリクエストは変更されないこと。
+     */
+    @Test
+    public void testGet() throws Exception {
+        MockHttpRequest req = new MockHttpRequest("GET /text HTTP/1.1");
+        req.setParam("q", "a b");
+        req.getHeaderMap().put("X-Test", "value");
+        HttpCookie cookie = new HttpCookie();
+        cookie.put("NABLARCH_SID", "abc");
+        req.setCookie(cookie);
+
+        String message = encode(req, StandardCharsets.UTF_8);
+        assertThat(message, containsString("GET /text?q=a+b HTTP/1.1\r\n"));
+        assertThat(message, containsString("X-Test: value\r\n"));
+        assertThat(message, containsString("Host: 127.0.0.1\r\n"));
+        assertThat(message, containsString("Cookie: NABLARCH_SID=abc\r\n"));
+        assertThat(message, not(containsString("Content-Length")));
+        assertThat(message.endsWith("\r\n\r\n"), is(true));
+        assertThat(req.getHost(), nullValue());
+    }
+
+    /**
+     * POSTのリクエストパラメータが、指定した文字セットでURLエンコードされたボディとしてエンコードされ、
+     * ボディのバイト数がContent-Lengthに設定されること。
+     */
+    @Test
+    public void testPost() throws Exception {
+        MockHttpRequest req = new MockHttpRequest("POST /text HTTP/1.1");
+        req.setHost("example.com");
+        req.setParam("name", "日本語");
+
+        String utf8 = encode(req, StandardCharsets.UTF_8);
+        assertThat(utf8, containsString("Host: example.com\r\n"));
+        assertThat(utf8, containsString("Content-Type: application/x-www-form-urlencoded;charset=UTF-8\r\n"));
+        assertThat(utf8, containsString("Content-Length: 32\r\n"));
+        assertThat(utf8.endsWith("\r\n\r\nname=%E6%97%A5%E6%9C%AC%E8%AA%9E"), is(true));
+
+        String sjis = encode(req, Charset.forName("Windows-31J"));
+        assertThat(sjis, containsString("Content-Length: 23\r\n"));
+        assertThat(sjis.endsWith("\r\n\r\nname=%93%FA%96%7B%8C%EA"), is(true));
+    }
+
+    /**
+     * バッファの初期容量を超えるヘッダやマルチバイト文字も、バッファを拡張してエンコードされること。
+     * 表現できない文字は、String#getBytesと同様に置換文字に置き換えられること。
+     */
+    @Test
+    public void testGrowAndUnmappable() throws Exception {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            large.append("あ");
+        }
+        MockHttpRequest req = new MockHttpRequest("GET /text HTTP/1.1");
+        req.getHeaderMap().put("X-Large", large.toString());
+        assertThat(encode(req, StandardCharsets.UTF_8), containsString("X-Large: " + large + "\r\n"));
+
+        MockHttpRequest unmappable = new MockHttpRequest("GET /日本語 HTTP/1.1");
+        String expected = new String("GET /日本語 HTTP/1.1".getBytes(StandardCharsets.ISO_8859_1),
+                StandardCharsets.ISO_8859_1);
+        assertThat(encode(unmappable, StandardCharsets.ISO_8859_1), containsString(expected + "\r\n"));
+    }
+
+    /**
+     * コネクタが読み終えたバッファのみプールに返却されること。
+     */
+    @Test
+    public void testRelease() throws Exception {
+        RequestMessageEncoder encoder = new RequestMessageEncoder(bufferPool, StandardCharsets.UTF_8);
+        RequestMessageEncoder.Message unread = encoder.encode(new MockHttpRequest("GET / HTTP/1.1"), "localhost");
+        encoder.release(unread);
+        assertEquals(unread.size(), unread.getHead().remaining());
+        assertEquals(0, bufferPool.getAvailableHeapByteBufferCount());
+
+        RequestMessageEncoder.Message read = encoder.encode(new MockHttpRequest("GET / HTTP/1.1"), "localhost");
+        BufferUtil.clear(read.getHead());
+        encoder.release(read);
+        assertEquals(1, bufferPool.getAvailableHeapByteBufferCount());
+    }
+
+    private String encode(MockHttpRequest req, Charset charset) throws Exception {
+        RequestMessageEncoder encoder = new RequestMessageEncoder(bufferPool, charset);
+        RequestMessageEncoder.Message message = encoder.encode(req, HttpServerJetty12.DEFAULT_HOST);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(message.getHead(), out);
+        if (message.getBody() != null) {
+            write(message.getBody(), out);
+        }
+        assertEquals(message.size(), out.size());
+        encoder.release(message);
+        return out.toString(charset.name());
+    }
+
+    private static void write(ByteBuffer buffer, ByteArrayOutputStream out) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        out.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,253 @@
+package nablarch.fw.web.httpserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.servlet.http.HttpSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.repository.SystemRepository;
+import nablarch.fw.ExecutionContext;
+import nablarch.fw.web.HttpRequestHandler;
+import nablarch.fw.web.HttpResponse;
+import nablarch.fw.web.MockHttpRequest;
+import nablarch.fw.web.servlet.ServletExecutionContext;
+
+/**
+ * {@link WarmServerPool}のテスト。
+ */
+public class WarmServerPoolTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        SystemRepository.clear();
+        ThreadContext.clear();
+        WarmServerPool.getInstance().clear();
+    }
+
+    @After
+    public void tearDown() {
+        WarmServerPool.getInstance().clear();
+    }
+
+    /**
+     * デプロイ内容が同じサーバは再利用され、
+     * リクエストは後から起動したサーバのハンドラで処理されること。
+     */
+    @Test
+    public void testReuseServerWithSameDeployment() throws Exception {
+        WarmServerPool pool = WarmServerPool.getInstance();
+
+        HttpServerJetty12 first = createServer("first");
+        first.startLocal();
+        assertEquals(0, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+        assertEquals(1, pool.size());
+        assertEquals("first", handle(first));
+
+        HttpServerJetty12 second = createServer("second");
+        second.startLocal();
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+        assertEquals(1, pool.size());
+        assertSame(first.getJetty(), second.getJetty());
+        assertEquals("second", handle(second));
+    }
+
+    /**
+     * デプロイ内容が異なるサーバは再利用されないこと。
+     */
+    @Test
+    public void testNotReuseServerWithDifferentDeployment() throws Exception {
+        WarmServerPool pool = WarmServerPool.getInstance();
+
+        HttpServerJetty12 first = createServer("first");
+        first.startLocal();
+
+        HttpServerJetty12 second = createServer("second");
+        second.setServletContextPath("/app");
+        second.startLocal();
+
+        assertEquals(0, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+        assertEquals(2, pool.size());
+        assertEquals(0, pool.getSavedStartupMillis());
+    }
+
+    /**
+     * WARやコンテキストパスが同じでも、起動時に構築されるものを変える設定が異なるサーバは再利用されないこと。
+     */
+    @Test
+    public void testNotReuseServerWithDifferentDeployOptions() throws Exception {
+        WarmServerPool pool = WarmServerPool.getInstance();
+
+        createServer("first").startLocal();
+        createServer("indexed").setWarResourceIndexEnabled(true).startLocal();
+        createServer("threads").setMaxThreads(50).startLocal();
+        createServer("precompiled").setJspPrecompileEnabled(true).startLocal();
+
+        assertEquals(0, pool.getHitCount());
+        assertEquals(4, pool.getMissCount());
+        assertEquals(4, pool.size());
+
+        // 設定が同じであれば再利用されること。
+        createServer("threads2").setMaxThreads(50).startLocal();
+        assertEquals(1, pool.getHitCount());
+    }
+
+    /**
+     * 再デプロイが有効な場合、デプロイ内容が異なるサーバは起動中のサーバへの再デプロイで代替されること。
+     */
+    @Test
+    public void testRedeployToRunningServer() throws Exception {
+        WarmServerPool pool = WarmServerPool.getInstance();
+
+        HttpServerJetty12 first = createServer("first").setRedeployEnabled(true);
+        first.startLocal();
+
+        HttpServerJetty12 second = createServer("second").setRedeployEnabled(true);
+        second.setServletContextPath("/app");
+        second.startLocal();
+
+        assertEquals(0, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+        assertEquals(1, pool.size());
+        assertSame(first.getJetty(), second.getJetty());
+        HttpResponse res = second.handle(new MockHttpRequest("GET /app/test HTTP/1.1"), new ExecutionContext());
+        assertEquals("second", res.getBodyString().trim());
+
+        // 再デプロイ後のデプロイ内容で、プールから再利用できること。
+        HttpServerJetty12 third = createServer("third").setRedeployEnabled(true);
+        third.setServletContextPath("/app");
+        third.startLocal();
+        assertEquals(1, pool.getHitCount());
+        assertSame(second.getJetty(), third.getJetty());
+    }
+
+    /**
+     * 再利用したサーバで、一連のリクエストの処理と静的リソースのキャッシュが使用できること。
+     * 前の使用者が生成したセッションは無効化され、前の使用者はリクエストを処理できなくなること。
+     */
+    @Test
+    public void testReusedServerHandlesAllAndCachesStaticResource() throws Exception {
+        File warDir = temporaryFolder.newFolder("war");
+        Path css = warDir.toPath().resolve("css/app.css");
+        Files.createDirectories(css.getParent());
+        Files.write(css, "body {}".getBytes(StandardCharsets.UTF_8));
+
+        AtomicReference<HttpSession> firstSession = new AtomicReference<>();
+        HttpServerJetty12 first = createSessionServer("file://" + warDir.getPath(), "first", firstSession);
+        first.startLocal();
+        first.handleAll(Arrays.asList(new MockHttpRequest("GET /login HTTP/1.1")), new ExecutionContext());
+        assertEquals("alice", firstSession.get().getAttribute("user"));
+
+        AtomicReference<HttpSession> secondSession = new AtomicReference<>();
+        HttpServerJetty12 second = createSessionServer("file://" + warDir.getPath(), "second", secondSession);
+        second.startLocal();
+        assertEquals(1, WarmServerPool.getInstance().getHitCount());
+        assertSame(first.getJetty(), second.getJetty());
+
+        // 前の使用者のセッションは無効化されていること。
+        try {
+            firstSession.get().getAttribute("user");
+            fail("the session of the previous user must be invalidated.");
+        } catch (IllegalStateException e) {
+            // OK
+        }
+        // 前の使用者はリクエストを処理できないこと。
+        try {
+            first.handle(new MockHttpRequest("GET /whoami HTTP/1.1"), new ExecutionContext());
+            fail("the previous user must not handle requests.");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("taken over"));
+        }
+
+        List<HttpResponse> responses = second.handleAll(Arrays.asList(
+                new MockHttpRequest("GET /whoami HTTP/1.1"),
+                new MockHttpRequest("GET /login HTTP/1.1"),
+                new MockHttpRequest("GET /whoami HTTP/1.1")), new ExecutionContext());
+        assertEquals("user:null", responses.get(0).getBodyString());
+        assertEquals("second:login", responses.get(1).getBodyString());
+        assertEquals("user:alice", responses.get(2).getBodyString());
+
+        for (int i = 0; i < 3; i++) {
+            HttpResponse res = second.handle(new MockHttpRequest("GET /css/app.css HTTP/1.1"), new ExecutionContext());
+            assertEquals(200, res.getStatusCode());
+            assertEquals("second:css", res.getBodyString());
+        }
+        assertEquals(2L, second.getStaticResponseCacheHitCount());
+        assertEquals(1L, second.getStaticResponseCacheMissCount());
+
+        // 使用を終了した後は、リクエストを処理できないこと。
+        second.release();
+        try {
+            second.handle(new MockHttpRequest("GET /css/app.css HTTP/1.1"), new ExecutionContext());
+            fail("the released server must not handle requests.");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("startLocal()"));
+        }
+    }
+
+    /**
+     * サーバプールが無効の場合は、プールが使用されないこと。
+     */
+    @Test
+    public void testPoolDisabled() throws Exception {
+        HttpServerJetty12 server = new HttpServerJetty12();
+        server.addHandler("/test", (HttpRequestHandler) (req, ctx) -> new HttpResponse(200).write("disabled"));
+        server.startLocal();
+
+        assertEquals(0, WarmServerPool.getInstance().size());
+        assertEquals(0, WarmServerPool.getInstance().getMissCount());
+    }
+
+    private static HttpServerJetty12 createServer(String body) {
+        HttpServerJetty12 server = new HttpServerJetty12().setServerPoolEnabled(true);
+        server.addHandler("/test", (HttpRequestHandler) (req, ctx) -> new HttpResponse(200).write(body));
+        return server;
+    }
+
+    private static HttpServerJetty12 createSessionServer(
+            String warBasePath, String name, AtomicReference<HttpSession> sessionHolder) {
+        HttpServerJetty12 server = new HttpServerJetty12()
+                .setServerPoolEnabled(true)
+                .setStaticResponseCacheSize(1024);
+        server.setWarBasePath(warBasePath);
+        server.addHandler("/login", (HttpRequestHandler) (req, ctx) -> {
+            HttpSession session = ((ServletExecutionContext) ctx).getNativeHttpSession(true);
+            session.setAttribute("user", "alice");
+            sessionHolder.set(session);
+            return new HttpResponse(200).write(name + ":login");
+        });
+        server.addHandler("/whoami", (HttpRequestHandler) (req, ctx) -> {
+            HttpSession session = ((ServletExecutionContext) ctx).getNativeHttpSession(false);
+            return new HttpResponse(200).write("user:" + (session == null ? null : session.getAttribute("user")));
+        });
+        server.addHandler("/css/app.css", (HttpRequestHandler) (req, ctx) -> new HttpResponse(200).write(name + ":css"));
+        return server;
+    }
+
+    private static String handle(HttpServerJetty12 server) {
+        HttpResponse res = server.handle(new MockHttpRequest("GET /test HTTP/1.1"), new ExecutionContext());
+        assertEquals(200, res.getStatusCode());
+        return res.getBodyString().trim();
+    }
+}